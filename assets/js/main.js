@@ -1,20 +1,119 @@
+// ===================================
+// PESQUISA NO ÍNDICE GERADO PELA BUILD
+// ===================================
+// O gerador publica search/docs.json (documentos e estatísticas) e search/<xx>.json com os
+// termos que começam por <xx>; só os shards dos termos pesquisados são descarregados.
+// A normalização e o stemmer têm de coincidir com Utils.SearchIndex no main.java.
+const SiteSearch = (function() {
+    const root = document.currentScript ? new URL('../../', document.currentScript.src).href : '';
+    const shards = new Map();
+    const K1 = 1.2;
+    const B = 0.75;
+
+    function load(name) {
+        if (!shards.has(name)) {
+            shards.set(name, fetch(root + 'search/' + encodeURIComponent(name) + '.json')
+                .then(response => response.ok ? response.json() : {})
+                .catch(() => ({})));
+        }
+        return shards.get(name);
+    }
+
+    function normalize(word) {
+        return word.toLowerCase().normalize('NFD').replace(/[\u0300-\u036f]/g, '');
+    }
+
+    function stem(word, suffixes) {
+        if (word.length < 4) return word;
+        let w = word;
+        if (w.endsWith('ns')) {
+            w = w.slice(0, -2) + 'm';
+        } else if (w.endsWith('oes') || w.endsWith('aes')) {
+            w = w.slice(0, -3) + 'ao';
+        } else if (w.endsWith('ais') || w.endsWith('eis') || w.endsWith('ois')) {
+            w = w.slice(0, -2) + 'l';
+        } else if (w.endsWith('res') || w.endsWith('zes') || w.endsWith('les')) {
+            w = w.slice(0, -2);
+        } else if (w.endsWith('s') && !w.endsWith('ss') && !w.endsWith('us') && !w.endsWith('is')) {
+            w = w.slice(0, -1);
+        }
+        for (const suffix of suffixes) {
+            if (w.endsWith(suffix) && w.length - suffix.length >= 3) {
+                w = w.slice(0, -suffix.length);
+                break;
+            }
+        }
+        if (w.length > 3 && 'aeo'.includes(w[w.length - 1])) {
+            w = w.slice(0, -1);
+        }
+        return w;
+    }
+
+    // Resultados ordenados por BM25; a última palavra também vale como prefixo,
+    // para que a pesquisa funcione enquanto se escreve
+    async function search(query, limit = 20) {
+        const index = await load('docs');
+        if (!index.docs) return [];
+        const stop = new Set(index.stop);
+        const words = query.split(/[^\p{L}\p{N}]+/u)
+            .map(normalize)
+            .filter(word => word.length >= 2 && !stop.has(word));
+        const scores = new Map();
+
+        await Promise.all(words.map(async (word, i) => {
+            const term = stem(word, index.suffixes);
+            const prefix = i === words.length - 1 ? word : null;
+            const shard = await load(term.slice(0, 2));
+            for (const [candidate, postings] of Object.entries(shard)) {
+                const exact = candidate === term;
+                if (!exact && !(prefix && candidate.startsWith(prefix))) continue;
+                const df = postings.length / 2;
+                const idf = Math.log(1 + (index.n - df + 0.5) / (df + 0.5));
+                const weight = exact ? 1 : 0.5;
+                for (let p = 0; p < postings.length; p += 2) {
+                    const id = postings[p];
+                    const tf = postings[p + 1];
+                    const length = index.docs[id][4];
+                    const score = weight * idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / index.avgdl));
+                    scores.set(id, (scores.get(id) || 0) + score);
+                }
+            }
+        }));
+
+        return Array.from(scores.entries())
+            .sort((a, b) => b[1] - a[1])
+            .slice(0, limit)
+            .map(([id]) => {
+                const [type, url, title, snippet] = index.docs[id];
+                return { type, url: root + url, title, snippet };
+            });
+    }
+
+    return { search };
+})();
+
 // Funcionalidades para a página All Posts
 document.addEventListener('DOMContentLoaded', function() {
-    // Busca de artigos
+    // Busca de artigos, eventos e membros no índice da build
     const searchInput = document.getElementById('post-search');
     const searchBtn = document.querySelector('.search-btn');
 
     if (searchInput && searchBtn) {
+        let searchTimer;
         searchBtn.addEventListener('click', performSearch);
         searchInput.addEventListener('keypress', function(e) {
             if (e.key === 'Enter') {
                 performSearch();
             }
         });
+        searchInput.addEventListener('input', function() {
+            clearTimeout(searchTimer);
+            searchTimer = setTimeout(performSearch, 150);
+        });
     }
 
     // Filtros por tags
-    const filterTags = document.querySelectorAll('.filter-tag');
+    const filterTags = document.querySelectorAll('.filter-tag[data-filter]');
     filterTags.forEach(tag => {
         tag.addEventListener('click', function() {
             // Remove active class de todos os botões
@@ -28,12 +127,65 @@ document.addEventListener('DOMContentLoaded', function() {
     });
 
     function performSearch() {
-        const searchTerm = searchInput.value.toLowerCase().trim();
-        if (searchTerm) {
-            filterPosts('search', searchTerm);
-        } else {
-            filterPosts('all');
+        const query = searchInput.value.trim();
+        if (!query) {
+            showResults(null);
+            return;
         }
+        SiteSearch.search(query)
+            .then(results => {
+                // Ignora respostas de pesquisas que entretanto foram substituídas
+                if (searchInput.value.trim() === query) {
+                    showResults(results);
+                }
+            })
+            .catch(err => console.error('Erro na pesquisa:', err));
+    }
+
+    // Com uma pesquisa ativa, os resultados substituem a listagem e a paginação
+    function showResults(results) {
+        const listing = document.querySelector('.all-posts-content');
+        const pagination = document.querySelector('.pagination');
+        let container = document.querySelector('.search-results');
+        if (!container) {
+            container = document.createElement('div');
+            container.className = 'search-results';
+            listing.parentNode.insertBefore(container, listing);
+        }
+
+        const searching = results !== null;
+        listing.style.display = searching ? 'none' : '';
+        if (pagination) pagination.style.display = searching ? 'none' : '';
+        container.style.display = searching ? '' : 'none';
+        container.replaceChildren();
+        if (!searching) return;
+
+        if (results.length === 0) {
+            container.innerHTML = `
+                <div class="empty-state">
+                    <h3>Nenhum resultado encontrado</h3>
+                    <p>Tente usar palavras-chave diferentes.</p>
+                </div>
+            `;
+            return;
+        }
+
+        results.forEach(result => {
+            const item = document.createElement('div');
+            item.className = 'post-item search-result';
+            item.innerHTML = `
+                <div class="post-content">
+                    <span class="result-type"></span>
+                    <h4><a></a></h4>
+                    <p class="post-excerpt"></p>
+                </div>
+            `;
+            item.querySelector('.result-type').textContent = result.type;
+            item.querySelector('a').textContent = result.title;
+            item.querySelector('a').href = result.url;
+            item.querySelector('.post-excerpt').textContent = result.snippet;
+            container.appendChild(item);
+        });
     }
 
     function filterPosts(filter, term = '') {
@@ -298,7 +450,8 @@ document.addEventListener('DOMContentLoaded', function() {
   // BUSCA DE POSTS/MEMBROS
   // ===================================
   
-  const searchInput = document.getElementById('post-search') || document.getElementById('member-search');
+  // A busca de artigos usa o índice da build (ver SiteSearch); aqui só os membros
+  const searchInput = document.getElementById('member-search');
   
   if (searchInput) {
     searchInput.addEventListener('input', function(e) {
@@ -340,7 +493,7 @@ document.addEventListener('DOMContentLoaded', function() {
   // FILTROS DE TAGS
   // ===================================
   
-  const filterTags = document.querySelectorAll('.filter-tag');
+  const filterTags = document.querySelectorAll('.filter-tag[data-filter]');
   
   filterTags.forEach(tag => {
     tag.addEventListener('click', function() {
@@ -571,43 +724,6 @@ document.addEventListener('DOMContentLoaded', function() {
     }
   });
   
-  // ===================================
-  // SYNTAX HIGHLIGHTING BÁSICO
-  // ===================================
-  
-  function highlightCode() {
-    const codeBlocks = document.querySelectorAll('pre code:not(.highlighted)');
-    
-    codeBlocks.forEach(block => {
-      let code = block.innerHTML;
-      
-      // Java/JavaScript keywords
-      const keywords = ['public', 'private', 'class', 'function', 'const', 'let', 'var', 
-                       'if', 'else', 'for', 'while', 'return', 'import', 'package',
-                       'static', 'void', 'int', 'String', 'boolean', 'new', 'this'];
-      
-      keywords.forEach(keyword => {
-        const regex = new RegExp(`\\b(${keyword})\\b`, 'g');
-        code = code.replace(regex, '<span class="keyword">$1</span>');
-      });
-      
-      // Strings
-      code = code.replace(/(".*?"|'.*?')/g, '<span class="string">$1</span>');
-      
-      // Comments
-      code = code.replace(/(\/\/.*$)/gm, '<span class="comment">$1</span>');
-      code = code.replace(/(\/\*[\s\S]*?\*\/)/g, '<span class="comment">$1</span>');
-      
-      // Numbers
-      code = code.replace(/\b(\d+)\b/g, '<span class="number">$1</span>');
-      
-      block.innerHTML = code;
-      block.classList.add('highlighted');
-    });
-  }
-  
-  highlightCode();
-  
   // ===================================
   // PERFORMANCE: DEBOUNCE
   // ===================================
@@ -0,0 +1,23 @@
+package kambas.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ponto de entrada do jar de benchmarks. Aceita as opções normais do JMH (filtro por nome,
+ * {@code -p size=SMALL}, {@code -rf json -rff resultado.json}, ...) e liga sempre o profiler de GC,
+ * para que as alocações por operação ({@code gc.alloc.rate.norm}) fiquem registadas em cada execução
+ * e possam ser comparadas entre commits.
+ */
+public final class BenchmarkMain {
+
+  private BenchmarkMain() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cli = new CommandLineOptions(args);
+    new Runner(new OptionsBuilder().parent(cli).addProfiler(GCProfiler.class).build()).run();
+  }
+}
@@ -0,0 +1,166 @@
+package kambas.bench;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Conteúdo sintético e determinístico para os benchmarks. Os documentos misturam os blocos que
+ * aparecem nos posts reais (títulos, listas, código, tabelas, citações, links e ênfase) e os
+ * tamanhos cobrem desde uma página de membro até um post muito longo.
+ */
+public final class Corpus {
+
+  public enum Size {
+    /** Uma página de membro ou um evento curto (~1 KB, 5 itens por listagem). */
+    SMALL(1 << 10, 5),
+    /** Um post típico (~32 KB, 50 itens por listagem). */
+    MEDIUM(32 << 10, 50),
+    /** Um post anormalmente longo (~1 MB, 500 itens por listagem). */
+    LARGE(1 << 20, 500);
+
+    final int bytes;
+    final int items;
+
+    Size(int bytes, int items) {
+      this.bytes = bytes;
+      this.items = items;
+    }
+  }
+
+  private static final String[] WORDS = {
+      "java", "kambas", "record", "stream", "thread", "virtual", "angola", "luanda", "jvm", "classe",
+      "método", "interface", "módulo", "compilador", "coleção", "mapa", "lista", "evento", "comunidade",
+      "meetup", "código", "desempenho", "memória", "garbage", "collector", "padrão", "sealed", "switch"
+  };
+
+  private static final String[] TAGS = {
+      "Java", "Spring Boot", "Kotlin", "JVM", "Concorrência", "Testes", "DevOps", "Comunidade"
+  };
+
+  private Corpus() {
+  }
+
+  /** Um post completo, com cabeçalho de metadados, com pelo menos {@code size.bytes} caracteres. */
+  static String markdown(Size size) {
+    SplittableRandom random = new SplittableRandom(size.ordinal() + 42L);
+    StringBuilder md = new StringBuilder(size.bytes + 1024);
+    md.append("@title ").append(sentence(random, 6)).append('\n');
+    md.append("@date 2024-05-17\n");
+    md.append("@description ").append(sentence(random, 14)).append('\n');
+    md.append("@location Luanda, Angola\n");
+    md.append("@type Meetup\n\n");
+    md.append("<!-- metadados do evento -->\n\n");
+    int section = 0;
+    while (md.length() < size.bytes) {
+      switch (section++ % 7) {
+        case 0 -> md.append("## ").append(sentence(random, 4)).append("\n\n");
+        case 1 -> paragraph(md, random);
+        case 2 -> {
+          for (int i = 0; i < 4; i++) {
+            md.append("- ").append(sentence(random, 6)).append(" com `").append(word(random)).append("()`\n");
+          }
+          md.append('\n');
+        }
+        case 3 -> md.append("```java\nrecord Post(String title, int year) {\n  static <T> List<T> of(T t) {\n"
+            + "    return t == null ? List.of() : List.of(t); // \"comentário\" & <escape>\n  }\n}\n```\n\n");
+        case 4 -> {
+          md.append("| Coluna | Valor | Notas |\n|:---|---:|:---:|\n");
+          for (int i = 0; i < 3; i++) {
+            md.append("| ").append(word(random)).append(" | ").append(random.nextInt(1000)).append(" | ")
+                .append(sentence(random, 3)).append(" |\n");
+          }
+          md.append('\n');
+        }
+        case 5 -> md.append("> ").append(sentence(random, 12)).append("\n> ").append(sentence(random, 8))
+            .append("\n\n");
+        default -> {
+          paragraph(md, random);
+          md.append("1. ").append(sentence(random, 5)).append("\n2. ").append(sentence(random, 5)).append("\n\n");
+        }
+      }
+    }
+    return md.toString();
+  }
+
+  /** Texto com uma densidade realista de caracteres a escapar. */
+  static String text(Size size) {
+    SplittableRandom random = new SplittableRandom(size.ordinal() + 7L);
+    StringBuilder text = new StringBuilder(size.bytes + 64);
+    while (text.length() < size.bytes) {
+      text.append(sentence(random, 10));
+      text.append(switch (random.nextInt(6)) {
+        case 0 -> " <b>\"Kambas\"</b> ";
+        case 1 -> " & ";
+        case 2 -> " 'java' ";
+        default -> " ";
+      });
+    }
+    return text.toString();
+  }
+
+  static List<Object> posts(Size size) {
+    SplittableRandom random = new SplittableRandom(1);
+    List<Object> posts = new ArrayList<>(size.items);
+    for (int i = 0; i < size.items; i++) {
+      String title = sentence(random, 5);
+      List<String> tags = List.of(TAGS[i % TAGS.length], TAGS[(i * 7 + 3) % TAGS.length]);
+      posts.add(Generator.post(title, "post-" + i, html(random), 2024 - i / 12, 12 - i % 12, sentence(random, 16),
+          tags));
+    }
+    return posts;
+  }
+
+  static List<Object> events(Size size) {
+    SplittableRandom random = new SplittableRandom(2);
+    List<Object> events = new ArrayList<>(size.items);
+    LocalDate start = LocalDate.of(2025, 1, 1);
+    for (int i = 0; i < size.items; i++) {
+      events.add(Generator.event(sentence(random, 4), "evento-" + i, html(random), start.plusDays(i * 7L),
+          "Luanda, Angola", sentence(random, 14), i % 2 == 0 ? "Meetup" : "Workshop", i % 3 != 0));
+    }
+    return events;
+  }
+
+  static List<Object> members(Size size) {
+    SplittableRandom random = new SplittableRandom(3);
+    List<Object> members = new ArrayList<>(size.items);
+    for (int i = 0; i < size.items; i++) {
+      Map<String, String> links = new LinkedHashMap<>();
+      links.put("github", "https://github.com/kamba" + i);
+      links.put("linkedin", "https://linkedin.com/in/kamba" + i);
+      members.add(Generator.member("Kamba " + i, "kamba" + i, "https://github.com/kamba" + i + ".png",
+          html(random), links));
+    }
+    return members;
+  }
+
+  private static String html(SplittableRandom random) {
+    return "<p>" + sentence(random, 40) + "</p>\n<p>" + sentence(random, 30) + "</p>\n";
+  }
+
+  private static void paragraph(StringBuilder md, SplittableRandom random) {
+    md.append(sentence(random, 12)).append(" **").append(word(random)).append("** e *").append(word(random))
+        .append("*, ver [a documentação](https://docs.oracle.com/en/java/) ou <https://kambas.dev>.\n")
+        .append(sentence(random, 15)).append(" &amp; ").append(sentence(random, 6)).append(".\n\n");
+  }
+
+  private static String sentence(SplittableRandom random, int words) {
+    StringBuilder sentence = new StringBuilder(words * 8);
+    for (int i = 0; i < words; i++) {
+      if (i > 0) {
+        sentence.append(' ');
+      }
+      sentence.append(word(random));
+    }
+    sentence.setCharAt(0, Character.toUpperCase(sentence.charAt(0)));
+    return sentence.toString();
+  }
+
+  private static String word(SplittableRandom random) {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+}
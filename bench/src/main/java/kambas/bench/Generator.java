@@ -0,0 +1,243 @@
+package kambas.bench;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Acesso ao código do main.java a partir dos benchmarks.
+ *
+ * <p>O gerador é um ficheiro de código compacto: tudo o que lá está vive dentro da classe implícita
+ * {@code main}, que não pode ser referida pelo nome. Os métodos são resolvidos uma única vez para
+ * {@link MethodHandle}s em campos {@code static final}, que o JIT trata como constantes, por isso o
+ * custo da indireção desaparece depois do aquecimento.
+ */
+final class Generator {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private static final MethodHandle MARKDOWN_TO_HTML = method("Utils$MarkdownProcessor", "markdownToHtml", String.class);
+  private static final MethodHandle ESCAPE_HTML = method("Utils$MarkdownProcessor", "escapeHtml", String.class);
+  private static final MethodHandle FRONT_MATTER = method("Utils$FrontMatter", "parse", CharSequence.class);
+
+  private static final MethodHandle LOAD_TEMPLATES = method("Utils$TemplateEngine", "loadTemplates");
+  private static final MethodHandle PROCESS_ASSETS =
+      method("Utils$Assets", "process", Path.class, type("Utils$Metrics"));
+  private static final MethodHandle NEW_METRICS = constructor("Utils$Metrics");
+  private static final MethodHandle RENDER_INDEX =
+      method("Utils$TemplateEngine", "renderIndex", List.class, List.class, List.class);
+  private static final MethodHandle RENDER_POST = method("Utils$TemplateEngine", "renderPost", type("DataSet$Post"));
+  private static final MethodHandle RENDER_POSTS_PAGE =
+      method("Utils$TemplateEngine", "renderPostsPage", type("Utils$PostIndex$Listing"), int.class, List.class);
+  private static final MethodHandle TAGS = method("Utils$PostIndex", "tags", List.class);
+  private static final MethodHandle LISTINGS = method("Utils$PostIndex", "listings", List.class, List.class);
+  private static final MethodHandle RENDER_EVENT = method("Utils$TemplateEngine", "renderEvent", type("DataSet$Event"));
+  private static final MethodHandle RENDER_ALL_EVENTS = method("Utils$TemplateEngine", "renderAllEvents", List.class);
+  private static final MethodHandle RENDER_MEMBER =
+      method("Utils$TemplateEngine", "renderMember", type("DataSet$Member"));
+  private static final MethodHandle RENDER_ALL_MEMBERS = method("Utils$TemplateEngine", "renderAllMembers", List.class);
+
+  private static final MethodHandle NEW_POST = constructor("DataSet$Post");
+  private static final MethodHandle NEW_EVENT = constructor("DataSet$Event");
+  private static final MethodHandle NEW_MEMBER = constructor("DataSet$Member");
+
+  private Generator() {
+  }
+
+  static String markdownToHtml(String md) {
+    try {
+      return (String) MARKDOWN_TO_HTML.invokeExact((Object) md);
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  static String escapeHtml(String s) {
+    try {
+      return (String) ESCAPE_HTML.invokeExact((Object) s);
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  // O registo devolvido é package-private no main.java; para o benchmark basta o Object
+  static Object frontMatter(String md) {
+    try {
+      return FRONT_MATTER.invokeExact((Object) md);
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  /**
+   * Prepara o motor de templates tal como um build faria: os assets são processados para uma pasta
+   * temporária (para que {@code ${asset:...}} resolva para os nomes com hash) e os templates são
+   * compilados. Tem de correr a partir da raiz do repositório.
+   */
+  static void loadTemplates() throws IOException {
+    Path site = Files.createTempDirectory("kambas-bench");
+    try {
+      PROCESS_ASSETS.invoke(site, NEW_METRICS.invoke(false));
+      LOAD_TEMPLATES.invoke();
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Throwable t) {
+      throw failure(t);
+    } finally {
+      try (Stream<Path> files = Files.walk(site)) {
+        files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+  }
+
+  static String renderIndex(List<?> posts, List<?> events, List<?> members) {
+    try {
+      return (String) RENDER_INDEX.invokeExact((Object) posts, (Object) events, (Object) members);
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  static String renderPost(Object post) {
+    return render(RENDER_POST, post);
+  }
+
+  static String renderPostsPage(Object listing, int number, List<?> tags) {
+    try {
+      return (String) RENDER_POSTS_PAGE.invokeExact(listing, (Object) number, (Object) tags);
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  /** As tags dos posts, como o índice de listagens as agrupa. */
+  static List<?> tags(List<?> posts) {
+    try {
+      return (List<?>) TAGS.invokeExact((Object) posts);
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  /** O arquivo completo seguido de uma listagem por tag. */
+  static List<?> listings(List<?> posts, List<?> tags) {
+    try {
+      return (List<?>) LISTINGS.invokeExact((Object) posts, (Object) tags);
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  static String renderEvent(Object event) {
+    return render(RENDER_EVENT, event);
+  }
+
+  static String renderAllEvents(List<?> events) {
+    return render(RENDER_ALL_EVENTS, events);
+  }
+
+  static String renderMember(Object member) {
+    return render(RENDER_MEMBER, member);
+  }
+
+  static String renderAllMembers(List<?> members) {
+    return render(RENDER_ALL_MEMBERS, members);
+  }
+
+  static Object post(String title, String slug, String content, int year, int month, String description,
+      List<String> tags) {
+    try {
+      return NEW_POST.invokeExact((Object) title, (Object) slug, (Object) content, (Object) year, (Object) month,
+          (Object) description, (Object) tags);
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  static Object event(String title, String slug, String content, LocalDate date, String location,
+      String description, String eventType, boolean isUpcoming) {
+    try {
+      return NEW_EVENT.invokeExact((Object) title, (Object) slug, (Object) content, (Object) date, (Object) location,
+          (Object) description, (Object) eventType, (Object) isUpcoming);
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  static Object member(String name, String githubUsername, String avatarUrl, String content,
+      Map<String, String> socialLinks) {
+    try {
+      return NEW_MEMBER.invokeExact((Object) name, (Object) githubUsername, (Object) avatarUrl, (Object) content,
+          (Object) socialLinks);
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  private static String render(MethodHandle handle, Object argument) {
+    try {
+      return (String) handle.invokeExact(argument);
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  private static Class<?> type(String name) {
+    try {
+      return Class.forName("main$" + name);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Classe do gerador não encontrada: " + name, e);
+    }
+  }
+
+  /**
+   * Os parâmetros são convertidos para {@code Object}, porque os tipos do gerador não podem ser
+   * nomeados aqui; o tipo de retorno mantém-se, e é o que o cast em {@code invokeExact} declara.
+   */
+  private static MethodHandle method(String owner, String name, Class<?>... parameters) {
+    try {
+      Method method = type(owner).getDeclaredMethod(name, parameters);
+      method.setAccessible(true);
+      MethodHandle handle = LOOKUP.unreflect(method);
+      // Tipos de retorno que o benchmark não consegue nomear ficam como Object
+      Class<?> returns = method.getReturnType();
+      if (!Modifier.isPublic(returns.getModifiers())) {
+        returns = Object.class;
+      }
+      return handle.asType(handle.type().generic().changeReturnType(returns));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Método do gerador não encontrado: " + owner + "." + name, e);
+    }
+  }
+
+  private static MethodHandle constructor(String record) {
+    Class<?> type = type(record);
+    Constructor<?> constructor = type.getDeclaredConstructors()[0];
+    constructor.setAccessible(true);
+    try {
+      MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+      return handle.asType(handle.type().generic());
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Construtor do gerador inacessível: " + record, e);
+    }
+  }
+
+  private static RuntimeException failure(Throwable t) {
+    if (t instanceof RuntimeException e) {
+      return e;
+    }
+    if (t instanceof Error e) {
+      throw e;
+    }
+    return new IllegalStateException(t);
+  }
+}
@@ -0,0 +1,52 @@
+package kambas.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Conversão de Markdown e leitura de metadados, por tamanho de documento. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class MarkdownBenchmark {
+
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  Corpus.Size size;
+
+  String markdown;
+  String text;
+
+  @Setup
+  public void setup() {
+    markdown = Corpus.markdown(size);
+    text = Corpus.text(size);
+  }
+
+  @Benchmark
+  public String markdownToHtml() {
+    return Generator.markdownToHtml(markdown);
+  }
+
+  @Benchmark
+  public String escapeHtml() {
+    return Generator.escapeHtml(text);
+  }
+
+  @Benchmark
+  public Object frontMatter() {
+    return Generator.frontMatter(markdown);
+  }
+}
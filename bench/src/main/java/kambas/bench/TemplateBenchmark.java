@@ -0,0 +1,85 @@
+package kambas.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renderização de cada tipo de página. As páginas individuais usam o primeiro item da listagem; as
+ * listagens e a página inicial recebem {@code size.items} itens de cada tipo; o arquivo de posts é
+ * paginado, por isso renderPostsPage mede a primeira página.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class TemplateBenchmark {
+
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  Corpus.Size size;
+
+  List<Object> posts;
+  List<?> tags;
+  Object archive;
+  List<Object> events;
+  List<Object> members;
+
+  @Setup
+  public void setup() throws IOException {
+    Generator.loadTemplates();
+    posts = Corpus.posts(size);
+    tags = Generator.tags(posts);
+    archive = Generator.listings(posts, tags).get(0);
+    events = Corpus.events(size);
+    members = Corpus.members(size);
+  }
+
+  @Benchmark
+  public String renderIndex() {
+    return Generator.renderIndex(posts, events, members);
+  }
+
+  @Benchmark
+  public String renderPost() {
+    return Generator.renderPost(posts.get(0));
+  }
+
+  @Benchmark
+  public String renderPostsPage() {
+    return Generator.renderPostsPage(archive, 1, tags);
+  }
+
+  @Benchmark
+  public String renderEvent() {
+    return Generator.renderEvent(events.get(0));
+  }
+
+  @Benchmark
+  public String renderAllEvents() {
+    return Generator.renderAllEvents(events);
+  }
+
+  @Benchmark
+  public String renderMember() {
+    return Generator.renderMember(members.get(0));
+  }
+
+  @Benchmark
+  public String renderAllMembers() {
+    return Generator.renderAllMembers(members);
+  }
+}
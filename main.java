@@ -1,27 +1,58 @@
 import module java.base;
+import module jdk.httpserver;
+import module jdk.jfr;
+import module java.management;
 
-void main() throws Exception {
-  var startTime = System.currentTimeMillis();
-  Path siteDir = Paths.get("site");
-
-  Utils.Processor.clearSiteDir(siteDir);
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
 
-  var posts = Utils.Processor.processPosts(siteDir);
-  var events = Utils.Processor.processEvents(siteDir);
-  var members = Utils.Processor.processMembers(siteDir);
+void main(String[] args) throws Exception {
+  Path siteDir = Paths.get("site");
+  var options = Arrays.asList(args);
 
-  Utils.Render.render(siteDir, posts, events, members);
+  if (options.contains("serve")) {
+    Utils.DevServer.serve(siteDir, Utils.DevServer.port(options));
+    return;
+  }
+  if (options.contains("daemon")) {
+    Utils.Daemon.serve(siteDir);
+    return;
+  }
+  if (!options.isEmpty() && options.getFirst().equals("client")) {
+    int status = Utils.Daemon.client(options.subList(1, options.size()));
+    if (status != 0) {
+      System.exit(status);
+    }
+    return;
+  }
 
-  println("Site gerado em: " + siteDir.toAbsolutePath());
-  println("Posts processados: " + posts.size());
-  println("Eventos processados: " + events.size());
-  println("Membros processados: " + members.size());
-  var endTime = System.currentTimeMillis();
-  println("Tempo total: " + (endTime - startTime) + " ms");
+  // Builds em vários processos: cada --shard=I/N gera uma fatia, related calcula os relacionados
+  // de todas, cada --shard=I/N pages gera as páginas que os mostram e o merge junta tudo em site/
+  if (options.contains("related")) {
+    Utils.Build.related(siteDir);
+    return;
+  }
+  var shard = Utils.Shard.of(options);
+  var result = options.contains("merge") ? Utils.Build.merge(siteDir)
+      : shard != null && options.contains("pages") ? Utils.Build.pages(siteDir, shard)
+      : shard != null ? Utils.Build.shard(siteDir, shard)
+      : Utils.Build.run(siteDir, options.contains("--incremental"));
+  for (String line : Utils.Build.summary(shard != null ? shard.dir(siteDir) : siteDir, result, options)) {
+    println(line);
+  }
 }
 
 class DataSet {
-  record Post(String title, String slug, String content, int year, int month, String description) {
+  record Post(String title, String slug, String content, int year, int month, String description,
+      List<String> tags) {
   }
 
   record Member(String name, String githubUsername, String avatarUrl, String content,
@@ -36,59 +67,13 @@ class DataSet {
 class Utils {
   static class MarkdownProcessor {
     public static String markdownToHtml(String md) {
-      String[] lines = md.split("\r?\n");
-      StringBuilder sb = new StringBuilder();
-      boolean inList = false;
-      for (String line : lines) {
-        if (line.startsWith("@")) {
-          // ignora metadados
-          continue;
-        }
-        
-        if (line.startsWith("### ")) {
-          if (inList) {
-            sb.append("</ul>\n");
-            inList = false;
-          }
-          sb.append("<h3>").append(escapeHtml(line.substring(4))).append("</h3>\n");
-        } else if (line.startsWith("## ")) {
-          if (inList) {
-            sb.append("</ul>\n");
-            inList = false;
-          }
-          sb.append("<h2>").append(escapeHtml(line.substring(3))).append("</h2>\n");
-        } else if (line.startsWith("# ")) {
-          if (inList) {
-            sb.append("</ul>\n");
-            inList = false;
-          }
-          sb.append("<h1>").append(escapeHtml(line.substring(2))).append("</h1>\n");
-        } else if (line.startsWith("- ")) {
-          if (!inList) {
-            sb.append("<ul>\n");
-            inList = true;
-          }
-          sb.append("<li>").append(escapeHtml(line.substring(2))).append("</li>\n");
-        } else if (line.startsWith("> ")) {
-          if (inList) {
-            sb.append("</ul>\n");
-            inList = false;
-          }
-          sb.append("<blockquote>").append(escapeHtml(line.substring(2))).append("</blockquote>\n");
-        } else {
-          if (inList) {
-            sb.append("</ul>\n");
-            inList = false;
-          }
-          if (line.isBlank()) {
-            // ignora
-          } else {
-            sb.append("<p>").append(escapeHtml(line)).append("</p>\n");
-          }
-        }
-      }
-      if (inList)
-        sb.append("</ul>\n");
+      return markdownToHtml(md, FrontMatter.parse(md).bodyStart());
+    }
+
+    // Converte a partir de bodyStart; quem já leu os metadados não volta a percorrê-los
+    static String markdownToHtml(String md, int bodyStart) {
+      StringBuilder sb = new StringBuilder(md.length() + (md.length() >> 2));
+      Utils.MarkdownParser.render(md, bodyStart, sb);
       return sb.toString();
     }
 
@@ -103,52 +88,24 @@ class Utils {
       return "Artigo da comunidade Kambas do Java";
     }
 
-    public static Map<String, String> extractEventMetadata(String md) {
-      Map<String, String> metadata = new HashMap<>();
-      String[] lines = md.split("\r?\n");
-
-      for (String line : lines) {
-        if (line.startsWith("<!--") && line.contains(":")) {
-          String cleanLine = line.replace("<!--", "").replace("-->", "").trim();
-          String[] parts = cleanLine.split(":", 2);
-          if (parts.length == 2) {
-            String key = parts[0].trim().toLowerCase();
-            String value = parts[1].trim();
-            metadata.put(key, value);
-          }
-        } else if (line.startsWith("#")) {
-          break; // Para no primeiro heading
-        }
-      }
-
-      return metadata;
+    public static DataSet.Event parseEventFromMarkdown(String md, String fileName) {
+      return parseEventFromMarkdown(ParseCache.Parsed.of(md), fileName);
     }
 
-    public static DataSet.Event parseEventFromMarkdown(String md, String fileName) {
-      Map<String, String> metadata = extractEventMetadata(md);
+    static DataSet.Event parseEventFromMarkdown(ParseCache.Parsed parsed, String fileName) {
+      FrontMatter front = parsed.front();
 
       String title = fileName.replace(".md", "");
       String slug = title.toLowerCase()
           .replace(" ", "-")
           .replaceAll("[^a-z0-9-]", "");
 
-      // Extrai conteúdo (remove metadata)
-      String content = md.replaceAll("(?s)<!--.*?-->", "").trim();
-      content = Utils.MarkdownProcessor.markdownToHtml(content);
-
-      // Parse metadata
-      LocalDate date = LocalDate.now();
-      if (metadata.containsKey("date")) {
-        try {
-          date = LocalDate.parse(metadata.get("date"));
-        } catch (Exception e) {
-          // Usa data atual se parsing falhar
-        }
-      }
+      String content = parsed.html();
 
-      String location = metadata.getOrDefault("location", "Online");
-      String description = metadata.getOrDefault("description", extractDescription(md));
-      String EventType = metadata.getOrDefault("type", "meetup");
+      LocalDate date = Objects.requireNonNullElseGet(front.date(), LocalDate::now);
+      String location = Objects.requireNonNullElse(front.location(), "Online");
+      String description = parsed.excerpt();
+      String EventType = Objects.requireNonNullElse(front.type(), "meetup");
 
       boolean isUpcoming = date.isAfter(LocalDate.now().minusDays(1));
 
@@ -156,321 +113,2516 @@ class Utils {
     }
 
     public static DataSet.Member parseMemberFromMarkdown(String md, String githubUsername) {
-      String[] lines = md.split("\r?\n");
-      var metadata = Utils.Processor.readMetadata(md);
-      String name = metadata.getOrDefault("name", githubUsername);
-      Map<String, String> socialLinks = new HashMap<>();
-      StringBuilder content = new StringBuilder();
+      return parseMemberFromMarkdown(ParseCache.Parsed.of(md), githubUsername);
+    }
 
-      for (String line : lines) {
-        if (!line.trim().isEmpty() && !line.trim().startsWith("@")) {
-          content.append(line).append("\n");
+    static DataSet.Member parseMemberFromMarkdown(ParseCache.Parsed parsed, String githubUsername) {
+      FrontMatter front = parsed.front();
+      String name = Objects.requireNonNullElse(front.name(), githubUsername);
+      // Um avatar guardado em assets/images/members tem prioridade sobre o avatar-url e o do GitHub
+      Assets.Image avatar = Assets.avatar(githubUsername);
+      String avatarUrl = avatar != null
+          ? avatar.url()
+          : Objects.requireNonNullElse(front.avatarUrl(), "https://github.com/" + githubUsername + ".png");
+
+      return new DataSet.Member(name, githubUsername, avatarUrl, parsed.html(), front.socials());
+    }
+
+    public static String escapeHtml(String s) {
+      // Uma única passagem; sem caracteres especiais devolve a própria String
+      for (int i = 0; i < s.length(); i++) {
+        switch (s.charAt(i)) {
+          case '&', '<', '>', '"', '\'' -> {
+            StringBuilder sb = new StringBuilder(s.length() + 16);
+            Utils.MarkdownParser.escape(s, 0, s.length(), sb);
+            return sb.toString();
+          }
+          default -> {
+          }
         }
       }
+      return s;
+    }
+  }
 
-      var socials = metadata.getOrDefault("socials", "").split(",");
+  /**
+   * Metadados do topo de um ficheiro de conteúdo. Posts e membros usam linhas "@chave valor",
+   * eventos usam comentários "<!-- chave: valor -->"; o scanner aceita os dois formatos (e linhas
+   * em branco entre eles) e pára na primeira linha do corpo, sem ler o resto do documento.
+   * Campos ausentes ficam a null; bodyStart é o índice onde o corpo começa no texto analisado.
+   */
+  record FrontMatter(String title, String description, LocalDate date, String location, String type,
+      String name, String avatarUrl, List<String> tags, Map<String, String> socials, int bodyStart) {
+
+    static FrontMatter parse(CharSequence text) {
+      Map<String, String> fields = new HashMap<>();
+      int pos = 0;
+      int n = text.length();
+      while (pos < n) {
+        int end = pos;
+        while (end < n && text.charAt(end) != '\n') {
+          end++;
+        }
+        int lineEnd = end > pos && text.charAt(end - 1) == '\r' ? end - 1 : end;
+        if (!field(text.subSequence(pos, lineEnd).toString(), fields)) {
+          break;
+        }
+        pos = end < n ? end + 1 : end;
+      }
+      return of(fields, pos);
+    }
 
-      Arrays.stream(socials).forEach(line -> {
-        String[] parts = line.split(":", 2);
+    // Guarda uma linha de metadados; false quando a linha já pertence ao corpo
+    private static boolean field(String line, Map<String, String> fields) {
+      if (line.isBlank()) {
+        return true;
+      }
+      if (line.startsWith("@")) {
+        String[] parts = line.substring(1).split(" ", 2);
+        fields.putIfAbsent(parts[0].replace("@", "").trim().toLowerCase(Locale.ROOT),
+            parts.length > 1 ? parts[1].trim() : "");
+        return true;
+      }
+      String trimmed = line.trim();
+      if (trimmed.startsWith("<!--") && trimmed.endsWith("-->")) {
+        String[] parts = trimmed.substring(4, trimmed.length() - 3).split(":", 2);
         if (parts.length == 2) {
-          socialLinks.put(parts[0].trim(), parts[1].trim());
+          fields.putIfAbsent(parts[0].trim().toLowerCase(Locale.ROOT), parts[1].trim());
         }
-      });
+        return true;
+      }
+      return false;
+    }
 
-      String avatarUrl = metadata.getOrDefault("avatar-url", "https://github.com/" + githubUsername + ".png");
+    private static FrontMatter of(Map<String, String> fields, int bodyStart) {
+      return new FrontMatter(fields.get("title"), fields.get("description"), date(fields.get("date")),
+          fields.get("location"), fields.get("type"), fields.get("name"), fields.get("avatar-url"),
+          PostIndex.parseTags(fields.getOrDefault("tags", "")), socials(fields.getOrDefault("socials", "")),
+          bodyStart);
+    }
 
-      return new DataSet.Member(name, githubUsername, avatarUrl,
-          Utils.MarkdownProcessor.markdownToHtml(content.toString()), socialLinks);
+    private static LocalDate date(String value) {
+      if (value == null) {
+        return null;
+      }
+      try {
+        return LocalDate.parse(value);
+      } catch (DateTimeParseException e) {
+        return null;
+      }
     }
 
-    public static String escapeHtml(String s) {
-      return s.replace("&", "&amp;")
-          .replace("<", "&lt;")
-          .replace(">", "&gt;")
-          .replace("\"", "&quot;")
-          .replace("'", "&#39;");
+    // "github: https://github.com/x, linkedin: https://..." -> rede -> URL
+    private static Map<String, String> socials(String value) {
+      Map<String, String> links = new HashMap<>();
+      for (String entry : value.split(",")) {
+        String[] parts = entry.split(":", 2);
+        if (parts.length == 2) {
+          links.put(parts[0].trim(), parts[1].trim());
+        }
+      }
+      return links;
     }
   }
 
-  static class TemplateEngine {
+  /**
+   * Parser de Markdown de passagem única, ao estilo CommonMark. Percorre o texto por índices,
+   * sem partir o documento em linhas, e escreve o HTML diretamente no buffer de saída.
+   *
+   * Blocos: títulos ATX e setext, parágrafos, citações, listas (ordenadas, não ordenadas e
+   * aninhadas), código indentado e delimitado, linhas horizontais, tabelas GFM, blocos HTML e
+   * definições de links. Inline: escapes, código, ênfase, riscado, links, imagens, autolinks,
+   * entidades e quebras de linha. HTML inline é escapado de propósito: num tutorial de Java um
+   * {@code List<String>} no texto é bem mais comum do que uma tag.
+   */
+  static final class MarkdownParser {
+    // Parênteses por fechar num destino de link; o CommonMark admite pelo menos 32
+    private static final int MAX_LINK_PARENS = 32;
+    private static final int MAX_LABEL = 999;
+    // Citações, listas e links dentro de links; mais fundo do que isto o texto fica como está
+    private static final int MAX_NESTING = 32;
+    private static final Set<String> HTML_BLOCK_TAGS = Set.of(
+        "address", "article", "aside", "blockquote", "details", "dialog", "div", "dl", "fieldset",
+        "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr",
+        "iframe", "li", "main", "nav", "ol", "p", "pre", "script", "section", "style", "summary",
+        "table", "tbody", "td", "tfoot", "th", "thead", "tr", "ul", "video");
 
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("MMMM",
-        new Locale.Builder().setLanguage("pt").build());
-    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd");
+    private final CharSequence src;
+    private final StringBuilder out;
+    private final Map<String, String[]> references;
+    private final int depth;
+    private boolean tight;
+    private int links;
+    // Procuras de destinos e títulos de links que falharam, para não voltar a ler o mesmo texto
+    private final LinkScans scans = new LinkScans();
 
-    public static String renderIndex(List<DataSet.Post> posts, List<DataSet.Event> events, List<DataSet.Member> members)
-        throws Exception {
-      String template = Files.readString(Paths.get("templates/base.html"));
-      String content = Files.readString(Paths.get("templates/index.html"));
+    private MarkdownParser(CharSequence src, StringBuilder out, Map<String, String[]> references, int depth) {
+      this.src = src;
+      this.out = out;
+      this.references = references;
+      this.depth = depth;
+    }
 
-      // Prepara posts recentes
-      List<DataSet.Post> recentPosts = posts.stream().limit(3).collect(Collectors.toList());
-      StringBuilder postsHtml = new StringBuilder();
-      for (DataSet.Post post : recentPosts) {
-        postsHtml.append("<div class='post-preview'>")
-            .append("<h3><a href='posts/").append(post.year()).append("/")
-            .append(String.format("%02d", post.month())).append("/")
-            .append(post.slug()).append(".html'>").append(post.title()).append("</a></h3>")
-            .append("<p class='post-meta'>").append(String.format("%02d", post.month()))
-            .append("/").append(post.year()).append("</p>")
-            .append("<p>").append(post.description()).append("</p>")
-            .append("</div>");
-      }
+    static void render(CharSequence md, int from, StringBuilder out) {
+      new MarkdownParser(md, out, collectReferences(md, from), 0).parseBlocks(from, md.length(), false);
+    }
 
-      // Prepara Dataset.Eventos próximos
-      List<DataSet.Event> upcomingEvents = events.stream()
-          .filter(e -> e.isUpcoming())
-          .limit(2)
-          .collect(Collectors.toList());
+    // ---------------------------------------------------------------- blocos
 
-      StringBuilder eventsHtml = new StringBuilder();
-      for (var event : upcomingEvents) {
-        eventsHtml.append("<div class='event'>")
-            .append("<div class='event-date'>")
-            .append("<span class='event-day'>").append(event.date().format(DAY_FORMATTER)).append("</span>")
-            .append("<span class='event-month'>").append(event.date().format(MONTH_FORMATTER)).append("</span>")
-            .append("</div>")
-            .append("<div class='event-details'>")
-            .append("<h3><a href='events/").append(event.slug()).append(".html'>").append(event.title())
-            .append("</a></h3>")
-            .append("<p class='event-location'>").append(event.location()).append("</p>")
-            .append("<p>").append(event.description()).append("</p>")
-            .append("<a href='events/").append(event.slug()).append(".html' class='event-link'>Mais informações</a>")
-            .append("</div>")
-            .append("</div>");
+    private void parseBlocks(int from, int to, boolean tightList) {
+      boolean outerTight = tight;
+      tight = tightList;
+      int pos = from;
+      while (pos < to) {
+        int le = lineEnd(pos, to);
+        int ce = trimCr(pos, le);
+        int fs = firstNonSpace(pos, ce);
+        if (fs == ce) {
+          pos = nextLine(le, to);
+          continue;
+        }
+        int indent = columns(pos, fs);
+        if (indent >= 4) {
+          pos = indentedCode(pos, to);
+          continue;
+        }
+        int next = blockStart(pos, fs, ce, le, to);
+        pos = next >= 0 ? next : paragraph(pos, fs, ce, le, to);
       }
+      tight = outerTight;
+    }
 
-      // Prepara membros
-      StringBuilder membersHtml = new StringBuilder();
-      for (DataSet.Member member : members) {
-        membersHtml.append("<div class='member-card'>")
-            .append("<a href='members/").append(member.githubUsername()).append(".html'>")
-            .append("<img src='https://github.com/" + member.githubUsername() + ".png' alt='" + member.name() + "'>")
-            .append("<h3>").append(member.name()).append("</h3>")
-            .append("</a>")
-            .append("</div>");
+    // Tenta abrir um bloco que não seja parágrafo; devolve -1 se a linha não começa nenhum
+    private int blockStart(int pos, int fs, int ce, int le, int to) {
+      char c = src.charAt(fs);
+      int next;
+      switch (c) {
+        case '#' -> {
+          if ((next = atxHeading(fs, ce, le, to)) >= 0) {
+            return next;
+          }
+        }
+        case '`', '~' -> {
+          if ((next = fencedCode(pos, fs, ce, le, to)) >= 0) {
+            return next;
+          }
+        }
+        case '>' -> {
+          if (depth < MAX_NESTING) {
+            return blockquote(pos, to);
+          }
+        }
+        case '<' -> {
+          if ((next = htmlBlock(pos, fs, ce, le, to)) >= 0) {
+            return next;
+          }
+        }
+        case '[' -> {
+          if (!references.isEmpty() && isReferenceDefinition(fs, ce)) {
+            return nextLine(le, to);
+          }
+        }
+        default -> {
+        }
+      }
+      if ((c == '-' || c == '*' || c == '_') && isThematicBreak(fs, ce)) {
+        beginBlock();
+        out.append("<hr />\n");
+        return nextLine(le, to);
+      }
+      if (depth < MAX_NESTING && listMarkerEnd(fs, ce) >= 0) {
+        return list(pos, to);
       }
+      return -1;
+    }
 
-      // Substitui placeholders
-      content = content.replace("${recent_posts}", postsHtml.toString())
-          .replace("${upcoming_events}", eventsHtml.toString())
-          .replace("${members}", membersHtml.toString())
-          .replace("${event_totals}", events.size() + "")
-          .replace("${post_totals}", posts.size() + "")
-          .replace("${member_totals}", members.size() + "");
+    // Numa lista compacta os parágrafos não levam <p>, mas os outros blocos começam numa nova linha
+    private void beginBlock() {
+      if (tight && !out.isEmpty() && out.charAt(out.length() - 1) != '\n') {
+        out.append('\n');
+      }
+    }
 
-      return applyBaseTemplate(template, content, "Kambas do Java - Comunidade Java de Luanda",
-          "Comunidade de desenvolvedores Java de Luanda, Angola. Dataset.Eventos, tutoriais e notícias sobre Java e tecnologia.",
-          true);
+    private int atxHeading(int fs, int ce, int le, int to) {
+      int level = 0;
+      while (fs + level < ce && src.charAt(fs + level) == '#') {
+        level++;
+      }
+      int p = fs + level;
+      if (level > 6 || (p < ce && !isSpace(src.charAt(p)))) {
+        return -1;
+      }
+      int start = skipSpaces(p, ce);
+      int end = trimTrailingSpaces(start, ce);
+      // Remove a sequência de fecho opcional: "## Título ##"
+      int closing = end;
+      while (closing > start && src.charAt(closing - 1) == '#') {
+        closing--;
+      }
+      if (closing == start || isSpace(src.charAt(closing - 1))) {
+        end = trimTrailingSpaces(start, closing);
+      }
+      beginBlock();
+      out.append("<h").append(level).append('>');
+      inline(start, end, out);
+      out.append("</h").append(level).append(">\n");
+      return nextLine(le, to);
     }
 
-    static String renderPost(DataSet.Post post) throws Exception {
-      String template = Files.readString(Paths.get("templates/base.html"));
-      String content = Files.readString(Paths.get("templates/post.html"));
+    private int fencedCode(int pos, int fs, int ce, int le, int to) {
+      char fence = src.charAt(fs);
+      int length = 0;
+      while (fs + length < ce && src.charAt(fs + length) == fence) {
+        length++;
+      }
+      if (length < 3) {
+        return -1;
+      }
+      int infoStart = skipSpaces(fs + length, ce);
+      int infoEnd = trimTrailingSpaces(infoStart, ce);
+      for (int i = infoStart; fence == '`' && i < infoEnd; i++) {
+        if (src.charAt(i) == '`') {
+          return -1;
+        }
+      }
+      int langEnd = infoStart;
+      while (langEnd < infoEnd && !isSpace(src.charAt(langEnd))) {
+        langEnd++;
+      }
+      int fenceIndent = columns(pos, fs);
 
-      // Formata a data do post
-      String postDate = String.format("%02d/%d", post.month(), post.year());
+      beginBlock();
+      out.append("<pre><code");
+      if (langEnd > infoStart) {
+        out.append(" class=\"language-");
+        escape(src, infoStart, langEnd, out);
+        out.append('"');
+      }
+      out.append('>');
 
-      // Substitui placeholders
-      content = content.replace("${post_title}", post.title())
-        .replace("${post_content}", post.content())
-        .replace("${post_date}", postDate);
+      // Nas linguagens do Highlighter o código é juntado primeiro e realçado de uma vez
+      String language = src.subSequence(infoStart, langEnd).toString().toLowerCase(Locale.ROOT);
+      StringBuilder code = Highlighter.supports(language) ? new StringBuilder() : null;
 
-      // Calcula o caminho relativo para assets
-      String basePath = "../../../";
+      // O bloco termina na cerca de fecho ou, se não houver, no fim do documento
+      int p = nextLine(le, to);
+      while (p < to) {
+        int lineEnd = lineEnd(p, to);
+        int contentEnd = trimCr(p, lineEnd);
+        int first = firstNonSpace(p, contentEnd);
+        if (columns(p, first) < 4 && isClosingFence(first, contentEnd, fence, length)) {
+          p = nextLine(lineEnd, to);
+          break;
+        }
+        int start = p;
+        for (int skipped = 0; skipped < fenceIndent && start < contentEnd && src.charAt(start) == ' '; skipped++) {
+          start++;
+        }
+        if (code != null) {
+          code.append(src, start, contentEnd).append('\n');
+        } else {
+          escape(src, start, contentEnd, out);
+          out.append('\n');
+        }
+        p = nextLine(lineEnd, to);
+      }
+      if (code != null) {
+        Highlighter.highlight(language, code.toString(), out);
+      }
+      out.append("</code></pre>\n");
+      return p;
+    }
 
-      // Aplica o template base
-      return applyBaseTemplate(template, content, post.title() + " - Kambas do Java",
-          post.description(), false, basePath);
+    private boolean isClosingFence(int fs, int ce, char fence, int length) {
+      int count = 0;
+      while (fs + count < ce && src.charAt(fs + count) == fence) {
+        count++;
+      }
+      return count >= length && skipSpaces(fs + count, ce) == ce;
     }
 
-    public static String renderAllPosts(List<DataSet.Post> posts) throws Exception {
-      String template = Files.readString(Paths.get("templates/base.html"));
-      String content = Files.readString(Paths.get("templates/all-posts.html"));
+    private int indentedCode(int pos, int to) {
+      beginBlock();
+      out.append("<pre><code>");
+      int p = pos;
+      int pendingBlank = 0;
+      while (p < to) {
+        int le = lineEnd(p, to);
+        int ce = trimCr(p, le);
+        int fs = firstNonSpace(p, ce);
+        if (fs == ce) {
+          pendingBlank++;
+        } else if (columns(p, fs) >= 4) {
+          for (; pendingBlank > 0; pendingBlank--) {
+            out.append('\n');
+          }
+          stripColumns(p, ce, 4, out, true);
+          out.append('\n');
+        } else {
+          break;
+        }
+        p = nextLine(le, to);
+      }
+      out.append("</code></pre>\n");
+      return p;
+    }
 
-      // Agrupa posts por ano e mês
-      Map<Integer, Map<Integer, List<DataSet.Post>>> postsByYearMonth = posts.stream()
-          .collect(Collectors.groupingBy(p -> p.year(),
-              TreeMap::new,
-              Collectors.groupingBy(p -> p.month(), TreeMap::new, Collectors.toList())));
+    private int blockquote(int pos, int to) {
+      StringBuilder inner = new StringBuilder();
+      int p = pos;
+      boolean lazyAllowed = false;
+      while (p < to) {
+        int le = lineEnd(p, to);
+        int ce = trimCr(p, le);
+        int fs = firstNonSpace(p, ce);
+        if (fs < ce && src.charAt(fs) == '>' && columns(p, fs) < 4) {
+          int start = fs + 1;
+          if (start < ce && src.charAt(start) == ' ') {
+            start++;
+          }
+          inner.append(src, start, ce).append('\n');
+          lazyAllowed = skipSpaces(start, ce) < ce;
+        } else if (fs < ce && lazyAllowed && !interruptsParagraph(p, fs, ce)) {
+          inner.append(src, fs, ce).append('\n');
+        } else {
+          break;
+        }
+        p = nextLine(le, to);
+      }
+      beginBlock();
+      out.append("<blockquote>\n");
+      new MarkdownParser(inner, out, references, depth + 1).parseBlocks(0, inner.length(), false);
+      out.append("</blockquote>\n");
+      return p;
+    }
 
-      StringBuilder postsHtml = new StringBuilder();
+    private int htmlBlock(int pos, int fs, int ce, int le, int to) {
+      boolean comment = startsWith(fs, ce, "<!--");
+      if (!comment) {
+        int nameStart = fs + 1 < ce && src.charAt(fs + 1) == '/' ? fs + 2 : fs + 1;
+        int nameEnd = nameStart;
+        while (nameEnd < ce && Character.isLetterOrDigit(src.charAt(nameEnd))) {
+          nameEnd++;
+        }
+        if (nameEnd == nameStart
+            || !HTML_BLOCK_TAGS.contains(src.subSequence(nameStart, nameEnd).toString().toLowerCase(Locale.ROOT))) {
+          return -1;
+        }
+        if (nameEnd < ce && !isSpace(src.charAt(nameEnd)) && src.charAt(nameEnd) != '>'
+            && !startsWith(nameEnd, ce, "/>")) {
+          return -1;
+        }
+      }
 
-      for (Integer year : postsByYearMonth.keySet().stream().sorted(Comparator.reverseOrder())
-          .collect(Collectors.toList())) {
-        postsHtml.append("<div class='year-section'>")
-            .append("<h2>").append(year).append("</h2>");
+      // Comentários vão até ao "-->"; as outras tags até à próxima linha em branco
+      beginBlock();
+      int p = pos;
+      while (p < to) {
+        int lineEnd = lineEnd(p, to);
+        int contentEnd = trimCr(p, lineEnd);
+        if (!comment && firstNonSpace(p, contentEnd) == contentEnd) {
+          break;
+        }
+        out.append(src, p, contentEnd).append('\n');
+        boolean closed = comment && indexOf("-->", p == pos ? fs + 4 : p, contentEnd) >= 0;
+        p = nextLine(lineEnd, to);
+        if (closed) {
+          break;
+        }
+      }
+      return p;
+    }
 
-        Map<Integer, List<DataSet.Post>> postsByMonth = postsByYearMonth.get(year);
-        for (Integer month : postsByMonth.keySet().stream().sorted(Comparator.reverseOrder())
-            .collect(Collectors.toList())) {
-          postsHtml.append("<div class='month-section'>")
-              .append("<h3>").append(getMonthName(month)).append("</h3>")
-              .append("<div class='posts-list'>");
+    private int list(int pos, int to) {
+      int le = lineEnd(pos, to);
+      int ce = trimCr(pos, le);
+      int fs = firstNonSpace(pos, ce);
+      int markerEnd = listMarkerEnd(fs, ce);
+      char type = src.charAt(markerEnd - 1);
+      boolean ordered = type == '.' || type == ')';
+      int startNumber = ordered ? Integer.parseInt(src.subSequence(fs, markerEnd - 1).toString()) : 1;
 
-          for (DataSet.Post post : postsByMonth.get(month)) {
-            postsHtml.append("<div class='post-item' data-categories='java tutorial'>")
-                .append("<div class='post-date'>")
-                .append("<span class='post-day'>").append(String.format("%02d", post.month())).append("</span>")
-                .append("<span class='post-month'>").append(getMonthAbbr(month)).append("</span>")
-                .append("</div>")
-                .append("<div class='post-content'>")
-                .append("<h4><a href='posts/").append(year).append("/")
-                .append(String.format("%02d", month)).append("/")
-                .append(post.slug()).append(".html'>").append(post.title()).append("</a></h4>")
-                .append("<p class='post-excerpt'>").append(post.description()).append("</p>")
-                .append("<div class='post-meta'>")
-                .append("<span class='post-category'>Java</span>")
-                .append("<span>").append(post.description().length() > 100 ? "5 min read" : "2 min read")
-                .append("</span>")
-                .append("</div>")
-                .append("</div>")
-                .append("</div>");
+      List<StringBuilder> items = new ArrayList<>();
+      boolean loose = false;
+      int p = pos;
+      int contentIndent = 0;
+      boolean prevBlank = false;
+      StringBuilder item = null;
+      while (p < to) {
+        le = lineEnd(p, to);
+        ce = trimCr(p, le);
+        fs = firstNonSpace(p, ce);
+        int indent = columns(p, fs);
+        if (fs == ce) {
+          if (item != null) {
+            item.append('\n');
           }
-
-          postsHtml.append("</div></div>");
+          prevBlank = true;
+          p = nextLine(le, to);
+          continue;
         }
-
-        postsHtml.append("</div>");
+        if (item != null && indent >= contentIndent) {
+          if (prevBlank && hasContent(item)) {
+            loose = true;
+          }
+          stripColumns(p, ce, contentIndent, item, false);
+          item.append('\n');
+        } else {
+          int end = indent < 4 ? listMarkerEnd(fs, ce) : -1;
+          if (end >= 0 && src.charAt(end - 1) == type && !isThematicBreak(fs, ce)) {
+            // Novo item da mesma lista
+            if (item != null && prevBlank) {
+              loose = true;
+            }
+            item = new StringBuilder();
+            items.add(item);
+            int contentStart = skipSpaces(end, ce);
+            int spaces = columns(p, contentStart) - columns(p, end);
+            if (contentStart == ce || spaces > 4) {
+              contentStart = Math.min(end + 1, ce);
+              contentIndent = columns(p, end) + 1;
+            } else {
+              contentIndent = columns(p, contentStart);
+            }
+            item.append(src, contentStart, ce).append('\n');
+          } else if (item != null && !prevBlank && !interruptsParagraph(p, fs, ce)) {
+            // Continuação preguiçosa do parágrafo
+            item.append(src, fs, ce).append('\n');
+          } else {
+            break;
+          }
+        }
+        prevBlank = false;
+        p = nextLine(le, to);
       }
 
-      // Substitui placeholders
-      // Substitui placeholders
-      content = content.replace("${all_posts}", postsHtml.toString())
-          .replace("${total_posts}", String.valueOf(posts.size()))
-          .replace("${total_years}", String.valueOf(postsByYearMonth.keySet().size()))
-          .replace("${total_categories}", "8");
-
-      // Aplica o template base
-      return applyBaseTemplate(template, content, "Todos os Posts - Kambas do Java",
-          "Lista completa de artigos e tutoriais da comunidade Kambas do Java", true);
+      beginBlock();
+      if (ordered) {
+        out.append(startNumber == 1 ? "<ol>\n" : "<ol start=\"" + startNumber + "\">\n");
+      } else {
+        out.append("<ul>\n");
+      }
+      for (StringBuilder content : items) {
+        out.append(loose ? "<li>\n" : "<li>");
+        new MarkdownParser(content, out, references, depth + 1).parseBlocks(0, content.length(), !loose);
+        out.append("</li>\n");
+      }
+      out.append(ordered ? "</ol>\n" : "</ul>\n");
+      return p;
     }
 
-    private static String getMonthName(int month) {
-      String[] months = { "Janeiro", "Fevereiro", "Março", "Abril", "Maio", "Junho",
-          "Julho", "Agosto", "Setembro", "Outubro", "Novembro", "Dezembro" };
-      if (month >= 1 && month <= 12) {
-        return months[month - 1];
+    private static boolean hasContent(CharSequence item) {
+      for (int i = 0; i < item.length(); i++) {
+        if (!Character.isWhitespace(item.charAt(i))) {
+          return true;
+        }
       }
-      return "Mês inválido";
+      return false;
     }
 
-    private static String getMonthAbbr(int month) {
-      String[] months = { "JAN", "FEV", "MAR", "ABR", "MAI", "JUN",
-          "JUL", "AGO", "SET", "OUT", "NOV", "DEZ" };
-      return months[month - 1];
+    // Devolve o índice a seguir ao marcador ("-", "*", "+", "1." ou "1)") ou -1
+    private int listMarkerEnd(int fs, int ce) {
+      char c = src.charAt(fs);
+      int end;
+      if (c == '-' || c == '*' || c == '+') {
+        end = fs + 1;
+      } else {
+        end = fs;
+        while (end < ce && end - fs < 9 && isDigit(src.charAt(end))) {
+          end++;
+        }
+        if (end == fs || end >= ce || (src.charAt(end) != '.' && src.charAt(end) != ')')) {
+          return -1;
+        }
+        end++;
+      }
+      return end == ce || isSpace(src.charAt(end)) ? end : -1;
     }
 
-    static String renderEvent(DataSet.Event event) throws Exception {
-      String template = Files.readString(Paths.get("templates/base.html"));
-      String content = Files.readString(Paths.get("templates/event.html"));
+    private int paragraph(int pos, int fs, int ce, int le, int to) {
+      int start = fs;
+      int end = ce;
+      int p = nextLine(le, to);
+
+      if (p < to && indexOf("|", fs, ce) >= 0) {
+        int next = table(fs, ce, p, to);
+        if (next >= 0) {
+          return next;
+        }
+      }
 
-      // Substitui placeholders
-      content = content.replace("${event_title}", event.title())
-          .replace("${event_content}", event.content())
-          .replace("${event_date}", event.date.format(DATE_FORMATTER))
-          .replace("${event_location}", event.location())
-          .replace("${event_type}", event.eventType());
+      while (p < to) {
+        int lineEnd = lineEnd(p, to);
+        int contentEnd = trimCr(p, lineEnd);
+        int first = firstNonSpace(p, contentEnd);
+        if (first == contentEnd) {
+          break;
+        }
+        if (columns(p, first) < 4) {
+          int level = setextLevel(first, contentEnd);
+          if (level > 0) {
+            beginBlock();
+            out.append("<h").append(level).append('>');
+            inline(start, trimTrailingSpaces(start, end), out);
+            out.append("</h").append(level).append(">\n");
+            return nextLine(lineEnd, to);
+          }
+          if (interruptsParagraph(p, first, contentEnd)) {
+            break;
+          }
+        }
+        end = contentEnd;
+        p = nextLine(lineEnd, to);
+      }
 
-      String basePath = "../";
-      return applyBaseTemplate(template, content, event.title() + " - Kambas do Java",
-          event.description(), false, basePath);
+      end = trimTrailingSpaces(start, end);
+      if (tight) {
+        inline(start, end, out);
+      } else {
+        out.append("<p>");
+        inline(start, end, out);
+        out.append("</p>\n");
+      }
+      return p;
     }
 
-    public static String renderAllEvents(List<DataSet.Event> events) throws Exception {
-      String template = Files.readString(Paths.get("templates/base.html"));
-      String content = Files.readString(Paths.get("templates/all-events.html"));
+    private int setextLevel(int fs, int ce) {
+      char c = src.charAt(fs);
+      if (c != '=' && c != '-') {
+        return 0;
+      }
+      int i = fs;
+      while (i < ce && src.charAt(i) == c) {
+        i++;
+      }
+      return skipSpaces(i, ce) == ce ? (c == '=' ? 1 : 2) : 0;
+    }
 
-      // Separa Dataset.Eventos por status
-      List<DataSet.Event> upcomingEvents = events.stream()
-          .filter(e -> e.isUpcoming())
-          .collect(Collectors.toList());
+    private boolean interruptsParagraph(int pos, int fs, int ce) {
+      if (columns(pos, fs) >= 4) {
+        return false;
+      }
+      char c = src.charAt(fs);
+      return switch (c) {
+        case '#' -> {
+          int level = 0;
+          while (fs + level < ce && src.charAt(fs + level) == '#') {
+            level++;
+          }
+          yield level <= 6 && (fs + level == ce || isSpace(src.charAt(fs + level)));
+        }
+        case '>' -> true;
+        case '`', '~' -> startsWith(fs, ce, c == '`' ? "```" : "~~~");
+        case '<' -> startsWith(fs, ce, "<!--") || isHtmlBlockTag(fs, ce);
+        case '-', '*', '+' -> isThematicBreak(fs, ce)
+            || (fs + 1 < ce && isSpace(src.charAt(fs + 1)) && skipSpaces(fs + 1, ce) < ce);
+        case '_' -> isThematicBreak(fs, ce);
+        case '1' -> {
+          int end = listMarkerEnd(fs, ce);
+          yield end == fs + 2 && skipSpaces(end, ce) < ce;
+        }
+        default -> false;
+      };
+    }
 
-      List<DataSet.Event> pastEvents = events.stream()
-          .filter(e -> !e.isUpcoming())
-          .collect(Collectors.toList());
+    private boolean isHtmlBlockTag(int fs, int ce) {
+      int nameStart = fs + 1 < ce && src.charAt(fs + 1) == '/' ? fs + 2 : fs + 1;
+      int nameEnd = nameStart;
+      while (nameEnd < ce && Character.isLetterOrDigit(src.charAt(nameEnd))) {
+        nameEnd++;
+      }
+      return nameEnd > nameStart
+          && HTML_BLOCK_TAGS.contains(src.subSequence(nameStart, nameEnd).toString().toLowerCase(Locale.ROOT));
+    }
 
-      StringBuilder eventsHtml = new StringBuilder();
+    private boolean isThematicBreak(int fs, int ce) {
+      char c = src.charAt(fs);
+      int count = 0;
+      for (int i = fs; i < ce; i++) {
+        char ch = src.charAt(i);
+        if (ch == c) {
+          count++;
+        } else if (!isSpace(ch)) {
+          return false;
+        }
+      }
+      return count >= 3;
+    }
 
-      // Dataset.Eventos próximos
-      if (!upcomingEvents.isEmpty()) {
-        eventsHtml.append("<div class='events-section'>")
-            .append("<h2>Próximos Dataset.Eventos</h2>")
-            .append("<div class='events-list'>");
+    // ---------------------------------------------------------------- tabelas
 
-        for (DataSet.Event event : upcomingEvents) {
-          eventsHtml.append(renderEventItem(event));
+    private int table(int headerStart, int headerEnd, int delimiterPos, int to) {
+      int le = lineEnd(delimiterPos, to);
+      int ce = trimCr(delimiterPos, le);
+      int[] header = cells(headerStart, headerEnd);
+      int[] delimiter = cells(firstNonSpace(delimiterPos, ce), ce);
+      int columns = header.length / 2;
+      if (columns == 0 || delimiter.length / 2 != columns) {
+        return -1;
+      }
+      String[] align = new String[columns];
+      for (int c = 0; c < columns; c++) {
+        int s = delimiter[2 * c];
+        int e = delimiter[2 * c + 1];
+        if (s == e) {
+          return -1;
         }
-
-        eventsHtml.append("</div></div>");
+        boolean left = src.charAt(s) == ':';
+        boolean right = src.charAt(e - 1) == ':';
+        for (int i = left ? s + 1 : s; i < (right ? e - 1 : e); i++) {
+          if (src.charAt(i) != '-') {
+            return -1;
+          }
+        }
+        align[c] = left && right ? "center" : right ? "right" : left ? "left" : null;
       }
 
-      // Dataset.Eventos passados
-      if (!pastEvents.isEmpty()) {
-        eventsHtml.append("<div class='events-section'>")
-            .append("<h2>Eventos Passados</h2>")
-            .append("<div class='events-list'>");
+      beginBlock();
+      out.append("<table>\n<thead>\n");
+      tableRow(header, align, "th");
+      out.append("</thead>\n");
+      int p = nextLine(le, to);
+      boolean body = false;
+      while (p < to) {
+        int lineEnd = lineEnd(p, to);
+        int contentEnd = trimCr(p, lineEnd);
+        int first = firstNonSpace(p, contentEnd);
+        if (first == contentEnd || interruptsParagraph(p, first, contentEnd)) {
+          break;
+        }
+        if (!body) {
+          out.append("<tbody>\n");
+          body = true;
+        }
+        tableRow(cells(first, contentEnd), align, "td");
+        p = nextLine(lineEnd, to);
+      }
+      if (body) {
+        out.append("</tbody>\n");
+      }
+      out.append("</table>\n");
+      return p;
+    }
 
-        for (DataSet.Event event : pastEvents) {
-          eventsHtml.append(renderEventItem(event));
+    private void tableRow(int[] cells, String[] align, String tag) {
+      out.append("<tr>\n");
+      for (int c = 0; c < align.length; c++) {
+        out.append('<').append(tag);
+        if (align[c] != null) {
+          out.append(" style=\"text-align: ").append(align[c]).append('"');
+        }
+        out.append('>');
+        if (2 * c < cells.length) {
+          inline(cells[2 * c], cells[2 * c + 1], out);
         }
+        out.append("</").append(tag).append(">\n");
+      }
+      out.append("</tr>\n");
+    }
 
-        eventsHtml.append("</div></div>");
+    // Limites [início, fim) de cada célula, já sem espaços; "\|" não separa células
+    private int[] cells(int start, int end) {
+      end = trimTrailingSpaces(start, end);
+      if (start < end && src.charAt(start) == '|') {
+        start++;
+      }
+      if (end > start && src.charAt(end - 1) == '|' && (end - 2 < start || src.charAt(end - 2) != '\\')) {
+        end--;
+      }
+      int[] bounds = new int[8];
+      int count = 0;
+      int cellStart = start;
+      for (int i = start; i <= end; i++) {
+        if (i == end || (src.charAt(i) == '|' && src.charAt(i - 1) != '\\')) {
+          if (count + 2 > bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+          }
+          int s = skipSpaces(cellStart, i);
+          bounds[count++] = s;
+          bounds[count++] = trimTrailingSpaces(s, i);
+          cellStart = i + 1;
+        }
       }
+      return Arrays.copyOf(bounds, count);
+    }
 
-      content = content.replace("${all_events}", eventsHtml.toString())
-          .replace("${total_events}", String.valueOf(events.size()))
-          .replace("${upcoming_count}", String.valueOf(upcomingEvents.size()))
-          .replace("${past_count}", String.valueOf(pastEvents.size()));
+    // ---------------------------------------------------------------- definições de links
 
-      return applyBaseTemplate(template, content, "Todos os Dataset.Eventos - Kambas do Java",
-          "Calendário completo de Dataset.Eventos, meetups e workshops da comunidade Kambas do Java", true);
+    private static Map<String, String[]> collectReferences(CharSequence md, int from) {
+      Map<String, String[]> references = new HashMap<>();
+      MarkdownParser scanner = new MarkdownParser(md, null, references, 0);
+      boolean inFence = false;
+      int to = md.length();
+      for (int pos = from; pos < to; ) {
+        int le = scanner.lineEnd(pos, to);
+        int ce = scanner.trimCr(pos, le);
+        int fs = scanner.firstNonSpace(pos, ce);
+        if (scanner.startsWith(fs, ce, "```") || scanner.startsWith(fs, ce, "~~~")) {
+          inFence = !inFence;
+        } else if (!inFence && fs < ce && md.charAt(fs) == '[' && scanner.columns(pos, fs) < 4) {
+          scanner.parseReferenceDefinition(fs, ce, references);
+        }
+        pos = nextLine(le, to);
+      }
+      return references;
     }
 
-    static String renderMember(DataSet.Member member) throws Exception {
-      String template = Files.readString(Paths.get("templates/base.html"));
-      String content = Files.readString(Paths.get("templates/member.html"));
-
-      content = content.replace("${member_name}", member.name())
-          .replace("${member_avatar_url}", member.avatarUrl())
-          .replace("${member_content}", member.content());
+    private boolean isReferenceDefinition(int fs, int ce) {
+      return parseReferenceDefinition(fs, ce, null);
+    }
 
-      StringBuilder socialLinksHtml = new StringBuilder();
-      for (Map.Entry<String, String> entry : member.socialLinks().entrySet()) {
-        socialLinksHtml.append("<a href='" + entry.getValue() + "' target='_blank'>" + entry.getKey() + "</a>");
+    // [rótulo]: destino "título opcional"
+    private boolean parseReferenceDefinition(int fs, int ce, Map<String, String[]> into) {
+      int close = indexOf("]:", fs + 1, ce);
+      if (close < 0 || close == fs + 1) {
+        return false;
       }
-      content = content.replace("", socialLinksHtml.toString());
-
-      String basePath = "../";
-      return applyBaseTemplate(template, content, member.name() + " - Kambas do Java",
-          member.githubUsername(), false, basePath);
+      String[] target = new String[2];
+      int p = skipSpaces(close + 2, ce);
+      int end = linkDestination(p, ce, target);
+      if (end < 0 || end == p) {
+        return false;
+      }
+      p = skipSpaces(end, ce);
+      if (p < ce) {
+        p = linkTitle(p, ce, target);
+        if (p < 0 || skipSpaces(p, ce) != ce) {
+          return false;
+        }
+      }
+      if (into != null) {
+        into.putIfAbsent(normalizeLabel(fs + 1, close), target);
+      }
+      return true;
     }
 
-    public static String renderAllMembers(List<DataSet.Member> members) throws Exception {
-      String template = Files.readString(Paths.get("templates/base.html"));
-      String content = Files.readString(Paths.get("templates/all-members.html"));
-
-      StringBuilder membersHtml = new StringBuilder();
-      for (DataSet.Member member : members) {
-        membersHtml.append("<div class='member-card'>")
-            .append("<a href='members/").append(member.githubUsername).append(".html'>")
-            .append("<img src='").append(member.avatarUrl).append("' alt='").append(member.name).append("'>")
-            .append("<h3>").append(member.name).append("</h3>")
-            .append("</a>")
-            .append("</div>");
+    private String normalizeLabel(int start, int end) {
+      StringBuilder label = new StringBuilder(end - start);
+      boolean space = false;
+      for (int i = skipSpaces(start, end); i < trimTrailingSpaces(start, end); i++) {
+        char c = src.charAt(i);
+        if (Character.isWhitespace(c)) {
+          space = true;
+        } else {
+          if (space) {
+            label.append(' ');
+            space = false;
+          }
+          label.append(Character.toLowerCase(c));
+        }
       }
+      return label.toString();
+    }
 
-      content = content.replace("${all_members}", membersHtml.toString());
+    // ---------------------------------------------------------------- inline
 
-      return applyBaseTemplate(template, content, "Membros - Kambas do Java",
-          "Conheça os membros da comunidade Kambas do Java", true);
+    // Delimitador de ênfase ("*", "_" ou "~"), ligado aos vizinhos para o algoritmo do CommonMark
+    private static final class Delimiter {
+      final char ch;
+      final int index;
+      final int length;
+      final boolean canOpen;
+      final boolean canClose;
+      int count;
+      String open = "";
+      String close = "";
+      Delimiter previous;
+      Delimiter next;
+
+      Delimiter(char ch, int index, int length, boolean canOpen, boolean canClose) {
+        this.ch = ch;
+        this.index = index;
+        this.length = length;
+        this.canOpen = canOpen;
+        this.canClose = canClose;
+        this.count = length;
+      }
     }
 
-    private static String renderEventItem(DataSet.Event event) {
-      return "<div class='event-item'>" +
-          "<div class='event-date'>" +
-          "<span class='event-day'>" + event.date().format(DAY_FORMATTER) + "</span>" +
+    // Os nós são intervalos de texto (int[]{início, fim}), HTML já pronto (String) ou delimitadores
+    private void inline(int start, int end, StringBuilder target) {
+      if (!hasInlineMarkup(start, end)) {
+        text(start, end, end, target);
+        return;
+      }
+
+      List<Object> nodes = new ArrayList<>();
+      Delimiter last = null;
+      int[] brackets = null;
+      boolean[] noCodeCloser = new boolean[16];
+      int textStart = start;
+      int i = start;
+      while (i < end) {
+        char c = src.charAt(i);
+        switch (c) {
+          case '\\' -> {
+            if (i + 1 < end && isAsciiPunctuation(src.charAt(i + 1))) {
+              addText(nodes, textStart, i);
+              nodes.add(new int[] { i + 1, i + 2 });
+              i += 2;
+              textStart = i;
+            } else if (i + 1 < end && src.charAt(i + 1) == '\n') {
+              addText(nodes, textStart, i);
+              nodes.add("<br />");
+              textStart = ++i;
+            } else {
+              i++;
+            }
+          }
+          case '`' -> {
+            int run = run(i, end, '`');
+            int closer = run < noCodeCloser.length && noCodeCloser[run] ? -1 : findBacktickRun(i + run, end, run);
+            if (closer < 0) {
+              if (run < noCodeCloser.length) {
+                noCodeCloser[run] = true;
+              }
+              i += run;
+            } else {
+              addText(nodes, textStart, i);
+              nodes.add(codeSpan(i + run, closer));
+              i = closer + run;
+              textStart = i;
+            }
+          }
+          case '*', '_', '~' -> {
+            int run = run(i, end, c);
+            if (c == '~' && run > 2) {
+              i += run;
+              continue;
+            }
+            char before = i > start ? src.charAt(i - 1) : '\n';
+            char after = i + run < end ? src.charAt(i + run) : '\n';
+            boolean leftFlanking = !Character.isWhitespace(after)
+                && (!isPunctuation(after) || Character.isWhitespace(before) || isPunctuation(before));
+            boolean rightFlanking = !Character.isWhitespace(before)
+                && (!isPunctuation(before) || Character.isWhitespace(after) || isPunctuation(after));
+            boolean canOpen = c == '_' ? leftFlanking && (!rightFlanking || isPunctuation(before)) : leftFlanking;
+            boolean canClose = c == '_' ? rightFlanking && (!leftFlanking || isPunctuation(after)) : rightFlanking;
+            addText(nodes, textStart, i);
+            Delimiter delimiter = new Delimiter(c, nodes.size(), run, canOpen, canClose);
+            delimiter.previous = last;
+            if (last != null) {
+              last.next = delimiter;
+            }
+            last = delimiter;
+            nodes.add(delimiter);
+            i += run;
+            textStart = i;
+          }
+          case '!', '[' -> {
+            boolean image = c == '!';
+            int open = image ? i + 1 : i;
+            if (open >= end || src.charAt(open) != '[') {
+              i++;
+              continue;
+            }
+            if (!image && links >= MAX_NESTING) {
+              i = open + 1;
+              continue;
+            }
+            if (brackets == null) {
+              brackets = matchBrackets(start, end);
+            }
+            int close = brackets[open - start];
+            String[] link = close < 0 ? null : new String[2];
+            int after = close < 0 ? -1 : linkTarget(open + 1, close, end, link);
+            if (after < 0) {
+              i = open + 1;
+              continue;
+            }
+            addText(nodes, textStart, i);
+            StringBuilder html = new StringBuilder();
+            if (image) {
+              html.append("<img src=\"");
+              escapeUrl(link[0], html);
+              html.append("\" alt=\"");
+              plainText(open + 1, close, html);
+              html.append('"');
+              if (link[1] != null) {
+                html.append(" title=\"");
+                escape(link[1], 0, link[1].length(), html);
+                html.append('"');
+              }
+              html.append(" />");
+            } else {
+              html.append("<a href=\"");
+              escapeUrl(link[0], html);
+              html.append('"');
+              if (link[1] != null) {
+                html.append(" title=\"");
+                escape(link[1], 0, link[1].length(), html);
+                html.append('"');
+              }
+              html.append('>');
+              links++;
+              inline(open + 1, close, html);
+              links--;
+              html.append("</a>");
+            }
+            nodes.add(html.toString());
+            i = after;
+            textStart = i;
+          }
+          case '<' -> {
+            int close = autolink(i, end);
+            if (close < 0) {
+              i++;
+              continue;
+            }
+            addText(nodes, textStart, i);
+            String address = src.subSequence(i + 1, close).toString();
+            StringBuilder html = new StringBuilder("<a href=\"");
+            if (address.indexOf(':') < 0) {
+              html.append("mailto:");
+            }
+            escapeUrl(address, html);
+            html.append("\">");
+            escape(address, 0, address.length(), html);
+            html.append("</a>");
+            nodes.add(html.toString());
+            i = close + 1;
+            textStart = i;
+          }
+          case '&' -> {
+            int entityEnd = entity(i, end);
+            if (entityEnd < 0) {
+              i++;
+              continue;
+            }
+            addText(nodes, textStart, i);
+            nodes.add(src.subSequence(i, entityEnd).toString());
+            i = entityEnd;
+            textStart = i;
+          }
+          default -> i++;
+        }
+      }
+      addText(nodes, textStart, end);
+
+      processEmphasis(last);
+
+      for (Object node : nodes) {
+        if (node instanceof int[] range) {
+          text(range[0], range[1], end, target);
+        } else if (node instanceof String html) {
+          target.append(html);
+        } else if (node instanceof Delimiter delimiter) {
+          target.append(delimiter.close);
+          for (int k = 0; k < delimiter.count; k++) {
+            target.append(delimiter.ch);
+          }
+          target.append(delimiter.open);
+        }
+      }
+    }
+
+    private boolean hasInlineMarkup(int start, int end) {
+      for (int i = start; i < end; i++) {
+        switch (src.charAt(i)) {
+          case '\\', '`', '*', '_', '~', '[', '<', '&' -> {
+            return true;
+          }
+          default -> {
+          }
+        }
+      }
+      return false;
+    }
+
+    private static void addText(List<Object> nodes, int start, int end) {
+      if (end > start) {
+        nodes.add(new int[] { start, end });
+      }
+    }
+
+    // Algoritmo "process emphasis" do CommonMark sobre a lista ligada de delimitadores
+    private static void processEmphasis(Delimiter last) {
+      if (last == null) {
+        return;
+      }
+      Delimiter first = last;
+      while (first.previous != null) {
+        first = first.previous;
+      }
+      int[] openersBottom = new int[18];
+      Arrays.fill(openersBottom, -1);
+
+      Delimiter closer = first;
+      while (closer != null) {
+        if (!closer.canClose) {
+          closer = closer.next;
+          continue;
+        }
+        int key = (closer.ch == '*' ? 0 : closer.ch == '_' ? 6 : 12) + (closer.canOpen ? 3 : 0) + closer.length % 3;
+        Delimiter opener = closer.previous;
+        while (opener != null && opener.index > openersBottom[key]) {
+          if (opener.ch == closer.ch && opener.canOpen && isMatch(opener, closer)) {
+            break;
+          }
+          opener = opener.previous;
+        }
+        if (opener == null || opener.index <= openersBottom[key]) {
+          openersBottom[key] = closer.previous == null ? -1 : closer.previous.index;
+          Delimiter next = closer.next;
+          if (!closer.canOpen) {
+            unlink(closer);
+          }
+          closer = next;
+          continue;
+        }
+
+        int use = closer.ch == '~' ? closer.count : closer.count >= 2 && opener.count >= 2 ? 2 : 1;
+        String tag = closer.ch == '~' ? "del" : use == 2 ? "strong" : "em";
+        opener.count -= use;
+        closer.count -= use;
+        opener.open = "<" + tag + ">" + opener.open;
+        closer.close = closer.close + "</" + tag + ">";
+        // Delimitadores entre o par já não podem abrir nem fechar nada
+        opener.next = closer;
+        closer.previous = opener;
+        if (opener.count == 0) {
+          unlink(opener);
+        }
+        if (closer.count == 0) {
+          Delimiter next = closer.next;
+          unlink(closer);
+          closer = next;
+        }
+      }
+    }
+
+    private static boolean isMatch(Delimiter opener, Delimiter closer) {
+      if (closer.ch == '~') {
+        return opener.count == closer.count;
+      }
+      return !((opener.canClose || closer.canOpen) && (opener.length + closer.length) % 3 == 0
+          && !(opener.length % 3 == 0 && closer.length % 3 == 0));
+    }
+
+    private static void unlink(Delimiter delimiter) {
+      if (delimiter.previous != null) {
+        delimiter.previous.next = delimiter.next;
+      }
+      if (delimiter.next != null) {
+        delimiter.next.previous = delimiter.previous;
+      }
+    }
+
+    // Para cada "[" guarda o índice do "]" correspondente (ou -1), numa única passagem com pilha
+    private int[] matchBrackets(int start, int end) {
+      int[] match = new int[end - start];
+      Arrays.fill(match, -1);
+      int[] stack = new int[16];
+      int depth = 0;
+      for (int i = start; i < end; i++) {
+        char c = src.charAt(i);
+        if (c == '\\') {
+          i++;
+        } else if (c == '[') {
+          if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+          }
+          stack[depth++] = i;
+        } else if (c == ']' && depth > 0) {
+          match[stack[--depth] - start] = i;
+        }
+      }
+      return match;
+    }
+
+    // Depois de "[texto]": "(destino "título")", "[rótulo]", "[]" ou atalho para uma definição
+    private int linkTarget(int textStart, int close, int end, String[] target) {
+      int p = close + 1;
+      if (p < end && src.charAt(p) == '(') {
+        p = skipWhitespace(p + 1, end);
+        int destinationEnd = linkDestination(p, end, target);
+        if (destinationEnd < 0) {
+          return -1;
+        }
+        p = skipWhitespace(destinationEnd, end);
+        if (p < end && p > destinationEnd && src.charAt(p) != ')') {
+          p = linkTitle(p, end, target);
+          if (p < 0) {
+            return -1;
+          }
+          p = skipWhitespace(p, end);
+        }
+        return p < end && src.charAt(p) == ')' ? p + 1 : -1;
+      }
+      if (references.isEmpty()) {
+        return -1;
+      }
+      int labelStart = textStart;
+      int labelEnd = close;
+      int after = p;
+      if (p + 1 < end && src.charAt(p) == '[' && src.charAt(p + 1) == ']') {
+        after = p + 2;
+      } else if (p < end && src.charAt(p) == '[') {
+        labelStart = p + 1;
+        labelEnd = indexOf("]", labelStart, end);
+        if (labelEnd < 0) {
+          return -1;
+        }
+        after = labelEnd + 1;
+      }
+      // Como no CommonMark, um rótulo tem no máximo 999 caracteres: "[" aninhados não somam rótulos enormes
+      if (labelEnd - labelStart > MAX_LABEL) {
+        return -1;
+      }
+      String[] definition = references.get(normalizeLabel(labelStart, labelEnd));
+      if (definition == null) {
+        return -1;
+      }
+      target[0] = definition[0];
+      target[1] = definition[1];
+      return after;
+    }
+
+    private int linkDestination(int p, int end, String[] target) {
+      LinkScans memo = scans.at(end);
+      if (p < end && src.charAt(p) == '<') {
+        if (p >= memo.angleFrom && p < memo.angleStop) {
+          return -1;
+        }
+        int close = p + 1;
+        while (close < end && src.charAt(close) != '>' && src.charAt(close) != '\n') {
+          close++;
+        }
+        if (close >= end || src.charAt(close) != '>') {
+          memo.angleFrom = p;
+          memo.angleStop = close;
+          return -1;
+        }
+        target[0] = unescape(p + 1, close);
+        return close + 1;
+      }
+
+      // Um destino que começa num "(" deixado por fechar pela última procura falhada lê o mesmo
+      // texto que ela: continua onde ela parou, só com os "(" abertos depois do seu
+      int i = p;
+      int[] open = memo.scratch;
+      int depth = 0;
+      int k = p > 0 ? memo.unclosed(p - 1) : -1;
+      if (k >= 0) {
+        depth = memo.openCount - k - 1;
+        if (!memo.parenLimit) {
+          // Parou no fim do destino, que só é válido para o último "(" por fechar
+          if (depth > 0) {
+            return -1;
+          }
+          target[0] = unescape(p, memo.parenStop);
+          return memo.parenStop;
+        }
+        System.arraycopy(memo.parens, k + 1, open, 0, depth);
+        i = memo.parenStop;
+      }
+      while (i < end) {
+        char c = src.charAt(i);
+        if (c == '\\' && i + 1 < end) {
+          i += 2;
+          continue;
+        }
+        if (Character.isWhitespace(c) || Character.isISOControl(c)) {
+          break;
+        }
+        if (c == '(') {
+          open[depth++] = i;
+          if (depth > MAX_LINK_PARENS) {
+            memo.failed(depth, i + 1, true);
+            return -1;
+          }
+        } else if (c == ')') {
+          if (depth == 0) {
+            break;
+          }
+          depth--;
+        }
+        i++;
+      }
+      if (depth != 0) {
+        memo.failed(depth, i, false);
+        return -1;
+      }
+      target[0] = unescape(p, i);
+      return i;
+    }
+
+    private int linkTitle(int p, int end, String[] target) {
+      char open = src.charAt(p);
+      int kind = "\"'(".indexOf(open);
+      if (kind < 0) {
+        return -1;
+      }
+      // Sem fecho depois de um título anterior do mesmo tipo, também não há depois deste
+      LinkScans memo = scans.at(end);
+      if (p >= memo.unclosedTitle[kind]) {
+        return -1;
+      }
+      char close = open == '(' ? ')' : open;
+      for (int i = p + 1; i < end; i++) {
+        char c = src.charAt(i);
+        if (c == '\\') {
+          i++;
+        } else if (c == close) {
+          target[1] = unescape(p + 1, i);
+          return i + 1;
+        }
+      }
+      memo.unclosedTitle[kind] = p;
+      return -1;
+    }
+
+    // O que as procuras falhadas de destinos e títulos deixaram saber sobre o texto até end
+    private static final class LinkScans {
+      int end = -1;
+      int angleFrom;
+      int angleStop;
+      // A última procura de destino falhada parou em parenStop com estes "(" por fechar
+      int[] parens = new int[MAX_LINK_PARENS + 1];
+      int[] scratch = new int[MAX_LINK_PARENS + 1];
+      int openCount;
+      int parenStop;
+      boolean parenLimit;
+      final int[] unclosedTitle = new int[3];
+
+      LinkScans at(int end) {
+        if (end != this.end) {
+          this.end = end;
+          angleFrom = Integer.MAX_VALUE;
+          openCount = 0;
+          Arrays.fill(unclosedTitle, Integer.MAX_VALUE);
+        }
+        return this;
+      }
+
+      // Posição de index entre os "(" por fechar, ou -1
+      int unclosed(int index) {
+        for (int k = 0; k < openCount; k++) {
+          if (parens[k] == index) {
+            return k;
+          }
+        }
+        return -1;
+      }
+
+      void failed(int count, int stop, boolean limit) {
+        int[] open = scratch;
+        scratch = parens;
+        parens = open;
+        openCount = count;
+        parenStop = stop;
+        parenLimit = limit;
+      }
+    }
+
+    private String unescape(int start, int end) {
+      StringBuilder sb = new StringBuilder(end - start);
+      for (int i = start; i < end; i++) {
+        char c = src.charAt(i);
+        if (c == '\\' && i + 1 < end && isAsciiPunctuation(src.charAt(i + 1))) {
+          c = src.charAt(++i);
+        }
+        sb.append(c);
+      }
+      return sb.toString();
+    }
+
+    private int autolink(int i, int end) {
+      int close = i + 1;
+      boolean scheme = false;
+      boolean email = false;
+      while (close < end) {
+        char c = src.charAt(close);
+        if (c == '>') {
+          break;
+        }
+        if (c == '<' || Character.isWhitespace(c)) {
+          return -1;
+        }
+        if (c == ':' && close - i - 1 >= 2 && isScheme(i + 1, close)) {
+          scheme = true;
+        } else if (c == '@') {
+          email = true;
+        }
+        close++;
+      }
+      return close < end && close > i + 1 && (scheme || email) ? close : -1;
+    }
+
+    private boolean isScheme(int start, int end) {
+      if (end - start > 32 || !Character.isLetter(src.charAt(start))) {
+        return false;
+      }
+      for (int i = start + 1; i < end; i++) {
+        char c = src.charAt(i);
+        if (!(Character.isLetterOrDigit(c) || c == '+' || c == '.' || c == '-')) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    // &nome; &#123; ou &#x1F; são preservados tal como estão
+    private int entity(int i, int end) {
+      int p = i + 1;
+      if (p < end && src.charAt(p) == '#') {
+        p++;
+        boolean hex = p < end && (src.charAt(p) == 'x' || src.charAt(p) == 'X');
+        if (hex) {
+          p++;
+        }
+        int digits = p;
+        while (p < end && p - digits < 7
+            && (isDigit(src.charAt(p)) || (hex && Character.digit(src.charAt(p), 16) >= 0))) {
+          p++;
+        }
+        if (p == digits) {
+          return -1;
+        }
+      } else {
+        int name = p;
+        while (p < end && p - name < 32 && Character.isLetterOrDigit(src.charAt(p))) {
+          p++;
+        }
+        if (p == name || !Character.isLetter(src.charAt(name))) {
+          return -1;
+        }
+      }
+      return p < end && src.charAt(p) == ';' ? p + 1 : -1;
+    }
+
+    private int findBacktickRun(int from, int end, int length) {
+      int i = from;
+      while (i < end) {
+        if (src.charAt(i) == '`') {
+          int run = run(i, end, '`');
+          if (run == length) {
+            return i;
+          }
+          i += run;
+        } else {
+          i++;
+        }
+      }
+      return -1;
+    }
+
+    private String codeSpan(int start, int end) {
+      // Quebras de linha viram espaços; um espaço em cada ponta é removido se ambos existirem
+      boolean strip = end - start >= 2 && isLineSpace(src.charAt(start)) && isLineSpace(src.charAt(end - 1));
+      if (strip) {
+        boolean allSpaces = true;
+        for (int i = start; i < end && allSpaces; i++) {
+          allSpaces = isLineSpace(src.charAt(i));
+        }
+        if (!allSpaces) {
+          start++;
+          end--;
+        }
+      }
+      StringBuilder html = new StringBuilder(end - start + 13).append("<code>");
+      for (int i = start; i < end; i++) {
+        char c = src.charAt(i);
+        if (c == '\r') {
+          continue;
+        }
+        escapeChar(c == '\n' ? ' ' : c, html);
+      }
+      return html.append("</code>").toString();
+    }
+
+    private static boolean isLineSpace(char c) {
+      return c == ' ' || c == '\n' || c == '\r';
+    }
+
+    // Texto do alt de uma imagem: o conteúdo sem marcação
+    private void plainText(int start, int end, StringBuilder target) {
+      for (int i = start; i < end; i++) {
+        char c = src.charAt(i);
+        if (c == '\\' && i + 1 < end && isAsciiPunctuation(src.charAt(i + 1))) {
+          escapeChar(src.charAt(++i), target);
+        } else if (c != '*' && c != '_' && c != '`' && c != '[' && c != ']' && c != '\r') {
+          escapeChar(c == '\n' ? ' ' : c, target);
+        }
+      }
+    }
+
+    /**
+     * Escreve texto escapado. Espaços no fim de uma linha são removidos (dois ou mais viram
+     * {@code <br />}) e a indentação das linhas de continuação é ignorada.
+     */
+    private void text(int start, int end, int blockEnd, StringBuilder target) {
+      int i = start;
+      while (i < end) {
+        char c = src.charAt(i);
+        if (c == ' ' || c == '\t') {
+          int spacesEnd = i;
+          while (spacesEnd < end && (src.charAt(spacesEnd) == ' ' || src.charAt(spacesEnd) == '\t')) {
+            spacesEnd++;
+          }
+          int lineBreak = spacesEnd < end && src.charAt(spacesEnd) == '\r' ? spacesEnd + 1 : spacesEnd;
+          if (lineBreak < end && src.charAt(lineBreak) == '\n') {
+            if (spacesEnd - i >= 2) {
+              target.append("<br />");
+            }
+          } else if (spacesEnd != blockEnd) {
+            target.append(src, i, spacesEnd);
+          }
+          i = spacesEnd;
+        } else if (c == '\n') {
+          target.append('\n');
+          i++;
+          while (i < end && (src.charAt(i) == ' ' || src.charAt(i) == '\t')) {
+            i++;
+          }
+        } else if (c == '\r') {
+          i++;
+        } else {
+          escapeChar(c, target);
+          i++;
+        }
+      }
+    }
+
+    private void escapeUrl(String url, StringBuilder target) {
+      escape(url, 0, url.length(), target);
+    }
+
+    // ---------------------------------------------------------------- utilitários
+
+    static void escape(CharSequence s, int start, int end, StringBuilder target) {
+      int copied = start;
+      for (int i = start; i < end; i++) {
+        String replacement = switch (s.charAt(i)) {
+          case '&' -> "&amp;";
+          case '<' -> "&lt;";
+          case '>' -> "&gt;";
+          case '"' -> "&quot;";
+          case '\'' -> "&#39;";
+          default -> null;
+        };
+        if (replacement != null) {
+          target.append(s, copied, i).append(replacement);
+          copied = i + 1;
+        }
+      }
+      target.append(s, copied, end);
+    }
+
+    private static void escapeChar(char c, StringBuilder target) {
+      switch (c) {
+        case '&' -> target.append("&amp;");
+        case '<' -> target.append("&lt;");
+        case '>' -> target.append("&gt;");
+        case '"' -> target.append("&quot;");
+        case '\'' -> target.append("&#39;");
+        default -> target.append(c);
+      }
+    }
+
+    private int run(int i, int end, char c) {
+      int j = i;
+      while (j < end && src.charAt(j) == c) {
+        j++;
+      }
+      return j - i;
+    }
+
+    private int lineEnd(int pos, int to) {
+      while (pos < to && src.charAt(pos) != '\n') {
+        pos++;
+      }
+      return pos;
+    }
+
+    private int trimCr(int pos, int le) {
+      return le > pos && src.charAt(le - 1) == '\r' ? le - 1 : le;
+    }
+
+    private static int nextLine(int le, int to) {
+      return le < to ? le + 1 : to;
+    }
+
+    private int firstNonSpace(int pos, int ce) {
+      while (pos < ce && isSpace(src.charAt(pos))) {
+        pos++;
+      }
+      return pos;
+    }
+
+    private int skipSpaces(int pos, int end) {
+      return firstNonSpace(pos, end);
+    }
+
+    private int skipWhitespace(int pos, int end) {
+      while (pos < end && Character.isWhitespace(src.charAt(pos))) {
+        pos++;
+      }
+      return pos;
+    }
+
+    private int trimTrailingSpaces(int start, int end) {
+      while (end > start && Character.isWhitespace(src.charAt(end - 1))) {
+        end--;
+      }
+      return end;
+    }
+
+    // Coluna visual de {@code index} na linha que começa em {@code pos} (tabulações de 4)
+    private int columns(int pos, int index) {
+      int column = 0;
+      for (int i = pos; i < index; i++) {
+        column = src.charAt(i) == '\t' ? (column / 4 + 1) * 4 : column + 1;
+      }
+      return column;
+    }
+
+    // Copia a linha sem as primeiras {@code count} colunas de indentação
+    private void stripColumns(int pos, int ce, int count, StringBuilder target, boolean escaped) {
+      int column = 0;
+      int i = pos;
+      while (i < ce && column < count && isSpace(src.charAt(i))) {
+        int next = src.charAt(i) == '\t' ? (column / 4 + 1) * 4 : column + 1;
+        if (next > count) {
+          // Tabulação parcialmente consumida: o resto vira espaços
+          for (int k = count; k < next; k++) {
+            target.append(' ');
+          }
+        }
+        column = next;
+        i++;
+      }
+      if (escaped) {
+        escape(src, i, ce, target);
+      } else {
+        target.append(src, i, ce);
+      }
+    }
+
+    private boolean startsWith(int pos, int end, String prefix) {
+      if (end - pos < prefix.length()) {
+        return false;
+      }
+      for (int i = 0; i < prefix.length(); i++) {
+        if (src.charAt(pos + i) != prefix.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int indexOf(String needle, int from, int end) {
+      for (int i = from; i + needle.length() <= end; i++) {
+        if (startsWith(i, end, needle)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private static boolean isSpace(char c) {
+      return c == ' ' || c == '\t';
+    }
+
+    private static boolean isDigit(char c) {
+      return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiPunctuation(char c) {
+      return (c >= '!' && c <= '/') || (c >= ':' && c <= '@') || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
+    }
+
+    private static boolean isPunctuation(char c) {
+      if (c < 128) {
+        return isAsciiPunctuation(c);
+      }
+      return switch (Character.getType(c)) {
+        case Character.CONNECTOR_PUNCTUATION, Character.DASH_PUNCTUATION, Character.START_PUNCTUATION,
+            Character.END_PUNCTUATION, Character.INITIAL_QUOTE_PUNCTUATION, Character.FINAL_QUOTE_PUNCTUATION,
+            Character.OTHER_PUNCTUATION, Character.MATH_SYMBOL, Character.CURRENCY_SYMBOL,
+            Character.MODIFIER_SYMBOL, Character.OTHER_SYMBOL -> true;
+        default -> false;
+      };
+    }
+  }
+
+  /**
+   * Realce de sintaxe dos blocos de código com cerca, feito na build com um lexer de uma passagem
+   * por linguagem; os resultados ficam numa cache LRU pelo SHA-256 da linguagem e do código.
+   */
+  static final class Highlighter {
+    private static final int CACHE_SIZE = Integer.getInteger("kambas.highlight.cache", 4096);
+
+    // Classes CSS dos tokens; ver assets/css/style.css
+    enum Token {
+      KEYWORD, TYPE, LITERAL, STRING, NUMBER, COMMENT, ANNOTATION, VARIABLE, TAG, ATTRIBUTE, KEY;
+
+      final String css = "tok-" + name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A tabela de uma linguagem. {@code quotes} são os delimitadores de strings; com
+     * {@code multilineStrings} uma string pode atravessar linhas, e com {@code rawSingleQuotes} a
+     * barra não escapa nada entre plicas (bash). {@code annotation} e {@code variable} são os
+     * prefixos de anotações e variáveis, ou 0. Com {@code capitalizedTypes} um identificador com
+     * maiúscula inicial é um tipo; com {@code keys} uma string seguida de dois pontos é uma chave.
+     */
+    record Grammar(Set<String> keywords, Set<String> literals, List<String> lineComments, String blockOpen,
+        String blockClose, String textBlock, String quotes, boolean multilineStrings, boolean rawSingleQuotes,
+        char annotation, char variable, boolean capitalizedTypes, boolean keys) {
+    }
+
+    static final Grammar JAVA = new Grammar(
+        Set.of("abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "exports", "extends", "final", "finally", "float",
+            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "module",
+            "native", "new", "package", "permits", "private", "protected", "public", "record", "requires", "return",
+            "sealed", "short", "static", "strictfp", "super", "switch", "synchronized", "this", "throw", "throws",
+            "transient", "try", "var", "void", "volatile", "when", "while", "yield"),
+        Set.of("true", "false", "null"), List.of("//"), "/*", "*/", "\"\"\"", "\"'", false, false, '@', (char) 0,
+        true, false);
+
+    static final Grammar KOTLIN = new Grammar(
+        Set.of("abstract", "annotation", "as", "break", "by", "catch", "class", "companion", "const", "constructor",
+            "continue", "crossinline", "data", "do", "else", "enum", "external", "final", "finally", "for", "fun",
+            "if", "import", "in", "infix", "init", "inline", "inner", "interface", "internal", "is", "lateinit",
+            "noinline", "object", "open", "operator", "out", "override", "package", "private", "protected",
+            "public", "reified", "return", "sealed", "super", "suspend", "tailrec", "this", "throw", "try",
+            "typealias", "val", "var", "vararg", "when", "where", "while"),
+        Set.of("true", "false", "null"), List.of("//"), "/*", "*/", "\"\"\"", "\"'", false, false, '@', (char) 0,
+        true, false);
+
+    static final Grammar BASH = new Grammar(
+        Set.of("if", "then", "else", "elif", "fi", "case", "esac", "for", "select", "while", "until", "do", "done",
+            "in", "function", "return", "exit", "export", "local", "readonly", "declare", "unset", "shift", "source",
+            "alias", "echo", "cd", "set", "trap", "eval", "exec"),
+        Set.of("true", "false"), List.of("#"), null, null, null, "\"'`", true, true, (char) 0, '$', false, false);
+
+    static final Grammar JSON = new Grammar(Set.of(), Set.of("true", "false", "null"), List.of(), null, null, null,
+        "\"", false, false, (char) 0, (char) 0, false, true);
+
+    private static final Map<String, Grammar> LANGUAGES = Map.of(
+        "java", JAVA, "kotlin", KOTLIN, "kt", KOTLIN, "bash", BASH, "sh", BASH, "shell", BASH, "json", JSON);
+    // O XML tem um lexer próprio; ver markup
+    private static final Set<String> MARKUP = Set.of("xml");
+
+    private static final Map<String, String> CACHE = Collections.synchronizedMap(
+        new LinkedHashMap<>(256, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > CACHE_SIZE;
+          }
+        });
+
+    static boolean supports(String language) {
+      return LANGUAGES.containsKey(language) || MARKUP.contains(language);
+    }
+
+    /**
+     * Acrescenta a {@code out} o código já escapado e com os tokens marcados. {@code language}
+     * tem de ser uma das de {@link #supports}.
+     */
+    static void highlight(String language, String code, StringBuilder out) {
+      String key = Manifest.digest(List.of(language, code));
+      String html = CACHE.get(key);
+      if (html == null) {
+        StringBuilder sb = new StringBuilder(code.length() + (code.length() >> 1));
+        if (MARKUP.contains(language)) {
+          markup(code, sb);
+        } else {
+          new Lexer(LANGUAGES.get(language), code, sb).run();
+        }
+        html = sb.toString();
+        CACHE.put(key, html);
+      }
+      out.append(html);
+    }
+
+    private static final class Lexer {
+      private final Grammar grammar;
+      private final String code;
+      private final StringBuilder out;
+      private final int n;
+      private int unclosedUntil;
+
+      Lexer(Grammar grammar, String code, StringBuilder out) {
+        this.grammar = grammar;
+        this.code = code;
+        this.out = out;
+        this.n = code.length();
+      }
+
+      void run() {
+        int plain = 0;
+        int i = 0;
+        while (i < n) {
+          Token token = null;
+          int end = i;
+          char c = code.charAt(i);
+          String comment = lineComment(i);
+          if (comment != null) {
+            token = Token.COMMENT;
+            end = lineEnd(i);
+          } else if (grammar.blockOpen() != null && code.startsWith(grammar.blockOpen(), i)) {
+            token = Token.COMMENT;
+            end = after(grammar.blockClose(), i + grammar.blockOpen().length());
+          } else if (grammar.textBlock() != null && code.startsWith(grammar.textBlock(), i)) {
+            token = Token.STRING;
+            end = after(grammar.textBlock(), i + grammar.textBlock().length());
+          } else if (grammar.quotes().indexOf(c) >= 0) {
+            end = string(i);
+            token = grammar.keys() && nextNonSpace(end) == ':' ? Token.KEY : Token.STRING;
+          } else if (c == grammar.annotation() && i + 1 < n && isWordStart(code.charAt(i + 1))) {
+            token = Token.ANNOTATION;
+            end = word(i + 1);
+            while (end + 1 < n && code.charAt(end) == '.' && isWordStart(code.charAt(end + 1))) {
+              end = word(end + 1);
+            }
+          } else if (c == grammar.variable() && (end = variable(i)) > i) {
+            token = Token.VARIABLE;
+          } else if (isDigit(c) || (c == '.' && i + 1 < n && isDigit(code.charAt(i + 1)))) {
+            token = Token.NUMBER;
+            end = number(i);
+          } else if (isWordStart(c)) {
+            end = word(i);
+            String word = code.substring(i, end);
+            if (grammar.keywords().contains(word)) {
+              token = Token.KEYWORD;
+            } else if (grammar.literals().contains(word)) {
+              token = Token.LITERAL;
+            } else if (grammar.capitalizedTypes() && Character.isUpperCase(c)) {
+              token = Token.TYPE;
+            }
+          } else {
+            end = i + 1;
+          }
+          if (token != null) {
+            MarkdownParser.escape(code, plain, i, out);
+            span(token, code, i, end, out);
+            plain = end;
+          }
+          i = end;
+        }
+        MarkdownParser.escape(code, plain, n, out);
+      }
+
+      // O # do bash só abre um comentário no início de uma palavra: $# e ${#x} não são comentários
+      private String lineComment(int i) {
+        for (String prefix : grammar.lineComments()) {
+          if (code.startsWith(prefix, i)
+              && (!prefix.equals("#") || i == 0 || Character.isWhitespace(code.charAt(i - 1)))) {
+            return prefix;
+          }
+        }
+        return null;
+      }
+
+      private int lineEnd(int i) {
+        int end = code.indexOf('\n', i);
+        return end < 0 ? n : end;
+      }
+
+      // Depois de {@code close}, ou o fim do código se o bloco não fecha
+      private int after(String close, int from) {
+        int end = code.indexOf(close, from);
+        return end < 0 ? n : end + close.length();
+      }
+
+      private int string(int i) {
+        char quote = code.charAt(i);
+        boolean escapes = !(quote == '\'' && grammar.rawSingleQuotes());
+        int j = i + 1;
+        while (j < n) {
+          char c = code.charAt(j);
+          if (c == quote) {
+            return j + 1;
+          }
+          if (c == '\n' && !grammar.multilineStrings()) {
+            return j;
+          }
+          j += c == '\\' && escapes && j + 1 < n ? 2 : 1;
+        }
+        return n;
+      }
+
+      // $nome, ${...}, $1 e os especiais $@ $? $#; $( fica por conta do texto normal
+      private int variable(int i) {
+        if (i + 1 >= n) {
+          return i;
+        }
+        char c = code.charAt(i + 1);
+        if (c == '{') {
+          // Um ${ sem } até ao fim da linha deixa os seguintes da mesma linha também sem fecho
+          if (i < unclosedUntil) {
+            return i;
+          }
+          int j = i + 2;
+          while (j < n && code.charAt(j) != '\n') {
+            if (code.charAt(j) == '}') {
+              return j + 1;
+            }
+            j++;
+          }
+          unclosedUntil = j;
+          return i;
+        }
+        if (isWordStart(c)) {
+          return word(i + 1);
+        }
+        return isDigit(c) || "@*#?$!-".indexOf(c) >= 0 ? i + 2 : i;
+      }
+
+      // 42, 0xFF, 1_000L, 3.14f, 1e10
+      private int number(int i) {
+        int j = i;
+        while (j < n) {
+          char c = code.charAt(j);
+          if (Character.isLetterOrDigit(c) || c == '_' || (c == '.' && j + 1 < n && isDigit(code.charAt(j + 1)))) {
+            j++;
+          } else {
+            break;
+          }
+        }
+        return j;
+      }
+
+      private int word(int i) {
+        int j = i;
+        while (j < n && (Character.isLetterOrDigit(code.charAt(j)) || code.charAt(j) == '_')) {
+          j++;
+        }
+        return j;
+      }
+
+      private char nextNonSpace(int i) {
+        int j = i;
+        while (j < n && Character.isWhitespace(code.charAt(j))) {
+          j++;
+        }
+        return j < n ? code.charAt(j) : 0;
+      }
+    }
+
+    /**
+     * XML numa passagem: comentários, CDATA, e dentro de cada tag o nome, os atributos e os
+     * valores entre aspas; o texto entre tags fica como está.
+     */
+    private static void markup(String code, StringBuilder out) {
+      int n = code.length();
+      int plain = 0;
+      int i = 0;
+      while (i < n) {
+        boolean comment = code.startsWith("<!--", i);
+        if (comment || code.startsWith("<![CDATA[", i)) {
+          String close = comment ? "-->" : "]]>";
+          int end = code.indexOf(close, i + 4);
+          end = end < 0 ? n : end + close.length();
+          MarkdownParser.escape(code, plain, i, out);
+          span(comment ? Token.COMMENT : Token.STRING, code, i, end, out);
+          plain = i = end;
+        } else if (code.charAt(i) == '<' && i + 1 < n
+            && (isNameChar(code.charAt(i + 1)) || "/?!".indexOf(code.charAt(i + 1)) >= 0)) {
+          MarkdownParser.escape(code, plain, i, out);
+          plain = i = tag(code, i, out);
+        } else {
+          i++;
+        }
+      }
+      MarkdownParser.escape(code, plain, n, out);
+    }
+
+    // <nome, </nome, <?xml ou <!DOCTYPE, os atributos e o fecho (>, /> ou ?>); devolve onde acaba
+    private static int tag(String code, int i, StringBuilder out) {
+      int n = code.length();
+      int j = i + 1;
+      while (j < n && "/?!".indexOf(code.charAt(j)) >= 0) {
+        j++;
+      }
+      j = name(code, j);
+      span(Token.TAG, code, i, j, out);
+      int plain = j;
+      while (j < n && code.charAt(j) != '>' && code.charAt(j) != '<') {
+        char c = code.charAt(j);
+        int end;
+        Token token;
+        if (c == '"' || c == '\'') {
+          int close = code.indexOf(c, j + 1);
+          end = close < 0 ? n : close + 1;
+          token = Token.STRING;
+        } else if (isNameChar(c)) {
+          end = name(code, j);
+          token = Token.ATTRIBUTE;
+        } else if ((c == '/' || c == '?') && j + 1 < n && code.charAt(j + 1) == '>') {
+          break;
+        } else {
+          j++;
+          continue;
+        }
+        MarkdownParser.escape(code, plain, j, out);
+        span(token, code, j, end, out);
+        plain = j = end;
+      }
+      MarkdownParser.escape(code, plain, j, out);
+      int end = j;
+      if (end < n && code.charAt(end) != '<') {
+        end += code.charAt(end) == '>' ? 1 : 2;
+        span(Token.TAG, code, j, end, out);
+      }
+      return end;
+    }
+
+    private static int name(String code, int i) {
+      int j = i;
+      while (j < code.length() && isNameChar(code.charAt(j))) {
+        j++;
+      }
+      return j;
+    }
+
+    private static void span(Token token, String code, int start, int end, StringBuilder out) {
+      out.append("<span class=\"").append(token.css).append("\">");
+      MarkdownParser.escape(code, start, end, out);
+      out.append("</span>");
+    }
+
+    private static boolean isWordStart(char c) {
+      return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isDigit(char c) {
+      return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNameChar(char c) {
+      return Character.isLetterOrDigit(c) || c == '_' || c == ':' || c == '-' || c == '.';
+    }
+  }
+
+  static class TemplateEngine {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("MMMM",
+        new Locale.Builder().setLanguage("pt").build());
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd");
+    private static final Path TEMPLATES_DIR = Paths.get("templates");
+
+    // Placeholders que cada template tem de conter; base_path e current_year são opcionais em todos
+    private static final Map<String, Set<String>> PLACEHOLDERS = Map.of(
+        "base.html", Set.of("page_title", "page_description", "page_content"),
+        "index.html", Set.of("recent_posts", "upcoming_events", "members", "event_totals", "post_totals",
+            "member_totals"),
+        "post.html", Set.of("post_title", "post_content", "post_date", "related_posts"),
+        "all-posts.html", Set.of("listing_title", "listing_description", "tag_links", "all_posts", "pagination",
+            "popular_tags", "total_posts", "total_years", "total_categories"),
+        "event.html", Set.of("event_title", "event_content", "event_date", "event_location", "event_type",
+            "related_events"),
+        "all-events.html", Set.of("all_events", "total_events", "upcoming_count", "past_count"),
+        "member.html", Set.of("member_name", "member_avatar", "member_content", "member_social_links"),
+        "all-members.html", Set.of("all_members"));
+    private static final Set<String> GLOBAL_PLACEHOLDERS = Set.of("base_path", "current_year");
+
+    private static volatile Map<String, Template> templates;
+    // Fontes e assets com que os templates em memória foram compilados
+    private static Object compiledFrom;
+
+    /**
+     * Lê e compila todos os templates de uma só vez. Placeholders desconhecidos ou em falta são
+     * reportados aqui, antes de qualquer página ser gerada. Num processo que fica a correr, os
+     * templates só voltam a ser compilados se alguma fonte ou algum asset mudou.
+     */
+    static synchronized void loadTemplates() throws IOException {
+      Map<String, String> sources = new HashMap<>();
+      for (String name : PLACEHOLDERS.keySet()) {
+        sources.put(name, Files.readString(TEMPLATES_DIR.resolve(name)));
+      }
+      Object key = List.of(sources, Assets.state());
+      if (templates != null && key.equals(compiledFrom)) {
+        return;
+      }
+
+      Map<String, Template> compiled = new HashMap<>();
+      List<String> errors = new ArrayList<>();
+      Set<String> missingAssets = new TreeSet<>();
+      for (var entry : PLACEHOLDERS.entrySet()) {
+        String source = sources.get(entry.getKey());
+        Template template = Template.compile(entry.getKey(), source, asset -> {
+          String url = Assets.url(asset);
+          if (url == null) {
+            missingAssets.add(asset);
+            return "assets/" + asset;
+          }
+          return url;
+        }, Assets::image);
+        Set<String> used = template.placeholders();
+        for (String name : used) {
+          if (!entry.getValue().contains(name) && !GLOBAL_PLACEHOLDERS.contains(name)) {
+            errors.add("templates/" + entry.getKey() + ": placeholder desconhecido ${" + name + "}");
+          }
+        }
+        for (String name : entry.getValue()) {
+          if (!used.contains(name)) {
+            errors.add("templates/" + entry.getKey() + ": placeholder em falta ${" + name + "}");
+          }
+        }
+        compiled.put(entry.getKey(), template);
+      }
+      if (!errors.isEmpty()) {
+        throw new IllegalStateException("Templates inválidos:\n  " + String.join("\n  ", errors.stream().sorted().toList()));
+      }
+      missingAssets.forEach(asset -> println("Aviso: os templates referem um asset inexistente: assets/" + asset));
+      templates = Map.copyOf(compiled);
+      compiledFrom = key;
+    }
+
+    static String fingerprint(String name) {
+      try {
+        return template(name).fingerprint();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private static Template template(String name) throws IOException {
+      if (templates == null) {
+        loadTemplates();
+      }
+      return templates.get(name);
+    }
+
+    public static String renderIndex(List<DataSet.Post> posts, List<DataSet.Event> events, List<DataSet.Member> members)
+        throws Exception {
+      StringBuilder out = new StringBuilder();
+      renderIndex(posts, events, members, out);
+      return out.toString();
+    }
+
+    /**
+     * Escreve a página diretamente em {@code out}. Cada lista é escrita item a item a partir de
+     * um {@link Template.Fragment}, por isso a memória não cresce com o número de itens; o mesmo
+     * vale para as outras páginas agregadas.
+     */
+    static void renderIndex(List<DataSet.Post> posts, List<DataSet.Event> events, List<DataSet.Member> members,
+        Appendable out) throws IOException {
+      // Prepara posts recentes
+      List<DataSet.Post> recentPosts = posts.stream().limit(3).collect(Collectors.toList());
+      Template.Fragment postsHtml = html -> {
+        for (DataSet.Post post : recentPosts) {
+          html.append("<div class='post-preview'>")
+              .append("<h3><a href='posts/").append(String.valueOf(post.year())).append("/")
+              .append(String.format("%02d", post.month())).append("/")
+              .append(post.slug()).append(".html'>").append(post.title()).append("</a></h3>")
+              .append("<p class='post-meta'>").append(String.format("%02d", post.month()))
+              .append("/").append(String.valueOf(post.year())).append("</p>")
+              .append("<p>").append(post.description()).append("</p>")
+              .append("</div>");
+        }
+      };
+
+      // Prepara Dataset.Eventos próximos
+      List<DataSet.Event> upcomingEvents = events.stream()
+          .filter(e -> e.isUpcoming())
+          .limit(2)
+          .collect(Collectors.toList());
+
+      Template.Fragment eventsHtml = html -> {
+        for (var event : upcomingEvents) {
+          html.append("<div class='event'>")
+              .append("<div class='event-date'>")
+              .append("<span class='event-day'>").append(event.date().format(DAY_FORMATTER)).append("</span>")
+              .append("<span class='event-month'>").append(event.date().format(MONTH_FORMATTER)).append("</span>")
+              .append("</div>")
+              .append("<div class='event-details'>")
+              .append("<h3><a href='events/").append(event.slug()).append(".html'>").append(event.title())
+              .append("</a></h3>")
+              .append("<p class='event-location'>").append(event.location()).append("</p>")
+              .append("<p>").append(event.description()).append("</p>")
+              .append("<a href='events/").append(event.slug()).append(".html' class='event-link'>Mais informações</a>")
+              .append("</div>")
+              .append("</div>");
+        }
+      };
+
+      // Prepara membros
+      Template.Fragment membersHtml = html -> {
+        for (DataSet.Member member : members) {
+          appendMemberCard(html, member);
+        }
+      };
+
+      // Preenche placeholders
+      var values = Map.<String, Object>of(
+          "recent_posts", postsHtml,
+          "upcoming_events", eventsHtml,
+          "members", membersHtml,
+          "event_totals", events.size(),
+          "post_totals", posts.size(),
+          "member_totals", members.size());
+
+      applyBaseTemplate(template("index.html"), values, "Kambas do Java - Comunidade Java de Luanda",
+          "Comunidade de desenvolvedores Java de Luanda, Angola. Dataset.Eventos, tutoriais e notícias sobre Java e tecnologia.",
+          "", out);
+    }
+
+    private static void appendMemberCard(Appendable html, DataSet.Member member) throws IOException {
+      html.append("<div class='member-card'>")
+          .append("<a href='members/").append(member.githubUsername()).append(".html'>")
+          .append("<img ").append(Assets.imageAttributes(member.avatarUrl(), "", "120px"))
+          .append(" alt='").append(member.name()).append("'>")
+          .append("<h3>").append(member.name()).append("</h3>")
+          .append("</a>")
+          .append("</div>");
+    }
+
+    static String renderPost(DataSet.Post post) throws Exception {
+      StringBuilder out = new StringBuilder();
+      renderPost(post, List.of(), out);
+      return out.toString();
+    }
+
+    static void renderPost(DataSet.Post post, List<DataSet.Post> related, Appendable out) throws IOException {
+      // Formata a data do post
+      String postDate = String.format("%02d/%d", post.month(), post.year());
+
+      // Calcula o caminho relativo para assets
+      String basePath = "../../../";
+
+      // Artigos relacionados; ver Related
+      Template.Fragment relatedHtml = html -> {
+        if (related.isEmpty()) {
+          return;
+        }
+        html.append("<div class='related-posts'><h2>Artigos Relacionados</h2><div class='related-posts-grid'>");
+        for (DataSet.Post other : related) {
+          html.append("<div class='related-post'>")
+              .append("<h3><a href='").append(basePath).append("posts/").append(String.valueOf(other.year()))
+              .append("/").append(String.format("%02d", other.month())).append("/").append(other.slug())
+              .append(".html'>").append(other.title()).append("</a></h3>")
+              .append("<p>").append(other.description()).append("</p>")
+              .append("</div>");
+        }
+        html.append("</div></div>");
+      };
+
+      // Preenche placeholders
+      var values = Map.<String, Object>of(
+          "post_title", post.title(),
+          "post_content", post.content(),
+          "post_date", postDate,
+          "related_posts", relatedHtml);
+
+      // Aplica o template base
+      applyBaseTemplate(template("post.html"), values, post.title() + " - Kambas do Java",
+          post.description(), basePath, out);
+    }
+
+    /**
+     * Uma página de uma listagem de posts (o arquivo ou uma tag). Percorre apenas a fatia da
+     * página, já ordenada do mais recente para o mais antigo, abrindo uma secção sempre que o ano
+     * ou o mês mudam; o tamanho da página não depende do número total de posts.
+     */
+    public static String renderPostsPage(PostIndex.Listing listing, int number, List<PostIndex.Tag> tags)
+        throws Exception {
+      StringBuilder out = new StringBuilder();
+      renderPostsPage(listing, number, tags, out);
+      return out.toString();
+    }
+
+    static void renderPostsPage(PostIndex.Listing listing, int number, List<PostIndex.Tag> tags, Appendable out)
+        throws IOException {
+      String basePath = listing.basePath(number);
+      Template.Fragment postsHtml = html -> appendPostsPage(listing.page(number), basePath, html);
+
+      // Filtros: o arquivo completo e uma página por tag
+      Template.Fragment tagLinks = html -> {
+        html.append("<a class='filter-tag").append(listing.tag() == null ? " active" : "").append("' href='")
+            .append(basePath).append(PostIndex.ARCHIVE).append(".html'>Todos</a>");
+        for (PostIndex.Tag tag : tags) {
+          html.append("<a class='filter-tag").append(listing.tag() != null && tag.slug().equals(listing.tag().slug()) ? " active" : "")
+              .append("' href='").append(basePath).append(PostIndex.tagPath(tag)).append("'>")
+              .append(MarkdownProcessor.escapeHtml(tag.name())).append("</a>");
+        }
+      };
+
+      // Tags com mais artigos
+      StringBuilder popularTags = new StringBuilder();
+      tags.stream()
+          .sorted(Comparator.comparingInt((PostIndex.Tag t) -> t.posts().size()).reversed())
+          .limit(4)
+          .forEach(tag -> popularTags.append("<div class='category-card'>")
+              .append("<h3><a href='").append(basePath).append(PostIndex.tagPath(tag)).append("'>")
+              .append(MarkdownProcessor.escapeHtml(tag.name())).append("</a></h3>")
+              .append("<span class='post-count'>").append(tag.posts().size())
+              .append(tag.posts().size() == 1 ? " artigo" : " artigos").append("</span>")
+              .append("</div>"));
+
+      String heading = listing.tag() == null ? "Todos os Artigos"
+          : "Artigos sobre " + MarkdownProcessor.escapeHtml(listing.tag().name());
+      String description = listing.tag() == null
+          ? "Explore todos os artigos, tutoriais e conteúdos técnicos da comunidade Kambas do Java"
+          : "Artigos e tutoriais da comunidade Kambas do Java sobre " + MarkdownProcessor.escapeHtml(listing.tag().name());
+
+      // Preenche placeholders
+      var values = Map.<String, Object>of(
+          "listing_title", heading,
+          "listing_description", description,
+          "tag_links", tagLinks,
+          "all_posts", postsHtml,
+          "pagination", pagination(listing, number),
+          "popular_tags", popularTags,
+          "total_posts", listing.posts().size(),
+          "total_years", PostIndex.years(listing.posts()),
+          "total_categories", tags.size());
+
+      String title = listing.tag() == null ? "Todos os Posts" : listing.tag().name() + " - Artigos";
+      if (number > 1) {
+        title += " - Página " + number;
+      }
+      applyBaseTemplate(template("all-posts.html"), values, MarkdownProcessor.escapeHtml(title) + " - Kambas do Java",
+          description, basePath, out);
+    }
+
+    // Os posts de uma página, agrupados por ano e mês
+    private static void appendPostsPage(List<DataSet.Post> page, String basePath, Appendable html)
+        throws IOException {
+      int year = 0;
+      int month = 0;
+      for (DataSet.Post post : page) {
+        if (post.year() != year || post.month() != month) {
+          if (month != 0) {
+            html.append("</div></div>");
+          }
+          if (post.year() != year) {
+            if (year != 0) {
+              html.append("</div>");
+            }
+            html.append("<div class='year-section'>")
+                .append("<h2>").append(String.valueOf(post.year())).append("</h2>");
+          }
+          year = post.year();
+          month = post.month();
+          html.append("<div class='month-section'>")
+              .append("<h3>").append(getMonthName(month)).append("</h3>")
+              .append("<div class='posts-list'>");
+        }
+
+        html.append("<div class='post-item' data-categories='")
+            .append(post.tags().stream().map(PostIndex::slug).collect(Collectors.joining(" "))).append("'>")
+            .append("<div class='post-date'>")
+            .append("<span class='post-day'>").append(String.format("%02d", post.month())).append("</span>")
+            .append("<span class='post-month'>").append(getMonthAbbr(month)).append("</span>")
+            .append("</div>")
+            .append("<div class='post-content'>")
+            .append("<h4><a href='").append(basePath).append("posts/").append(String.valueOf(year)).append("/")
+            .append(String.format("%02d", month)).append("/")
+            .append(post.slug()).append(".html'>").append(post.title()).append("</a></h4>")
+            .append("<p class='post-excerpt'>").append(post.description()).append("</p>")
+            .append("<div class='post-meta'>");
+        for (String tag : post.tags()) {
+          html.append("<a class='post-category' href='").append(basePath).append(PostIndex.tagPath(tag))
+              .append("'>").append(MarkdownProcessor.escapeHtml(tag)).append("</a>");
+        }
+        html.append("<span>").append(post.description().length() > 100 ? "5 min read" : "2 min read")
+            .append("</span>")
+            .append("</div>")
+            .append("</div>")
+            .append("</div>");
+      }
+      if (month != 0) {
+        html.append("</div></div></div>");
+      }
+    }
+
+    /**
+     * Navegação entre páginas: anterior, seguinte, a primeira, a última e as duas vizinhas da
+     * página atual, para que o HTML não cresça com o número de páginas.
+     */
+    private static CharSequence pagination(PostIndex.Listing listing, int number) {
+      int pages = listing.pages();
+      if (pages == 1) {
+        return "";
+      }
+      String basePath = listing.basePath(number);
+      StringBuilder nav = new StringBuilder("<nav class='pagination' aria-label='Paginação'>");
+      if (number > 1) {
+        nav.append("<a class='page-link' rel='prev' href='").append(basePath).append(listing.path(number - 1))
+            .append("'>&larr; Anterior</a>");
+      }
+      Set<Integer> shown = new TreeSet<>(List.of(1, pages));
+      for (int page = Math.max(1, number - 2); page <= Math.min(pages, number + 2); page++) {
+        shown.add(page);
+      }
+      int last = 0;
+      for (int page : shown) {
+        if (page > last + 1) {
+          nav.append("<span class='page-gap'>&hellip;</span>");
+        }
+        if (page == number) {
+          nav.append("<span class='page-link current' aria-current='page'>").append(page).append("</span>");
+        } else {
+          nav.append("<a class='page-link' href='").append(basePath).append(listing.path(page)).append("'>")
+              .append(page).append("</a>");
+        }
+        last = page;
+      }
+      if (number < pages) {
+        nav.append("<a class='page-link' rel='next' href='").append(basePath).append(listing.path(number + 1))
+            .append("'>Seguinte &rarr;</a>");
+      }
+      return nav.append("</nav>");
+    }
+
+    private static String getMonthName(int month) {
+      String[] months = { "Janeiro", "Fevereiro", "Março", "Abril", "Maio", "Junho",
+          "Julho", "Agosto", "Setembro", "Outubro", "Novembro", "Dezembro" };
+      if (month >= 1 && month <= 12) {
+        return months[month - 1];
+      }
+      return "Mês inválido";
+    }
+
+    private static String getMonthAbbr(int month) {
+      String[] months = { "JAN", "FEV", "MAR", "ABR", "MAI", "JUN",
+          "JUL", "AGO", "SET", "OUT", "NOV", "DEZ" };
+      return months[month - 1];
+    }
+
+    static String renderEvent(DataSet.Event event) throws Exception {
+      StringBuilder out = new StringBuilder();
+      renderEvent(event, List.of(), out);
+      return out.toString();
+    }
+
+    static void renderEvent(DataSet.Event event, List<DataSet.Event> related, Appendable out) throws IOException {
+      String basePath = "../";
+
+      // Eventos relacionados, com o mesmo estilo dos artigos relacionados; ver Related
+      Template.Fragment relatedHtml = html -> {
+        if (related.isEmpty()) {
+          return;
+        }
+        html.append("<div class='related-posts'><h2>Eventos Relacionados</h2><div class='related-posts-grid'>");
+        for (DataSet.Event other : related) {
+          html.append("<div class='related-post'>")
+              .append("<h3><a href='").append(basePath).append("events/").append(other.slug()).append(".html'>")
+              .append(other.title()).append("</a></h3>")
+              .append("<p>").append(other.date().format(DATE_FORMATTER)).append(" · ").append(other.location())
+              .append("</p>")
+              .append("</div>");
+        }
+        html.append("</div></div>");
+      };
+
+      // Preenche placeholders
+      var values = Map.<String, Object>of(
+          "event_title", event.title(),
+          "event_content", event.content(),
+          "event_date", event.date.format(DATE_FORMATTER),
+          "event_location", event.location(),
+          "event_type", event.eventType(),
+          "related_events", relatedHtml);
+      applyBaseTemplate(template("event.html"), values, event.title() + " - Kambas do Java",
+          event.description(), basePath, out);
+    }
+
+    public static String renderAllEvents(List<DataSet.Event> events) throws Exception {
+      StringBuilder out = new StringBuilder();
+      renderAllEvents(events, out);
+      return out.toString();
+    }
+
+    static void renderAllEvents(List<DataSet.Event> events, Appendable out) throws IOException {
+      // Separa Dataset.Eventos por status
+      List<DataSet.Event> upcomingEvents = events.stream()
+          .filter(e -> e.isUpcoming())
+          .collect(Collectors.toList());
+
+      List<DataSet.Event> pastEvents = events.stream()
+          .filter(e -> !e.isUpcoming())
+          .collect(Collectors.toList());
+
+      Template.Fragment eventsHtml = html -> {
+        // Dataset.Eventos próximos
+        if (!upcomingEvents.isEmpty()) {
+          html.append("<div class='events-section'>")
+              .append("<h2>Próximos Dataset.Eventos</h2>")
+              .append("<div class='events-list'>");
+
+          for (DataSet.Event event : upcomingEvents) {
+            html.append(renderEventItem(event));
+          }
+
+          html.append("</div></div>");
+        }
+
+        // Dataset.Eventos passados
+        if (!pastEvents.isEmpty()) {
+          html.append("<div class='events-section'>")
+              .append("<h2>Eventos Passados</h2>")
+              .append("<div class='events-list'>");
+
+          for (DataSet.Event event : pastEvents) {
+            html.append(renderEventItem(event));
+          }
+
+          html.append("</div></div>");
+        }
+      };
+
+      var values = Map.<String, Object>of(
+          "all_events", eventsHtml,
+          "total_events", events.size(),
+          "upcoming_count", upcomingEvents.size(),
+          "past_count", pastEvents.size());
+
+      applyBaseTemplate(template("all-events.html"), values, "Todos os Dataset.Eventos - Kambas do Java",
+          "Calendário completo de Dataset.Eventos, meetups e workshops da comunidade Kambas do Java", "", out);
+    }
+
+    static String renderMember(DataSet.Member member) throws Exception {
+      StringBuilder out = new StringBuilder();
+      renderMember(member, out);
+      return out.toString();
+    }
+
+    static void renderMember(DataSet.Member member, Appendable out) throws IOException {
+      StringBuilder socialLinksHtml = new StringBuilder();
+      for (Map.Entry<String, String> entry : member.socialLinks().entrySet()) {
+        socialLinksHtml.append("<a href='").append(entry.getValue()).append("' target='_blank'>")
+            .append(entry.getKey()).append("</a>");
+      }
+
+      var values = Map.<String, Object>of(
+          "member_name", member.name(),
+          "member_avatar", Assets.imageAttributes(member.avatarUrl(), "../", "180px"),
+          "member_content", member.content(),
+          "member_social_links", socialLinksHtml);
+
+      String basePath = "../";
+      applyBaseTemplate(template("member.html"), values, member.name() + " - Kambas do Java",
+          member.githubUsername(), basePath, out);
+    }
+
+    public static String renderAllMembers(List<DataSet.Member> members) throws Exception {
+      StringBuilder out = new StringBuilder();
+      renderAllMembers(members, out);
+      return out.toString();
+    }
+
+    static void renderAllMembers(List<DataSet.Member> members, Appendable out) throws IOException {
+      Template.Fragment membersHtml = html -> {
+        for (DataSet.Member member : members) {
+          appendMemberCard(html, member);
+        }
+      };
+
+      applyBaseTemplate(template("all-members.html"), Map.of("all_members", membersHtml),
+          "Membros - Kambas do Java", "Conheça os membros da comunidade Kambas do Java", "", out);
+    }
+
+    private static String renderEventItem(DataSet.Event event) {
+      return "<div class='event-item'>" +
+          "<div class='event-date'>" +
+          "<span class='event-day'>" + event.date().format(DAY_FORMATTER) + "</span>" +
           "<span class='event-month'>" + event.date().format(MONTH_FORMATTER) + "</span>" +
           "<span class='event-year'>" + event.date().getYear() + "</span>" +
           "</div>" +
@@ -486,228 +2638,5339 @@ class Utils {
           "</div>";
     }
 
-    private static String getEventTypeIcon(String eventType) {
-      return switch (eventType.toLowerCase()) {
-        case "workshop" -> "🔧";
-        case "meetup" -> "👥";
-        case "conference" -> "🎤";
-        case "hackathon" -> "💻";
-        default -> "📅";
-      };
+    private static String getEventTypeIcon(String eventType) {
+      return switch (eventType.toLowerCase()) {
+        case "workshop" -> "🔧";
+        case "meetup" -> "👥";
+        case "conference" -> "🎤";
+        case "hackathon" -> "💻";
+        default -> "📅";
+      };
+    }
+
+    /**
+     * Renderiza {@code content} diretamente dentro do slot ${page_content} do base.html, para a
+     * mesma saída.
+     */
+    private static void applyBaseTemplate(Template content, Map<String, Object> values, String title,
+        String description, String basePath, Appendable out) throws IOException {
+      Template base = template("base.html");
+      String currentYear = String.valueOf(LocalDate.now().getYear());
+
+      Map<String, Object> contentValues = new HashMap<>(values);
+      contentValues.put("base_path", basePath);
+      contentValues.put("current_year", currentYear);
+
+      var baseValues = Map.<String, Object>of(
+          "page_title", title,
+          "page_description", description,
+          "page_content", (Template.Fragment) html -> content.render(html, contentValues),
+          "current_year", currentYear,
+          "base_path", basePath);
+
+      base.render(out, baseValues);
+    }
+  }
+
+  /**
+   * Template pré-compilado: uma lista imutável de texto literal e slots ${placeholder}.
+   */
+  static final class Template {
+    sealed interface Segment permits Literal, Slot {
+    }
+
+    record Literal(String text) implements Segment {
+    }
+
+    record Slot(String name) implements Segment {
+    }
+
+    // Valor de um slot que escreve diretamente na saída, sem criar uma String intermédia
+    @FunctionalInterface
+    interface Fragment {
+      void writeTo(Appendable out) throws IOException;
+    }
+
+    private final String name;
+    private final List<Segment> segments;
+    private volatile Assets.CriticalCss.Outline outline;
+
+    private Template(String name, List<Segment> segments) {
+      this.name = name;
+      this.segments = segments;
+    }
+
+    /**
+     * Compila o template. {@code ${asset:css/style.css}} é resolvido aqui mesmo, pelo
+     * {@code assets}, e vira texto literal; não custa nada na renderização.
+     * {@code ${image:images/logo.png}} dá os atributos src, srcset, width e height da imagem, com
+     * um slot base_path antes de cada URL.
+     */
+    static Template compile(String name, String source, UnaryOperator<String> assets,
+        Function<String, Assets.Image> images) {
+      List<Segment> segments = new ArrayList<>();
+      StringBuilder literal = new StringBuilder();
+      int pos = 0;
+      int start = 0;
+      while ((pos = source.indexOf("${", pos)) >= 0) {
+        int end = source.indexOf('}', pos + 2);
+        if (end < 0) {
+          break;
+        }
+        String placeholder = source.substring(pos + 2, end);
+        boolean asset = placeholder.startsWith("asset:");
+        boolean image = placeholder.startsWith("image:");
+        if (!asset && !image && !isPlaceholderName(placeholder)) {
+          pos += 2;
+          continue;
+        }
+        literal.append(source, start, pos);
+        if (asset) {
+          literal.append(assets.apply(placeholder.substring("asset:".length())));
+        } else if (image) {
+          String path = placeholder.substring("image:".length());
+          Assets.Image img = images.apply(path);
+          literal.append("src=\"");
+          slot(segments, literal, "base_path");
+          if (img == null) {
+            literal.append(assets.apply(path)).append('"');
+          } else {
+            literal.append(img.url()).append("\" srcset=\"");
+            for (Assets.Image.Variant variant : img.variants()) {
+              slot(segments, literal, "base_path");
+              literal.append(variant.url()).append(' ').append(variant.width()).append("w, ");
+            }
+            slot(segments, literal, "base_path");
+            literal.append(img.url()).append(' ').append(img.width()).append("w\" width=\"").append(img.width())
+                .append("\" height=\"").append(img.height()).append('"');
+          }
+        } else {
+          slot(segments, literal, placeholder);
+        }
+        pos = end + 1;
+        start = pos;
+      }
+      literal.append(source, start, source.length());
+      if (!literal.isEmpty()) {
+        segments.add(new Literal(literal.toString()));
+      }
+      return new Template(name, List.copyOf(segments));
+    }
+
+    private static void slot(List<Segment> segments, StringBuilder literal, String name) {
+      if (!literal.isEmpty()) {
+        segments.add(new Literal(literal.toString()));
+        literal.setLength(0);
+      }
+      segments.add(new Slot(name));
+    }
+
+    private static boolean isPlaceholderName(String s) {
+      if (s.isEmpty()) {
+        return false;
+      }
+      for (int i = 0; i < s.length(); i++) {
+        char c = s.charAt(i);
+        if (!(c >= 'a' && c <= 'z') && c != '_' && !(i > 0 && c >= '0' && c <= '9')) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    Set<String> placeholders() {
+      Set<String> names = new TreeSet<>();
+      for (Segment segment : segments) {
+        if (segment instanceof Slot slot) {
+          names.add(slot.name());
+        }
+      }
+      return names;
+    }
+
+    String fingerprint() {
+      return Manifest.digest(segments);
+    }
+
+    void render(Appendable out, Map<String, ?> values) throws IOException {
+      // Na primeira passagem do CSS crítico o texto literal já está no esboço; só os slots são lidos
+      if (out instanceof Assets.CriticalCss.TagScanner scanner && outline().isKnown()) {
+        scanner.enter(outline);
+        int index = 0;
+        for (Segment segment : segments) {
+          if (segment instanceof Slot slot) {
+            scanner.slot(outline.inTag(index++), value(slot, values));
+          }
+        }
+        return;
+      }
+      for (Segment segment : segments) {
+        switch (segment) {
+          case Literal literal -> out.append(literal.text());
+          case Slot slot -> write(value(slot, values), out);
+        }
+      }
+    }
+
+    private Object value(Slot slot, Map<String, ?> values) {
+      Object value = values.get(slot.name());
+      if (value == null) {
+        throw new IllegalStateException("Sem valor para ${" + slot.name() + "} em templates/" + name);
+      }
+      return value;
+    }
+
+    static void write(Object value, Appendable out) throws IOException {
+      if (value instanceof Fragment fragment) {
+        fragment.writeTo(out);
+      } else if (value instanceof CharSequence text) {
+        out.append(text);
+      } else {
+        out.append(String.valueOf(value));
+      }
+    }
+
+    private Assets.CriticalCss.Outline outline() {
+      if (outline == null) {
+        outline = Assets.CriticalCss.outline(name, segments);
+      }
+      return outline;
+    }
+  }
+
+  /**
+   * O arquivo de posts e uma listagem por tag, mais recentes primeiro e em páginas de tamanho fixo.
+   */
+  static final class PostIndex {
+    static final int PAGE_SIZE = Math.max(1, Integer.getInteger("kambas.page.size", 20));
+    static final String ARCHIVE = "all-posts";
+    private static final Pattern NON_SLUG = Pattern.compile("[^a-z0-9]+");
+
+    record Tag(String slug, String name, List<DataSet.Post> posts) {
+    }
+
+    /**
+     * Uma listagem paginada: o arquivo ({@code tag == null}) ou os posts de uma tag. A primeira
+     * página fica em all-posts.html ou tags/java.html; as seguintes em all-posts/2.html ou
+     * tags/java/2.html.
+     */
+    record Listing(Tag tag, List<DataSet.Post> posts, int pageSize) {
+      int pages() {
+        return Math.max(1, (posts.size() + pageSize - 1) / pageSize);
+      }
+
+      List<DataSet.Post> page(int number) {
+        int from = Math.min(posts.size(), (number - 1) * pageSize);
+        return posts.subList(from, Math.min(posts.size(), from + pageSize));
+      }
+
+      // Caminho relativo à raiz do site
+      String path(int number) {
+        String base = tag == null ? ARCHIVE : "tags/" + tag.slug();
+        return number == 1 ? base + ".html" : base + "/" + number + ".html";
+      }
+
+      String basePath(int number) {
+        return "../".repeat((int) path(number).chars().filter(c -> c == '/').count());
+      }
+    }
+
+    static List<Listing> listings(List<DataSet.Post> posts, List<Tag> tags) {
+      List<Listing> listings = new ArrayList<>(tags.size() + 1);
+      listings.add(new Listing(null, posts, PAGE_SIZE));
+      tags.forEach(tag -> listings.add(new Listing(tag, tag.posts(), PAGE_SIZE)));
+      return listings;
+    }
+
+    /**
+     * Agrupa os posts por tag numa única passagem. Tags que só diferem em maiúsculas ou acentos
+     * são a mesma tag; fica o nome com que aparece primeiro.
+     */
+    static List<Tag> tags(List<DataSet.Post> posts) {
+      Map<String, String> names = new HashMap<>();
+      Map<String, List<DataSet.Post>> bySlug = new TreeMap<>();
+      for (DataSet.Post post : posts) {
+        for (String name : post.tags()) {
+          String slug = slug(name);
+          names.putIfAbsent(slug, name);
+          bySlug.computeIfAbsent(slug, s -> new ArrayList<>()).add(post);
+        }
+      }
+      List<Tag> tags = new ArrayList<>(bySlug.size());
+      bySlug.forEach((slug, tagged) -> tags.add(new Tag(slug, names.get(slug), List.copyOf(tagged))));
+      return tags;
+    }
+
+    /** Lê {@code @tags Java, Spring Boot}; tags repetidas ou sem letras nem números são ignoradas. */
+    static List<String> parseTags(String value) {
+      Map<String, String> tags = new LinkedHashMap<>();
+      for (String name : value.split(",")) {
+        String trimmed = name.trim();
+        String slug = slug(trimmed);
+        if (!slug.isEmpty()) {
+          tags.putIfAbsent(slug, trimmed);
+        }
+      }
+      return List.copyOf(tags.values());
+    }
+
+    // "Spring Boot" → spring-boot, "Programação" → programacao
+    static String slug(String tag) {
+      String ascii = Normalizer.normalize(tag, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+      String slug = NON_SLUG.matcher(ascii.toLowerCase(Locale.ROOT)).replaceAll("-");
+      int start = 0;
+      int end = slug.length();
+      while (start < end && slug.charAt(start) == '-') {
+        start++;
+      }
+      while (end > start && slug.charAt(end - 1) == '-') {
+        end--;
+      }
+      return slug.substring(start, end);
+    }
+
+    static String tagPath(String tag) {
+      return "tags/" + slug(tag) + ".html";
+    }
+
+    static String tagPath(Tag tag) {
+      return "tags/" + tag.slug() + ".html";
+    }
+
+    // Os posts estão ordenados por ano, por isso basta contar as mudanças
+    static int years(List<DataSet.Post> posts) {
+      int years = 0;
+      int previous = Integer.MIN_VALUE;
+      for (DataSet.Post post : posts) {
+        if (post.year() != previous) {
+          years++;
+          previous = post.year();
+        }
+      }
+      return years;
+    }
+  }
+
+  /**
+   * Índice de pesquisa gerado na build e consultado no browser pelo main.js, dividido em shards
+   * pelos dois primeiros caracteres de cada termo; os resultados são ordenados por BM25.
+   */
+  static final class SearchIndex {
+    static final Path DEFAULT_PATH = Paths.get(".cache", "search-index.tsv");
+    static final String OUTPUT_DIR = "search";
+    private static final String HEADER = "# kambas-search v1";
+    private static final String DOCS = "docs";
+    private static final int TITLE_WEIGHT = 3;
+    private static final int SNIPPET_LENGTH = 160;
+
+    // Já sem acentos, tal como as palavras depois de normalizadas
+    static final Set<String> STOP_WORDS = Set.of(
+        "as", "os", "um", "uma", "uns", "umas", "de", "do", "da", "dos", "das", "em", "no", "na", "nos", "nas",
+        "num", "numa", "por", "pelo", "pela", "pelos", "pelas", "para", "pra", "com", "sem", "sob", "sobre",
+        "entre", "ate", "apos", "ou", "mas", "nem", "que", "se", "como", "quando", "onde", "porque", "pois",
+        "ao", "aos", "eu", "tu", "ele", "ela", "eles", "elas", "vos", "voce", "voces", "me", "te", "lhe", "lhes",
+        "seu", "sua", "seus", "suas", "meu", "minha", "meus", "minhas", "nosso", "nossa", "nossos", "nossas",
+        "este", "esta", "estes", "estas", "esse", "essa", "esses", "essas", "aquele", "aquela", "aqueles",
+        "aquelas", "isto", "isso", "aquilo", "ser", "sao", "foi", "era", "sera", "estar", "estao", "ter", "tem",
+        "tinha", "ha", "nao", "sim", "ja", "mais", "menos", "muito", "muita", "muitos", "muitas", "tambem",
+        "so", "ainda", "mesmo", "cada", "todo", "toda", "todos", "todas", "qual", "quais", "the", "and", "of",
+        "to", "in", "is", "for", "on", "with");
+
+    // Sufixos removidos pelo stemmer, do mais longo para o mais curto
+    static final List<String> SUFFIXES = List.of(
+        "amento", "imento", "idade", "mente", "acao", "ador", "edor", "idor", "ante", "ente", "avel", "ivel",
+        "ismo", "ista", "ando", "endo", "indo", "ado", "ido", "ada", "ida", "ar", "er", "ir");
+
+    /** O que é indexado de uma página; {@code keywords} conta com o mesmo peso do título. */
+    record Page(String type, Path output, String title, String snippet, String keywords, String html) {
+    }
+
+    record Document(String key, String hash, String type, String url, String title, String snippet, int length,
+        Map<String, Integer> terms) {
+    }
+
+    private final Path file;
+    private final Path siteDir;
+    private final Map<String, Document> previous;
+    private final Map<String, Integer> previousIds;
+    private final Map<String, String> previousDigests;
+    private final Map<String, Document> current = new ConcurrentHashMap<>();
+    private final Set<Path> writtenFiles = new HashSet<>();
+    private final Set<Path> removedFiles = new HashSet<>();
+
+    private SearchIndex(Path file, Path siteDir, Map<String, Document> previous, Map<String, Integer> previousIds,
+        Map<String, String> previousDigests) {
+      this.file = file;
+      this.siteDir = siteDir;
+      this.previous = previous;
+      this.previousIds = previousIds;
+      this.previousDigests = previousDigests;
+    }
+
+    /** Carrega o índice da build anterior; sem {@code incremental} começa vazio. */
+    static SearchIndex load(Path file, Path siteDir, boolean incremental) throws IOException {
+      Map<String, Document> previous = new HashMap<>();
+      Map<String, Integer> ids = new HashMap<>();
+      Map<String, String> digests = new HashMap<>();
+      // Sem o docs.json publicado (site/ apagado à mão) os shards também têm de ser regravados
+      if (!incremental || !Files.exists(file) || !Files.exists(siteDir.resolve(OUTPUT_DIR).resolve(DOCS + ".json"))) {
+        return new SearchIndex(file, siteDir, previous, ids, digests);
+      }
+
+      List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+        return new SearchIndex(file, siteDir, previous, ids, digests);
+      }
+      for (String line : lines.subList(1, lines.size())) {
+        String[] parts = line.split("\t", -1);
+        if (parts[0].equals("shard") && parts.length == 3) {
+          digests.put(parts[1], parts[2]);
+        } else if (parts[0].equals("doc") && parts.length == 10) {
+          Map<String, Integer> terms = new HashMap<>();
+          for (String posting : parts[9].split(" ")) {
+            int colon = posting.lastIndexOf(':');
+            if (colon > 0) {
+              terms.put(posting.substring(0, colon), Integer.parseInt(posting.substring(colon + 1)));
+            }
+          }
+          previous.put(parts[2], new Document(parts[2], parts[3], parts[4], parts[5], parts[6], parts[7],
+              Integer.parseInt(parts[8]), terms));
+          ids.put(parts[2], Integer.parseInt(parts[1]));
+        } else {
+          // Ficheiro corrompido: recomeça do zero
+          return new SearchIndex(file, siteDir, new HashMap<>(), new HashMap<>(), new HashMap<>());
+        }
+      }
+      return new SearchIndex(file, siteDir, previous, ids, digests);
+    }
+
+    /**
+     * Indexa uma página gerada a partir de {@code source}. Se nem a fonte nem os dados da página
+     * mudaram desde a última build, os termos guardados são reaproveitados sem tokenizar de novo.
+     */
+    void add(Path source, String md, Page page) {
+      String key = source.normalize().toString().replace('\\', '/');
+      String url = siteDir.relativize(page.output()).toString().replace('\\', '/');
+      String hash = Manifest.digest(List.of(page.type(), url, page.title(), page.snippet(), page.keywords(), md));
+      Document before = previous.get(key);
+      if (before != null && before.hash().equals(hash)) {
+        current.put(key, before);
+        return;
+      }
+
+      Tokens tokens = new Tokens();
+      tokenize(page.title(), false, TITLE_WEIGHT, tokens);
+      tokenize(page.keywords(), false, TITLE_WEIGHT, tokens);
+      tokenize(page.snippet(), false, 1, tokens);
+      tokenize(page.html(), true, 1, tokens);
+      String snippet = page.snippet().isBlank() ? tokens.text.toString() : page.snippet();
+      current.put(key, new Document(key, hash, page.type(), url, clean(page.title()), clean(snippet), tokens.length,
+          tokens.terms));
+    }
+
+    // Documentos indexados nesta build; ver Shard
+    Collection<Document> documents() {
+      return current.values();
+    }
+
+    // O documento de uma fonte, ou null se não foi indexada nesta build; ver Related
+    Document document(Path source) {
+      return current.get(source.normalize().toString().replace('\\', '/'));
+    }
+
+    /** Acrescenta um documento indexado por outro processo (uma fatia, ver {@link Shard}). */
+    void adopt(Document doc) {
+      current.put(doc.key(), doc);
+    }
+
+    /**
+     * Grava search/docs.json e os shards afetados pelos documentos novos, alterados ou removidos, e
+     * guarda o índice para a próxima build.
+     */
+    void write(Metrics metrics) throws IOException {
+      // Documentos que já existiam mantêm o número; os novos ocupam os buracos deixados pelos removidos
+      Map<String, Integer> ids = new HashMap<>();
+      BitSet used = new BitSet();
+      List<String> added = new ArrayList<>();
+      for (String key : current.keySet()) {
+        Integer id = previousIds.get(key);
+        if (id != null) {
+          ids.put(key, id);
+          used.set(id);
+        } else {
+          added.add(key);
+        }
+      }
+      Collections.sort(added);
+      for (String key : added) {
+        int id = used.nextClearBit(0);
+        ids.put(key, id);
+        used.set(id);
+      }
+
+      // Um shard só muda se algum termo seu pertence a um documento que mudou
+      Set<String> dirty = new HashSet<>();
+      Set<String> keys = new HashSet<>(previous.keySet());
+      keys.addAll(current.keySet());
+      for (String key : keys) {
+        Document before = previous.get(key);
+        Document after = current.get(key);
+        if (before != after) {
+          if (before != null) {
+            before.terms().keySet().forEach(term -> dirty.add(shard(term)));
+          }
+          if (after != null) {
+            after.terms().keySet().forEach(term -> dirty.add(shard(term)));
+          }
+        }
+      }
+
+      Document[] byId = new Document[used.length()];
+      current.forEach((key, doc) -> byId[ids.get(key)] = doc);
+
+      Map<String, Map<String, StringBuilder>> shards = new TreeMap<>();
+      for (String shard : dirty) {
+        shards.put(shard, new TreeMap<>());
+      }
+      for (int id = 0; id < byId.length; id++) {
+        if (byId[id] == null) {
+          continue;
+        }
+        for (var term : byId[id].terms().entrySet()) {
+          var postings = shards.get(shard(term.getKey()));
+          if (postings != null) {
+            StringBuilder list = postings.computeIfAbsent(term.getKey(), t -> new StringBuilder());
+            list.append(list.isEmpty() ? "" : ",").append(id).append(',').append(term.getValue());
+          }
+        }
+      }
+
+      Path outDir = siteDir.resolve(OUTPUT_DIR);
+      Map<String, String> digests = new TreeMap<>(previousDigests);
+      for (var shard : shards.entrySet()) {
+        Path shardFile = outDir.resolve(shard.getKey() + ".json");
+        if (shard.getValue().isEmpty()) {
+          digests.remove(shard.getKey());
+          if (Files.deleteIfExists(shardFile)) {
+            removedFiles.add(shardFile);
+          }
+          continue;
+        }
+        StringBuilder json = new StringBuilder("{");
+        shard.getValue().forEach((term, postings) -> json.append(json.length() > 1 ? "," : "")
+            .append('"').append(term).append("\":[").append(postings).append(']'));
+        writeIfChanged(shard.getKey(), shardFile, json.append("}\n").toString(), digests, metrics);
+      }
+
+      long totalLength = 0;
+      StringBuilder docs = new StringBuilder();
+      for (Document doc : byId) {
+        docs.append(docs.isEmpty() ? "" : ",\n");
+        if (doc == null) {
+          docs.append("null");
+          continue;
+        }
+        totalLength += doc.length();
+        docs.append("[\"").append(doc.type()).append("\",\"").append(Assets.jsonEscape(doc.url())).append("\",\"")
+            .append(Assets.jsonEscape(doc.title())).append("\",\"").append(Assets.jsonEscape(doc.snippet()))
+            .append("\",").append(doc.length()).append(']');
+      }
+      StringBuilder json = new StringBuilder(docs.length() + 2048);
+      json.append("{\"n\":").append(current.size())
+          .append(",\"avgdl\":").append(current.isEmpty() ? 0 : totalLength / current.size())
+          .append(",\"stop\":[").append(quoted(new TreeSet<>(STOP_WORDS)))
+          .append("],\"suffixes\":[").append(quoted(SUFFIXES))
+          .append("],\"docs\":[\n").append(docs).append("\n]}\n");
+      writeIfChanged(DOCS, outDir.resolve(DOCS + ".json"), json.toString(), digests, metrics);
+
+      save(ids, digests);
+      if (!writtenFiles.isEmpty() || !removedFiles.isEmpty()) {
+        println("Índice de pesquisa: " + current.size() + " documentos, " + writtenFiles.size()
+            + " ficheiros gravados.");
+      }
+    }
+
+    // Ficheiros de search/ gravados ou apagados nesta build
+    Set<Path> writtenFiles() {
+      return writtenFiles;
+    }
+
+    Set<Path> removedFiles() {
+      return removedFiles;
+    }
+
+    private void writeIfChanged(String name, Path target, String content, Map<String, String> digests,
+        Metrics metrics) throws IOException {
+      String digest = Manifest.digest(List.of(content));
+      if (digest.equals(previousDigests.get(name)) && Files.exists(target)) {
+        return;
+      }
+      var source = metrics.source(target);
+      Processor.write(target, content, source);
+      source.finish();
+      digests.put(name, digest);
+      writtenFiles.add(target);
+    }
+
+    private void save(Map<String, Integer> ids, Map<String, String> digests) throws IOException {
+      StringBuilder sb = new StringBuilder();
+      sb.append(HEADER).append("\n");
+      digests.forEach((name, digest) -> sb.append("shard\t").append(name).append("\t").append(digest).append("\n"));
+      new TreeMap<>(current).forEach((key, doc) -> {
+        sb.append("doc\t").append(ids.get(key)).append("\t").append(key).append("\t").append(doc.hash())
+            .append("\t").append(doc.type()).append("\t").append(doc.url()).append("\t").append(doc.title())
+            .append("\t").append(doc.snippet()).append("\t").append(doc.length()).append("\t");
+        String separator = "";
+        for (var term : new TreeMap<>(doc.terms()).entrySet()) {
+          sb.append(separator).append(term.getKey()).append(':').append(term.getValue());
+          separator = " ";
+        }
+        sb.append("\n");
+      });
+
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.writeString(tmp, sb.toString(), StandardCharsets.UTF_8);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class Tokens {
+      final Map<String, Integer> terms = new HashMap<>();
+      final StringBuilder text = new StringBuilder();
+      int length;
+
+      void text(char c) {
+        if (text.length() < SNIPPET_LENGTH * 4 && !(c == ' ' && (text.isEmpty() || text.charAt(text.length() - 1) == ' '))) {
+          text.append(c);
+        }
+      }
+    }
+
+    /**
+     * Divide {@code text} em palavras numa única passagem. Com {@code html}, as tags e as entidades
+     * são tratadas como separadores e o texto visível é guardado para o resumo.
+     */
+    private static void tokenize(String text, boolean html, int weight, Tokens tokens) {
+      StringBuilder word = new StringBuilder();
+      int n = text.length();
+      int i = 0;
+      while (i < n) {
+        char c = text.charAt(i);
+        if (html && c == '<') {
+          addWord(word, weight, tokens);
+          int close = text.indexOf('>', i);
+          i = close < 0 ? n : close + 1;
+          tokens.text(' ');
+          continue;
+        }
+        if (html && c == '&') {
+          int semi = text.indexOf(';', i);
+          if (semi > i && semi - i <= 10) {
+            addWord(word, weight, tokens);
+            i = semi + 1;
+            tokens.text(' ');
+            continue;
+          }
+        }
+        if (Character.isLetterOrDigit(c)) {
+          word.append(Character.toLowerCase(c));
+        } else {
+          addWord(word, weight, tokens);
+        }
+        if (html) {
+          tokens.text(Character.isWhitespace(c) ? ' ' : c);
+        }
+        i++;
+      }
+      addWord(word, weight, tokens);
+    }
+
+    private static void addWord(StringBuilder word, int weight, Tokens tokens) {
+      if (word.isEmpty()) {
+        return;
+      }
+      String normalized = normalize(word);
+      word.setLength(0);
+      if (normalized.length() < 2 || STOP_WORDS.contains(normalized)) {
+        return;
+      }
+      tokens.length++;
+      tokens.terms.merge(stem(normalized), weight, Integer::sum);
+    }
+
+    // Minúsculas sem acentos; o main.js faz o mesmo com normalize('NFD')
+    static String normalize(CharSequence word) {
+      for (int i = 0; i < word.length(); i++) {
+        if (word.charAt(i) >= 0x80) {
+          return Normalizer.normalize(word, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        }
+      }
+      return word.toString();
+    }
+
+    /**
+     * Stemmer leve para português: remove o plural, um sufixo derivacional ou verbal e a vogal
+     * final. O main.js tem a mesma implementação para as palavras pesquisadas.
+     */
+    static String stem(String word) {
+      if (word.length() < 4) {
+        return word;
+      }
+      String w = word;
+      if (w.endsWith("ns")) {
+        w = w.substring(0, w.length() - 2) + "m";
+      } else if (w.endsWith("oes") || w.endsWith("aes")) {
+        w = w.substring(0, w.length() - 3) + "ao";
+      } else if (w.endsWith("ais") || w.endsWith("eis") || w.endsWith("ois")) {
+        w = w.substring(0, w.length() - 2) + "l";
+      } else if (w.endsWith("res") || w.endsWith("zes") || w.endsWith("les")) {
+        w = w.substring(0, w.length() - 2);
+      } else if (w.endsWith("s") && !w.endsWith("ss") && !w.endsWith("us") && !w.endsWith("is")) {
+        w = w.substring(0, w.length() - 1);
+      }
+      for (String suffix : SUFFIXES) {
+        if (w.endsWith(suffix) && w.length() - suffix.length() >= 3) {
+          w = w.substring(0, w.length() - suffix.length());
+          break;
+        }
+      }
+      if (w.length() > 3 && "aeo".indexOf(w.charAt(w.length() - 1)) >= 0) {
+        w = w.substring(0, w.length() - 1);
+      }
+      return w;
+    }
+
+    private static String shard(String term) {
+      return term.substring(0, 2);
+    }
+
+    private static String quoted(Collection<String> words) {
+      return words.stream().map(w -> "\"" + w + "\"").collect(Collectors.joining(","));
+    }
+
+    // Título e resumo vão numa linha do .tsv
+    private static String clean(String s) {
+      String flat = s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ').strip();
+      return flat.length() <= SNIPPET_LENGTH ? flat : flat.substring(0, SNIPPET_LENGTH).strip() + "…";
+    }
+  }
+
+  /**
+   * Os itens relacionados de cada post e de cada evento, por semelhança TF-IDF de termos e tags.
+   * A ordem das somas e dos empates é fixa, por isso o resultado não depende do modo da build.
+   */
+  static final class Related {
+    static final int SIZE = Math.max(0, Integer.getInteger("kambas.related.size", 3));
+    private static final int TAG_WEIGHT = 5;
+    private static final int QUERY_TERMS = 25;
+    private static final int MAX_POSTINGS = 1000;
+
+    private final Map<Object, List<?>> neighbours = new IdentityHashMap<>();
+
+    /** Calcula os relacionados de todos os tipos com {@link Processor.ContentType#related()}. */
+    static Related compute(Processor.Corpus corpus, SearchIndex search) throws IOException {
+      var related = new Related();
+      for (var type : Processor.TYPES) {
+        if (type.related()) {
+          related.compute(type, corpus, search);
+        }
+      }
+      return related;
+    }
+
+    /** Os relacionados de {@code item}, do mais próximo para o menos próximo. */
+    @SuppressWarnings("unchecked")
+    <T> List<T> of(T item) {
+      return (List<T>) neighbours.getOrDefault(item, List.of());
+    }
+
+    // Relacionados calculados noutro processo; ver Shard#readRelated
+    <T> void put(T item, List<T> list) {
+      neighbours.put(item, list);
+    }
+
+    // O que a página mostra dos relacionados está todo no resumo de cada um; ver Manifest.trackSource
+    static <T> String fingerprint(Processor.ContentType<T> type, List<T> items) throws IOException {
+      var bytes = new ByteArrayOutputStream();
+      try (var out = new DataOutputStream(bytes)) {
+        for (T item : items) {
+          type.write(item, out);
+        }
+      }
+      return Manifest.digest(List.of(HexFormat.of().formatHex(bytes.toByteArray())));
+    }
+
+    private <T> void compute(Processor.ContentType<T> type, Processor.Corpus corpus, SearchIndex search)
+        throws IOException {
+      var items = corpus.origins(type);
+      int n = items.size();
+      if (n < 2 || SIZE == 0) {
+        return;
+      }
+
+      // Termos de cada documento por ordem alfabética, já com as tags; só os números ficam
+      Map<String, Integer> ids = new HashMap<>();
+      List<Integer> df = new ArrayList<>();
+      int[][] terms = new int[n][];
+      int[][] counts = new int[n][];
+      for (int i = 0; i < n; i++) {
+        var origin = items.get(i);
+        var doc = search.document(origin.source());
+        var features = new TreeMap<String, Integer>(doc == null ? Map.of() : doc.terms());
+        for (String tag : type.tags(origin.item())) {
+          // Os termos do índice só têm letras e algarismos: o # não colide com nenhum
+          features.merge("#" + PostIndex.slug(tag), TAG_WEIGHT, Integer::sum);
+        }
+        terms[i] = new int[features.size()];
+        counts[i] = new int[features.size()];
+        int j = 0;
+        for (var feature : features.entrySet()) {
+          int id = ids.computeIfAbsent(feature.getKey(), key -> {
+            df.add(0);
+            return df.size() - 1;
+          });
+          df.set(id, df.get(id) + 1);
+          terms[i][j] = id;
+          counts[i][j++] = feature.getValue();
+        }
+      }
+
+      // Pesos TF-IDF normalizados; um termo presente em todos os documentos pesa zero
+      double[][] weights = new double[n][];
+      for (int i = 0; i < n; i++) {
+        weights[i] = new double[terms[i].length];
+        double norm = 0;
+        for (int j = 0; j < terms[i].length; j++) {
+          double w = (1 + StrictMath.log(counts[i][j])) * StrictMath.log((double) n / df.get(terms[i][j]));
+          weights[i][j] = w;
+          norm += w * w;
+        }
+        norm = Math.sqrt(norm);
+        for (int j = 0; j < terms[i].length && norm > 0; j++) {
+          weights[i][j] /= norm;
+        }
+      }
+
+      // Índice invertido: por cada termo útil, os documentos pela ordem das listagens
+      int[][] postings = new int[df.size()][];
+      double[][] postingWeights = new double[df.size()][];
+      int[] filled = new int[df.size()];
+      for (int id = 0; id < df.size(); id++) {
+        int count = df.get(id);
+        if (count >= 2 && count < n && count <= MAX_POSTINGS) {
+          postings[id] = new int[count];
+          postingWeights[id] = new double[count];
+        }
+      }
+      for (int i = 0; i < n; i++) {
+        for (int j = 0; j < terms[i].length; j++) {
+          int id = terms[i][j];
+          if (postings[id] != null) {
+            postings[id][filled[id]] = i;
+            postingWeights[id][filled[id]++] = weights[i][j];
+          }
+        }
+      }
+
+      // Cada tarefa trata uma fatia contígua dos documentos com o seu próprio acumulador
+      int tasks = Math.min(n, 4 * Runtime.getRuntime().availableProcessors());
+      List<Future<int[][]>> futures = new ArrayList<>(tasks);
+      for (int t = 0; t < tasks; t++) {
+        int from = (int) ((long) n * t / tasks);
+        int to = (int) ((long) n * (t + 1) / tasks);
+        futures.add(Processor.EXECUTOR.submit(() -> {
+          double[] scores = new double[n];
+          int[] touched = new int[n];
+          int[][] found = new int[to - from][];
+          for (int i = from; i < to; i++) {
+            found[i - from] = nearest(i, terms[i], weights[i], postings, postingWeights, scores, touched);
+          }
+          return found;
+        }));
+      }
+      int i = 0;
+      for (var future : futures) {
+        for (int[] nearest : Processor.join(future)) {
+          List<T> list = new ArrayList<>(nearest.length);
+          for (int other : nearest) {
+            list.add(items.get(other).item());
+          }
+          neighbours.put(items.get(i++).item(), List.copyOf(list));
+        }
+      }
+    }
+
+    // Os SIZE documentos mais próximos de {@code doc}, do mais próximo para o menos próximo
+    private static int[] nearest(int doc, int[] terms, double[] weights, int[][] postings,
+        double[][] postingWeights, double[] scores, int[] touched) {
+      // Os termos mais fortes; empates pela ordem alfabética, que é a dos arrays
+      Integer[] query = IntStream.range(0, terms.length)
+          .filter(j -> postings[terms[j]] != null)
+          .boxed()
+          .sorted(Comparator.comparingDouble((Integer j) -> -weights[j]).thenComparingInt(j -> j))
+          .limit(QUERY_TERMS)
+          .toArray(Integer[]::new);
+
+      int count = 0;
+      for (int j : query) {
+        int[] docs = postings[terms[j]];
+        double[] docWeights = postingWeights[terms[j]];
+        for (int k = 0; k < docs.length; k++) {
+          int other = docs[k];
+          if (other != doc) {
+            if (scores[other] == 0) {
+              touched[count++] = other;
+            }
+            scores[other] += weights[j] * docWeights[k];
+          }
+        }
+      }
+
+      // Heap limitado com o pior candidato no topo: menor pontuação e, no empate, o que vem depois
+      PriorityQueue<Integer> heap = new PriorityQueue<>(SIZE + 1,
+          Comparator.comparingDouble((Integer other) -> scores[other]).thenComparing(Comparator.reverseOrder()));
+      for (int k = 0; k < count; k++) {
+        heap.add(touched[k]);
+        if (heap.size() > SIZE) {
+          heap.poll();
+        }
+      }
+      int[] nearest = new int[heap.size()];
+      for (int k = nearest.length - 1; k >= 0; k--) {
+        nearest[k] = heap.poll();
+      }
+      for (int k = 0; k < count; k++) {
+        scores[touched[k]] = 0;
+      }
+      return nearest;
+    }
+  }
+
+  static class Build {
+    record Result(List<DataSet.Post> posts, List<DataSet.Event> events, List<DataSet.Member> members,
+        Manifest manifest, SearchIndex search, ParseCache cache, Staging staging, Metrics metrics) {
+    }
+
+    static Result run(Path siteDir, boolean incremental) throws Exception {
+      return run(siteDir, incremental, null);
+    }
+
+    /**
+     * Build num processo que fica a correr (servidor de desenvolvimento, daemon): com
+     * {@code previous} o manifesto e os documentos convertidos vêm da build anterior, já em
+     * memória, em vez de serem lidos de .cache.
+     */
+    static Result run(Path siteDir, boolean incremental, Result previous) throws Exception {
+      var metrics = new Metrics(incremental);
+
+      // No modo incremental reaproveita o manifesto da última build; caso contrário recomeça do zero
+      metrics.phase(Metrics.Phase.MANIFEST);
+      var manifest = previous != null
+          ? previous.manifest().next(siteDir, incremental)
+          : Manifest.load(Manifest.DEFAULT_PATH, siteDir, incremental);
+      // A cache de parsing também serve builds completas: só depende do conteúdo das fontes
+      var cache = previous != null ? previous.cache().next() : ParseCache.load(ParseCache.DEFAULT_PATH);
+      var staging = Staging.inPlace(siteDir);
+      if (!manifest.isIncremental()) {
+        // Uma build completa é gerada à parte e só substitui site/ no fim
+        metrics.phase(Metrics.Phase.CLEAN);
+        staging = Staging.begin(siteDir);
+      }
+      Path outDir = staging.dir();
+      var search = SearchIndex.load(SearchIndex.DEFAULT_PATH, outDir, manifest.isIncremental());
+
+      // Os templates são compilados já com os URLs dos assets com fingerprint
+      metrics.phase(Metrics.Phase.ASSETS);
+      Assets.process(staging, metrics);
+      metrics.phase(Metrics.Phase.TEMPLATES);
+      TemplateEngine.loadTemplates();
+
+      // Posts, eventos e membros saem de uma só travessia e são processados em paralelo
+      metrics.phase(Metrics.Phase.CONTENT);
+      var corpus = Processor.processContent(outDir, manifest, cache, search, metrics);
+      var posts = corpus.get(Processor.POSTS);
+      var events = corpus.get(Processor.EVENTS);
+      var members = corpus.get(Processor.MEMBERS);
+
+      // Posts e eventos mostram os relacionados, que só se conhecem com o corpus completo
+      metrics.phase(Metrics.Phase.RELATED);
+      Processor.renderPages(outDir, corpus, Related.compute(corpus, search), manifest, metrics);
+
+      metrics.phase(Metrics.Phase.AGGREGATES);
+      Render.render(outDir, corpus, manifest, metrics);
+
+      metrics.phase(Metrics.Phase.SEARCH);
+      search.write(metrics);
+
+      metrics.phase(Metrics.Phase.PUBLISH);
+      manifest.removeStaleOutputs();
+      staging.precompress(metrics);
+      staging.publish();
+
+      metrics.phase(Metrics.Phase.FINALIZE);
+      manifest.save();
+      cache.save();
+      metrics.finish(manifest);
+      return new Result(posts, events, members, manifest, search, cache, staging, metrics);
+    }
+
+    /**
+     * Uma fatia de uma build em vários processos: converte as fontes de {@code shard}, gera as
+     * páginas sem relacionados em site.shards/I/ e grava o resumo que {@link #related} e
+     * {@link #merge} leem. É sempre uma build completa, e o manifesto, o índice de pesquisa e a
+     * cache de parsing partilhados não são tocados.
+     */
+    static Result shard(Path siteDir, Shard shard) throws Exception {
+      var metrics = new Metrics(false);
+
+      metrics.phase(Metrics.Phase.MANIFEST);
+      Path shardDir = shard.dir(siteDir);
+      var manifest = Manifest.load(Manifest.DEFAULT_PATH, shardDir, false);
+      var cache = ParseCache.load(shard.cache());
+
+      // O resumo anterior desta fatia sai primeiro, para que uma fatia que falhe não chegue ao merge
+      metrics.phase(Metrics.Phase.CLEAN);
+      Files.deleteIfExists(shard.summary(siteDir));
+      Files.deleteIfExists(shard.pages(siteDir));
+      shard.removeOthers(siteDir);
+      var staging = Staging.begin(shardDir);
+      Path outDir = staging.dir();
+      var search = SearchIndex.load(SearchIndex.DEFAULT_PATH, outDir, false);
+
+      metrics.phase(Metrics.Phase.ASSETS);
+      Assets.process(staging, metrics);
+      metrics.phase(Metrics.Phase.TEMPLATES);
+      TemplateEngine.loadTemplates();
+
+      metrics.phase(Metrics.Phase.CONTENT);
+      var corpus = Processor.processContent(outDir, manifest, cache, search, metrics, shard);
+
+      // A compressão fica para o merge, que a faz de uma vez sobre o site inteiro
+      metrics.phase(Metrics.Phase.PUBLISH);
+      staging.publish();
+
+      metrics.phase(Metrics.Phase.FINALIZE);
+      shard.save(siteDir, corpus, manifest, search);
+      cache.save();
+      metrics.finish(manifest);
+      return new Result(corpus.get(Processor.POSTS), corpus.get(Processor.EVENTS), corpus.get(Processor.MEMBERS),
+          manifest, search, cache, staging, metrics);
+    }
+
+    /** Calcula os relacionados de todas as fatias, a partir dos resumos, para o passo pages. */
+    static void related(Path siteDir) throws IOException {
+      long start = System.nanoTime();
+      int items = Shard.related(siteDir);
+      println("Relacionados calculados para " + items + " itens em "
+          + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms: " + Shard.root(siteDir));
+    }
+
+    /**
+     * O segundo passo de uma fatia: com os relacionados já calculados, gera em site.shards/I/ as
+     * páginas dos seus itens que os mostram, com os corpos da sua cache de parsing.
+     */
+    static Result pages(Path siteDir, Shard shard) throws Exception {
+      var metrics = new Metrics(false);
+
+      metrics.phase(Metrics.Phase.MANIFEST);
+      Path shardDir = shard.dir(siteDir);
+      var manifest = Manifest.load(Manifest.DEFAULT_PATH, shardDir, false);
+      var cache = ParseCache.load(shard.cache());
+
+      metrics.phase(Metrics.Phase.CLEAN);
+      Files.deleteIfExists(shard.pages(siteDir));
+      // As páginas juntam-se às da primeira passagem, que também já tem os assets
+      var staging = Staging.inPlace(shardDir);
+      var search = SearchIndex.load(SearchIndex.DEFAULT_PATH, shardDir, false);
+
+      metrics.phase(Metrics.Phase.ASSETS);
+      Assets.process(staging, metrics);
+      metrics.phase(Metrics.Phase.TEMPLATES);
+      TemplateEngine.loadTemplates();
+
+      metrics.phase(Metrics.Phase.RELATED);
+      var related = new Related();
+      var corpus = shard.readRelated(siteDir, cache, related);
+      Processor.renderPages(shardDir, corpus, related, manifest, metrics);
+
+      // A cache fica como a primeira passagem a gravou: aqui só se leem corpos
+      metrics.phase(Metrics.Phase.FINALIZE);
+      shard.savePages(siteDir, manifest);
+      metrics.finish(manifest);
+      return new Result(corpus.get(Processor.POSTS), corpus.get(Processor.EVENTS), List.of(), manifest, search,
+          cache, staging, metrics);
+    }
+
+    /**
+     * Junta as fatias de site.shards/ numa build completa: recolhe as páginas já geradas, renderiza
+     * as agregadas, o sitemap e os feeds a partir dos resumos e grava o índice de pesquisa. O
+     * resultado é o mesmo de {@link #run} num só processo. Depois de publicado, site.shards/ é
+     * apagado: as fatias servem para um merge só.
+     */
+    static Result merge(Path siteDir) throws Exception {
+      var metrics = new Metrics(false);
+
+      metrics.phase(Metrics.Phase.MANIFEST);
+      var manifest = Manifest.load(Manifest.DEFAULT_PATH, siteDir, false);
+      // Só serve para os corpos dos feeds; o merge não converte documentos e não a grava
+      var cache = ParseCache.load(ParseCache.DEFAULT_PATH);
+
+      metrics.phase(Metrics.Phase.CLEAN);
+      var staging = Staging.begin(siteDir);
+      Path outDir = staging.dir();
+      var search = SearchIndex.load(SearchIndex.DEFAULT_PATH, outDir, false);
+
+      metrics.phase(Metrics.Phase.ASSETS);
+      Assets.process(staging, metrics);
+      metrics.phase(Metrics.Phase.TEMPLATES);
+      TemplateEngine.loadTemplates();
+
+      metrics.phase(Metrics.Phase.CONTENT);
+      var corpus = Shard.merge(siteDir, outDir, cache, manifest, search);
+
+      metrics.phase(Metrics.Phase.AGGREGATES);
+      Render.render(outDir, corpus, manifest, metrics);
+
+      metrics.phase(Metrics.Phase.SEARCH);
+      search.write(metrics);
+
+      metrics.phase(Metrics.Phase.PUBLISH);
+      manifest.removeStaleOutputs();
+      staging.precompress(metrics);
+      staging.publish();
+      Staging.clean(Shard.root(siteDir));
+
+      metrics.phase(Metrics.Phase.FINALIZE);
+      manifest.save();
+      metrics.finish(manifest);
+      return new Result(corpus.get(Processor.POSTS), corpus.get(Processor.EVENTS), corpus.get(Processor.MEMBERS),
+          manifest, search, cache, staging, metrics);
+    }
+
+    /** Grava o relatório da build e devolve o resumo mostrado no fim. */
+    static List<String> summary(Path siteDir, Result result, List<String> options) throws IOException {
+      var manifest = result.manifest();
+      var metrics = result.metrics();
+      var report = Metrics.reportPath(options);
+      metrics.writeReport(report);
+
+      List<String> lines = new ArrayList<>();
+      lines.add("Site gerado em: " + siteDir.toAbsolutePath());
+      lines.add("Posts processados: " + result.posts().size());
+      lines.add("Eventos processados: " + result.events().size());
+      lines.add("Membros processados: " + result.members().size());
+      lines.add("Páginas geradas: " + manifest.renderedCount() + " (reaproveitadas: " + manifest.skippedCount() + ")");
+      if (result.staging().isStaged()) {
+        var staging = result.staging();
+        lines.add("Ficheiros publicados: " + staging.changedCount() + " alterados, " + staging.unchangedCount()
+            + " inalterados, " + staging.removedCount() + " removidos");
+      }
+      lines.add("Documentos convertidos: " + result.cache().misses() + " (da cache: " + result.cache().hits() + ")");
+      metrics.slowest(1).forEach(source -> lines.add("Ficheiro mais lento: " + source.file() + " ("
+          + TimeUnit.NANOSECONDS.toMillis(source.nanos()) + " ms)"));
+      lines.add("Pico de heap: " + metrics.peakHeap() / (1024 * 1024) + " MB");
+      lines.add("Relatório da build: " + report);
+      lines.add("Tempo total: " + metrics.totalMillis() + " ms");
+      return lines;
+    }
+  }
+
+  /**
+   * Uma fatia das fontes, para builds em vários processos ou em jobs de uma matriz de CI
+   * ({@code --shard=I/N}, com I de 0 a N-1); os passos e os ficheiros estão descritos no README.
+   */
+  record Shard(int index, int count) {
+    static final Shard ALL = new Shard(0, 1);
+    private static final int MAGIC = 0x4B534832; // "KSH2"
+    private static final int RELATED_MAGIC = 0x4B535231; // "KSR1"
+    private static final int PAGES_MAGIC = 0x4B535031; // "KSP1"
+    private static final String SUMMARY = ".summary";
+    private static final String PAGES = ".pages";
+    private static final String RELATED = "related.bin";
+
+    /** O resumo de uma fatia, já com o cabeçalho verificado; {@code in} está a seguir ao cabeçalho. */
+    private record Summary(Shard shard, String stamp, ByteBuffer in) {
+    }
+
+    @FunctionalInterface
+    private interface Contents {
+      void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    /** A fatia pedida com {@code --shard=I/N}, ou null numa build normal. */
+    static Shard of(List<String> options) {
+      String option = options.stream().filter(o -> o.startsWith("--shard=")).findFirst().orElse(null);
+      if (option == null) {
+        return null;
+      }
+      String[] parts = option.substring("--shard=".length()).split("/");
+      try {
+        var shard = new Shard(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        if (parts.length == 2 && shard.count() > 0 && shard.index() >= 0 && shard.index() < shard.count()) {
+          return shard;
+        }
+      } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+        // segue para o erro
+      }
+      throw new IllegalArgumentException("Fatia inválida: " + option + " (esperado --shard=I/N, com 0 <= I < N)");
+    }
+
+    boolean owns(Path source) {
+      return Math.floorMod(Manifest.key(source).hashCode(), count) == index;
+    }
+
+    static Path root(Path siteDir) {
+      return siteDir.resolveSibling(siteDir.getFileName() + ".shards");
+    }
+
+    Path dir(Path siteDir) {
+      return root(siteDir).resolve(String.valueOf(index));
+    }
+
+    Path summary(Path siteDir) {
+      return root(siteDir).resolve(index + SUMMARY);
+    }
+
+    Path pages(Path siteDir) {
+      return root(siteDir).resolve(index + PAGES);
+    }
+
+    // Cada fatia tem a sua cache: fatias que correm ao mesmo tempo não gravam o mesmo ficheiro
+    Path cache() {
+      return Paths.get(".cache", "parse-cache-" + index + "-of-" + count + ".bin");
+    }
+
+    Path report() {
+      return Paths.get(".cache", "build-report-shard-" + index + ".json");
+    }
+
+    // Fatias de uma divisão anterior em mais partes não podem ir parar ao merge
+    void removeOthers(Path siteDir) throws IOException {
+      Path root = root(siteDir);
+      if (!Files.isDirectory(root)) {
+        return;
+      }
+      List<Path> stale;
+      try (Stream<Path> list = Files.list(root)) {
+        stale = list.filter(p -> {
+          String name = p.getFileName().toString().replace(SUMMARY, "").replace(PAGES, "");
+          return name.chars().allMatch(Character::isDigit) && !name.isEmpty() && Integer.parseInt(name) >= count;
+        }).toList();
+      }
+      for (Path path : stale) {
+        if (Files.isDirectory(path)) {
+          Staging.clean(path);
+        } else {
+          Files.delete(path);
+        }
+      }
+    }
+
+    /** Grava o resumo da fatia: os itens sem corpo, as entradas do manifesto e os documentos da pesquisa. */
+    void save(Path siteDir, Processor.Corpus corpus, Manifest manifest, SearchIndex search) throws IOException {
+      write(summary(siteDir), out -> {
+        out.writeInt(MAGIC);
+        ParseCache.writeString(out, ParseCache.version());
+        out.writeLong(LocalDate.now().toEpochDay());
+        out.writeInt(index);
+        out.writeInt(count);
+        // Identifica esta travessia; os relacionados e as páginas calculados a partir dela guardam-no
+        ParseCache.writeString(out, UUID.randomUUID().toString());
+        for (var type : Processor.TYPES) {
+          writeItems(type, corpus, out);
+        }
+        writeEntries(manifest, manifest::relative, out);
+        var documents = search.documents();
+        out.writeInt(documents.size());
+        for (var doc : documents) {
+          for (String field : List.of(doc.key(), doc.hash(), doc.type(), doc.url(), doc.title(), doc.snippet())) {
+            ParseCache.writeString(out, field);
+          }
+          out.writeInt(doc.length());
+          out.writeInt(doc.terms().size());
+          for (var term : doc.terms().entrySet()) {
+            ParseCache.writeString(out, term.getKey());
+            out.writeInt(term.getValue());
+          }
+        }
+      });
+    }
+
+    /**
+     * Calcula os relacionados de todo o corpus a partir dos resumos e grava-os em related.bin: os
+     * resumos dos itens dos tipos com relacionados e, por cada um, as posições dos seus vizinhos.
+     * Devolve o número de itens.
+     */
+    static int related(Path siteDir) throws IOException {
+      var summaries = summaries(siteDir);
+      // Só os termos indexados contam; nenhum corpo é lido, por isso o corpus dispensa a cache
+      var search = SearchIndex.load(SearchIndex.DEFAULT_PATH, root(siteDir), false);
+      Map<Processor.ContentType<?>, List<Processor.Item<?>>> items = new HashMap<>();
+      for (var summary : summaries) {
+        read(summary, items, null, null, search);
+      }
+      var corpus = Processor.Corpus.of(null, items);
+      var related = Related.compute(corpus, search);
+      int[] total = new int[1];
+      write(root(siteDir).resolve(RELATED), out -> {
+        out.writeInt(RELATED_MAGIC);
+        ParseCache.writeString(out, stamp(summaries));
+        for (var type : Processor.TYPES) {
+          if (type.related()) {
+            total[0] += writeNeighbours(type, corpus, related, out);
+          }
+        }
+      });
+      return total[0];
+    }
+
+    private static <T> int writeNeighbours(Processor.ContentType<T> type, Processor.Corpus corpus, Related related,
+        DataOutputStream out) throws IOException {
+      writeItems(type, corpus, out);
+      var items = corpus.origins(type);
+      Map<Object, Integer> positions = new IdentityHashMap<>();
+      for (var item : items) {
+        positions.put(item.item(), positions.size());
+      }
+      for (var item : items) {
+        var neighbours = related.of(item.item());
+        out.writeInt(neighbours.size());
+        for (T neighbour : neighbours) {
+          out.writeInt(positions.get(neighbour));
+        }
+      }
+      return items.size();
+    }
+
+    /**
+     * Os itens desta fatia dos tipos com relacionados e os vizinhos de cada um, lidos de
+     * related.bin. Falha se o ficheiro não foi calculado a partir do resumo atual desta fatia.
+     */
+    Processor.Corpus readRelated(Path siteDir, ParseCache cache, Related related) throws IOException {
+      Path file = root(siteDir).resolve(RELATED);
+      if (!Files.exists(file)) {
+        throw new IOException("Falta " + file + "; corra primeiro o passo related");
+      }
+      ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+      if (in.getInt() != RELATED_MAGIC) {
+        throw new IOException(file + " não é um ficheiro de relacionados");
+      }
+      if (!ParseCache.readString(in).equals(stamp(summaries(siteDir)))) {
+        throw new IOException(file + " não corresponde aos resumos atuais das fatias; corra de novo o passo related");
+      }
+      Map<Processor.ContentType<?>, List<Processor.Item<?>>> items = new HashMap<>();
+      for (var type : Processor.TYPES) {
+        if (type.related()) {
+          items.put(type, readNeighbours(type, in, related));
+        }
+      }
+      return Processor.Corpus.of(cache, items);
+    }
+
+    private <T> List<Processor.Item<?>> readNeighbours(Processor.ContentType<T> type, ByteBuffer in, Related related) {
+      List<Processor.Item<T>> all = new ArrayList<>();
+      for (int i = in.getInt(); i > 0; i--) {
+        all.add(readItem(type, in));
+      }
+      List<Processor.Item<?>> owned = new ArrayList<>();
+      for (var item : all) {
+        List<T> neighbours = new ArrayList<>();
+        for (int i = in.getInt(); i > 0; i--) {
+          neighbours.add(all.get(in.getInt()).item());
+        }
+        if (owns(item.source())) {
+          related.put(item.item(), List.copyOf(neighbours));
+          owned.add(item);
+        }
+      }
+      return owned;
+    }
+
+    /** Grava as entradas do manifesto das páginas com relacionados geradas por esta fatia. */
+    void savePages(Path siteDir, Manifest manifest) throws IOException {
+      String stamp = stamp(summaries(siteDir));
+      Path dir = dir(siteDir);
+      write(pages(siteDir), out -> {
+        out.writeInt(PAGES_MAGIC);
+        ParseCache.writeString(out, stamp);
+        writeEntries(manifest, output -> Manifest.key(dir.relativize(output)), out);
+      });
+    }
+
+    /**
+     * Lê os resumos e as páginas de todas as fatias, passa as páginas para {@code outDir} e devolve
+     * os itens pela ordem de uma build num só processo. Falha se faltar uma fatia ou as páginas com
+     * relacionados de alguma, ou se estas vierem de outros resumos.
+     */
+    static Processor.Corpus merge(Path siteDir, Path outDir, ParseCache cache, Manifest manifest,
+        SearchIndex search) throws IOException {
+      var summaries = summaries(siteDir);
+      String stamp = stamp(summaries);
+      Map<Processor.ContentType<?>, List<Processor.Item<?>>> items = new HashMap<>();
+      for (var summary : summaries) {
+        Path file = summary.shard().pages(siteDir);
+        ByteBuffer pages = Files.exists(file) ? ByteBuffer.wrap(Files.readAllBytes(file)) : null;
+        if (pages == null || pages.getInt() != PAGES_MAGIC || !ParseCache.readString(pages).equals(stamp)) {
+          throw new IOException("A fatia " + summary.shard().index() + " não tem as páginas com relacionados dos "
+              + "resumos atuais; corra o passo related e depois --shard=" + summary.shard().index() + "/"
+              + summary.shard().count() + " pages");
+        }
+        read(summary, items, manifest, outDir, search);
+        readEntries(pages, manifest, outDir);
+      }
+      for (var summary : summaries) {
+        move(summary.shard().dir(siteDir), outDir);
+      }
+      return Processor.Corpus.of(cache, items);
+    }
+
+    /**
+     * Os resumos de todas as fatias, pela ordem das fatias. Falha se faltar uma ou se alguma foi
+     * gerada por outra versão do gerador, noutro dia ou com outro número de fatias.
+     */
+    private static List<Summary> summaries(Path siteDir) throws IOException {
+      Path root = root(siteDir);
+      List<Path> files;
+      try (Stream<Path> list = Files.isDirectory(root) ? Files.list(root) : Stream.empty()) {
+        files = list.filter(p -> p.getFileName().toString().endsWith(SUMMARY)).toList();
+      }
+      if (files.isEmpty()) {
+        throw new IOException("Nenhuma fatia em " + root + "; corra primeiro a build com --shard=I/N");
+      }
+
+      String version = ParseCache.version();
+      long today = LocalDate.now().toEpochDay();
+      int count = -1;
+      Summary[] summaries = null;
+      for (Path file : files) {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (in.getInt() != MAGIC || !version.equals(ParseCache.readString(in))) {
+          throw new IOException("A fatia " + file + " foi gerada por outra versão do gerador");
+        }
+        if (in.getLong() != today) {
+          throw new IOException("A fatia " + file + " foi gerada noutro dia; as datas dos eventos podem ter mudado");
+        }
+        var shard = new Shard(in.getInt(), in.getInt());
+        if (count != -1 && shard.count() != count) {
+          throw new IOException("As fatias em " + root + " são de divisões diferentes (" + count + " e "
+              + shard.count() + ")");
+        }
+        count = shard.count();
+        if (summaries == null) {
+          summaries = new Summary[count];
+        }
+        summaries[shard.index()] = new Summary(shard, ParseCache.readString(in), in.slice());
+      }
+      for (int i = 0; i < count; i++) {
+        if (summaries[i] == null) {
+          throw new IOException("Falta a fatia " + i + " de " + count + " em " + root);
+        }
+      }
+      return List.of(summaries);
+    }
+
+    // Identifica o conjunto de resumos: muda sempre que uma fatia volta a correr
+    private static String stamp(List<Summary> summaries) {
+      return Manifest.digest(summaries.stream().map(Summary::stamp).toList());
+    }
+
+    // Itens, manifesto (se manifest não for null) e documentos da pesquisa de um resumo
+    private static void read(Summary summary, Map<Processor.ContentType<?>, List<Processor.Item<?>>> items,
+        Manifest manifest, Path outDir, SearchIndex search) {
+      ByteBuffer in = summary.in().duplicate();
+      for (var type : Processor.TYPES) {
+        var found = items.computeIfAbsent(type, t -> new ArrayList<>());
+        for (int i = in.getInt(); i > 0; i--) {
+          found.add(readItem(type, in));
+        }
+      }
+      if (manifest != null) {
+        readEntries(in, manifest, outDir);
+      } else {
+        for (int i = in.getInt(); i > 0; i--) {
+          ParseCache.readString(in);
+          ParseCache.readString(in);
+          ParseCache.readString(in);
+        }
+      }
+      for (int i = in.getInt(); i > 0; i--) {
+        String key = ParseCache.readString(in);
+        String hash = ParseCache.readString(in);
+        String type = ParseCache.readString(in);
+        String url = ParseCache.readString(in);
+        String title = ParseCache.readString(in);
+        String snippet = ParseCache.readString(in);
+        int length = in.getInt();
+        Map<String, Integer> terms = new HashMap<>();
+        for (int j = in.getInt(); j > 0; j--) {
+          terms.put(ParseCache.readString(in), in.getInt());
+        }
+        search.adopt(new SearchIndex.Document(key, hash, type, url, title, snippet, length, terms));
+      }
+    }
+
+    private static <T> void writeItems(Processor.ContentType<T> type, Processor.Corpus corpus, DataOutputStream out)
+        throws IOException {
+      var items = corpus.origins(type);
+      out.writeInt(items.size());
+      for (var item : items) {
+        writeItem(type, item, out);
+      }
+    }
+
+    private static <T> void writeItem(Processor.ContentType<T> type, Processor.Item<T> item, DataOutputStream out)
+        throws IOException {
+      out.writeInt(item.ordinal());
+      ParseCache.writeString(out, Manifest.key(item.source()));
+      ParseCache.writeString(out, item.digest());
+      type.write(item.item(), out);
+    }
+
+    private static <T> Processor.Item<T> readItem(Processor.ContentType<T> type, ByteBuffer in) {
+      int ordinal = in.getInt();
+      Path source = Paths.get(ParseCache.readString(in));
+      String digest = ParseCache.readString(in);
+      return new Processor.Item<>(type.read(in), source, ordinal, digest);
+    }
+
+    private static void writeEntries(Manifest manifest, Function<Path, String> relative, DataOutputStream out)
+        throws IOException {
+      out.writeInt(manifest.entries().size());
+      for (var entry : new TreeMap<>(manifest.entries()).entrySet()) {
+        ParseCache.writeString(out, entry.getKey());
+        ParseCache.writeString(out, entry.getValue().hash());
+        ParseCache.writeString(out, relative.apply(entry.getValue().output()));
+      }
+    }
+
+    private static void readEntries(ByteBuffer in, Manifest manifest, Path outDir) {
+      for (int i = in.getInt(); i > 0; i--) {
+        String key = ParseCache.readString(in);
+        String hash = ParseCache.readString(in);
+        manifest.adopt(key, hash, outDir.resolve(ParseCache.readString(in)));
+      }
+    }
+
+    private static void write(Path file, Contents contents) throws IOException {
+      Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        contents.writeTo(out);
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // As páginas passam para a build do merge em vez de serem copiadas; os assets já foram gerados
+    // pelo merge e são iguais em todas as fatias, por isso ficam os do merge
+    private static void move(Path shardDir, Path outDir) throws IOException {
+      List<Path> files;
+      try (Stream<Path> walk = Files.walk(shardDir)) {
+        files = walk.filter(Files::isRegularFile).toList();
+      }
+      for (Path file : files) {
+        Path target = outDir.resolve(shardDir.relativize(file));
+        if (!Files.exists(target)) {
+          Files.createDirectories(target.getParent());
+          Files.move(file, target);
+        }
+      }
+    }
+  }
+
+  static class Processor {
+
+    // Leitura, parsing, renderização e escrita correm em threads virtuais; o semáforo limita
+    // quantas operações de disco estão em curso ao mesmo tempo.
+    static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    private static final Semaphore IO_PERMITS = new Semaphore(
+        Integer.getInteger("kambas.io.permits", Math.max(4, Runtime.getRuntime().availableProcessors() * 2)));
+
+    // Cada documento é indexado (e a página sem relacionados escrita) logo após o parsing; depois
+    // só o resumo (tudo menos o corpo HTML) fica nas listagens, e a cache de parsing guarda os
+    // registos em disco em vez do heap. O heap passa a crescer com os metadados e não com o
+    // tamanho do corpus.
+    static final boolean LOW_MEMORY = Boolean.getBoolean("kambas.low.memory");
+
+    /**
+     * Um tipo de conteúdo: a pasta com as fontes Markdown, o template das páginas e como cada
+     * documento vira um item, uma página e uma entrada de pesquisa. Leitura, cache de parsing,
+     * paralelismo, manifesto e métricas são tratados em {@link #processContent}; um tipo novo só
+     * precisa de ser acrescentado a {@link #TYPES}.
+     */
+    interface ContentType<T> {
+      /** Pasta na raiz do projeto; todos os .md por baixo dela, exceto os começados por _, são fontes. */
+      String dir();
+
+      String template();
+
+      T parse(Path mdFile, ParseCache.Parsed parsed);
+
+      Path output(Path siteDir, T item);
+
+      SearchIndex.Page searchPage(Path outFile, T item);
+
+      /** Renderiza a página do item; {@code related} são os relacionados, ver {@link #related()}. */
+      void render(T item, List<T> related, Appendable out) throws Exception;
+
+      /** O corpo HTML do item; vazio num resumo. */
+      String content(T item);
+
+      /** O item com outro corpo HTML. */
+      T withContent(T item, String content);
+
+      /** O item sem o corpo HTML, que é tudo o que as páginas agregadas usam; ver LOW_MEMORY. */
+      default T summary(T item) {
+        return withContent(item, "");
+      }
+
+      /** Grava o resumo do item no ficheiro de uma fatia; ver {@link Shard}. */
+      void write(T item, DataOutputStream out) throws IOException;
+
+      /** Lê o resumo gravado por {@link #write}, sem o corpo. */
+      T read(ByteBuffer in);
+
+      /** Ordem das listagens. A ordenação é estável: empates ficam pela ordem da travessia. */
+      Comparator<T> order();
+
+      // Dados que não estão na fonte mas aparecem na página; ver Manifest.track
+      default String extra(T item) {
+        return "";
+      }
+
+      /**
+       * Se as páginas deste tipo mostram itens relacionados do mesmo tipo. Essas páginas só são
+       * renderizadas depois da travessia, com o corpus completo; ver {@link #renderPages}.
+       */
+      default boolean related() {
+        return false;
+      }
+
+      /** Metadados que contam para os relacionados, além do texto indexado; ver {@link Related}. */
+      default List<String> tags(T item) {
+        return List.of();
+      }
+    }
+
+    static final ContentType<DataSet.Post> POSTS = new Posts();
+    static final ContentType<DataSet.Event> EVENTS = new Events();
+    static final ContentType<DataSet.Member> MEMBERS = new Members();
+    static final List<ContentType<?>> TYPES = List.of(POSTS, EVENTS, MEMBERS);
+
+    private static final class Posts implements ContentType<DataSet.Post> {
+      public String dir() {
+        return "posts";
+      }
+
+      public String template() {
+        return "post.html";
+      }
+
+      public DataSet.Post parse(Path mdFile, ParseCache.Parsed parsed) {
+        var front = parsed.front();
+        String description = Objects.requireNonNullElse(front.description(), "");
+        String fileName = mdFile.getFileName().toString().replace(".md", "");
+        // posts/AAAA/MM/ficheiro.md
+        int year = Integer.parseInt(mdFile.getParent().getParent().getFileName().toString());
+        int month = Integer.parseInt(mdFile.getParent().getFileName().toString());
+        String slug = fileName.toLowerCase()
+            .replace(" ", "-")
+            .replaceAll("[^a-z0-9-]", "");
+        var title = Objects.requireNonNullElse(front.title(), fileName);
+        return new DataSet.Post(title, slug, parsed.html(), year, month, description, front.tags());
+      }
+
+      public Path output(Path siteDir, DataSet.Post post) {
+        return siteDir.resolve("posts/" + post.year() + "/" + String.format("%02d", post.month()))
+            .resolve(post.slug() + ".html");
+      }
+
+      public SearchIndex.Page searchPage(Path outFile, DataSet.Post post) {
+        return new SearchIndex.Page("post", outFile, post.title(), post.description(), String.join(" ", post.tags()),
+            post.content());
+      }
+
+      public void render(DataSet.Post post, List<DataSet.Post> related, Appendable out) throws Exception {
+        Utils.TemplateEngine.renderPost(post, related, out);
+      }
+
+      public String content(DataSet.Post post) {
+        return post.content();
+      }
+
+      public DataSet.Post withContent(DataSet.Post p, String content) {
+        return new DataSet.Post(p.title(), p.slug(), content, p.year(), p.month(), p.description(), p.tags());
+      }
+
+      public void write(DataSet.Post p, DataOutputStream out) throws IOException {
+        ParseCache.writeString(out, p.title());
+        ParseCache.writeString(out, p.slug());
+        out.writeInt(p.year());
+        out.writeInt(p.month());
+        ParseCache.writeString(out, p.description());
+        out.writeInt(p.tags().size());
+        for (String tag : p.tags()) {
+          ParseCache.writeString(out, tag);
+        }
+      }
+
+      public DataSet.Post read(ByteBuffer in) {
+        String title = ParseCache.readString(in);
+        String slug = ParseCache.readString(in);
+        int year = in.getInt();
+        int month = in.getInt();
+        String description = ParseCache.readString(in);
+        List<String> tags = new ArrayList<>();
+        for (int i = in.getInt(); i > 0; i--) {
+          tags.add(ParseCache.readString(in));
+        }
+        return new DataSet.Post(title, slug, "", year, month, description, List.copyOf(tags));
+      }
+
+      // Do mais recente para o mais antigo
+      public Comparator<DataSet.Post> order() {
+        return Comparator.comparingInt(DataSet.Post::year).thenComparingInt(DataSet.Post::month).reversed();
+      }
+
+      public boolean related() {
+        return true;
+      }
+
+      public List<String> tags(DataSet.Post post) {
+        return post.tags();
+      }
+    }
+
+    private static final class Events implements ContentType<DataSet.Event> {
+      public String dir() {
+        return "events";
+      }
+
+      public String template() {
+        return "event.html";
+      }
+
+      public DataSet.Event parse(Path mdFile, ParseCache.Parsed parsed) {
+        return Utils.MarkdownProcessor.parseEventFromMarkdown(parsed, mdFile.getFileName().toString());
+      }
+
+      public Path output(Path siteDir, DataSet.Event event) {
+        return siteDir.resolve("events").resolve(event.slug() + ".html");
+      }
+
+      public SearchIndex.Page searchPage(Path outFile, DataSet.Event event) {
+        return new SearchIndex.Page("evento", outFile, event.title(), event.description(),
+            event.location() + " " + event.eventType(), event.content());
+      }
+
+      public void render(DataSet.Event event, List<DataSet.Event> related, Appendable out) throws Exception {
+        Utils.TemplateEngine.renderEvent(event, related, out);
+      }
+
+      // Sem data na fonte, o evento fica com a data do dia da build; o mesmo dia decide se é próximo
+      public String extra(DataSet.Event event) {
+        return event.date() + "\t" + event.isUpcoming();
+      }
+
+      public String content(DataSet.Event event) {
+        return event.content();
+      }
+
+      public DataSet.Event withContent(DataSet.Event e, String content) {
+        return new DataSet.Event(e.title(), e.slug(), content, e.date(), e.location(), e.description(), e.eventType(),
+            e.isUpcoming());
+      }
+
+      public void write(DataSet.Event e, DataOutputStream out) throws IOException {
+        ParseCache.writeString(out, e.title());
+        ParseCache.writeString(out, e.slug());
+        out.writeLong(e.date().toEpochDay());
+        ParseCache.writeString(out, e.location());
+        ParseCache.writeString(out, e.description());
+        ParseCache.writeString(out, e.eventType());
+        out.writeBoolean(e.isUpcoming());
+      }
+
+      public DataSet.Event read(ByteBuffer in) {
+        String title = ParseCache.readString(in);
+        String slug = ParseCache.readString(in);
+        LocalDate date = LocalDate.ofEpochDay(in.getLong());
+        String location = ParseCache.readString(in);
+        String description = ParseCache.readString(in);
+        String eventType = ParseCache.readString(in);
+        return new DataSet.Event(title, slug, "", date, location, description, eventType, in.get() != 0);
+      }
+
+      // Próximos primeiro, depois passados; dentro de cada grupo, o mais recente primeiro
+      public Comparator<DataSet.Event> order() {
+        return Comparator.comparing((DataSet.Event e) -> !e.isUpcoming())
+            .thenComparing(DataSet.Event::date, Comparator.reverseOrder());
+      }
+
+      public boolean related() {
+        return true;
+      }
+
+      // Os eventos não têm @tags; o tipo (meetup, workshop, ...) faz esse papel
+      public List<String> tags(DataSet.Event event) {
+        return List.of(event.eventType());
+      }
+    }
+
+    private static final class Members implements ContentType<DataSet.Member> {
+      public String dir() {
+        return "members";
+      }
+
+      public String template() {
+        return "member.html";
+      }
+
+      public DataSet.Member parse(Path mdFile, ParseCache.Parsed parsed) {
+        String githubUsername = mdFile.getFileName().toString().replace(".md", "");
+        return Utils.MarkdownProcessor.parseMemberFromMarkdown(parsed, githubUsername);
+      }
+
+      public Path output(Path siteDir, DataSet.Member member) {
+        return siteDir.resolve("members").resolve(member.githubUsername() + ".html");
+      }
+
+      public SearchIndex.Page searchPage(Path outFile, DataSet.Member member) {
+        return new SearchIndex.Page("membro", outFile, member.name(), "@" + member.githubUsername(),
+            member.githubUsername(), member.content());
+      }
+
+      public void render(DataSet.Member member, List<DataSet.Member> related, Appendable out) throws Exception {
+        Utils.TemplateEngine.renderMember(member, out);
+      }
+
+      public String content(DataSet.Member member) {
+        return member.content();
+      }
+
+      public DataSet.Member withContent(DataSet.Member m, String content) {
+        return new DataSet.Member(m.name(), m.githubUsername(), m.avatarUrl(), content, m.socialLinks());
+      }
+
+      public void write(DataSet.Member m, DataOutputStream out) throws IOException {
+        ParseCache.writeString(out, m.name());
+        ParseCache.writeString(out, m.githubUsername());
+        ParseCache.writeString(out, m.avatarUrl());
+        ParseCache.writeMap(out, m.socialLinks());
+      }
+
+      public DataSet.Member read(ByteBuffer in) {
+        String name = ParseCache.readString(in);
+        String githubUsername = ParseCache.readString(in);
+        String avatarUrl = ParseCache.readString(in);
+        return new DataSet.Member(name, githubUsername, avatarUrl, "", ParseCache.readMap(in));
+      }
+
+      // Pela ordem da travessia
+      public Comparator<DataSet.Member> order() {
+        return (a, b) -> 0;
+      }
+
+      // A página mostra o avatar, que pode vir de assets/ em vez da fonte
+      public String extra(DataSet.Member member) {
+        return member.avatarUrl();
+      }
+    }
+
+    /** Itens de cada tipo de conteúdo, já ordenados. */
+    static final class Corpus {
+      private final Map<ContentType<?>, List<?>> items = new HashMap<>();
+      // Fonte e posição na travessia de cada item; a fonte dá os corpos que os resumos não têm
+      private final Map<Object, Item<?>> origins = new IdentityHashMap<>();
+      private final ParseCache cache;
+
+      private Corpus(ParseCache cache) {
+        this.cache = cache;
+      }
+
+      /**
+       * Junta os itens de várias travessias parciais (as fatias de uma build em vários processos)
+       * pela ordem que teriam numa só, e ordena-os como {@link #processContent}.
+       */
+      static Corpus of(ParseCache cache, Map<ContentType<?>, List<Item<?>>> items) {
+        var corpus = new Corpus(cache);
+        for (ContentType<?> type : TYPES) {
+          var found = new ArrayList<>(items.getOrDefault(type, List.of()));
+          found.sort(Comparator.comparingInt(Item::ordinal));
+          corpus.add(type, found);
+        }
+        return corpus;
+      }
+
+      @SuppressWarnings("unchecked")
+      <T> List<T> get(ContentType<T> type) {
+        return (List<T>) items.get(type);
+      }
+
+      /** Os itens de {@code type}, pela ordem das listagens, com a fonte e a posição de cada um. */
+      @SuppressWarnings("unchecked")
+      <T> List<Item<T>> origins(ContentType<T> type) {
+        return get(type).stream().map(item -> (Item<T>) origins.get(item)).toList();
+      }
+
+      /** O corpo HTML do item: o que ele traz ou, se for um resumo, o da fonte, pela cache. */
+      String body(Object item, String content) throws IOException {
+        Item<?> origin = origins.get(item);
+        return origin == null || !content.isEmpty() ? content
+            : cache.reread(Files.readString(origin.source())).html();
+      }
+
+      @SuppressWarnings("unchecked")
+      private <T> void add(ContentType<T> type, List<? extends Item<?>> found) {
+        List<T> list = new ArrayList<>(found.size());
+        for (Item<?> item : found) {
+          list.add((T) item.item());
+          origins.put(item.item(), item);
+        }
+        list.sort(type.order());
+        items.put(type, list);
+      }
+    }
+
+    /**
+     * Um item e de onde veio: a fonte, a posição dela na travessia das fontes do seu tipo e, nos
+     * tipos com relacionados, o digest da fonte para o manifesto; ver {@link #renderPages}.
+     */
+    record Item<T>(T item, Path source, int ordinal, String digest) {
+    }
+
+    /**
+     * Encontra as fontes de todos os tipos numa única travessia da raiz, que só desce às pastas de
+     * conteúdo, e processa cada uma logo que é encontrada. Os resultados de cada tipo ficam na
+     * ordem da travessia antes da ordenação estável, tal como na build sequencial, para que a
+     * saída seja sempre a mesma.
+     */
+    static Corpus processContent(Path siteDir, Manifest manifest, ParseCache cache, SearchIndex search,
+        Metrics metrics) throws IOException {
+      return processContent(siteDir, manifest, cache, search, metrics, Shard.ALL);
+    }
+
+    /**
+     * Como {@link #processContent(Path, Manifest, ParseCache, SearchIndex, Metrics)}, mas só com as
+     * fontes de {@code shard}. A travessia é sempre completa, para que cada item saiba a sua
+     * posição entre todas as fontes do seu tipo.
+     */
+    static Corpus processContent(Path siteDir, Manifest manifest, ParseCache cache, SearchIndex search,
+        Metrics metrics, Shard shard) throws IOException {
+      Map<String, ContentType<?>> byDir = new HashMap<>();
+      Map<ContentType<?>, Integer> found = new HashMap<>();
+      Map<ContentType<?>, List<Future<?>>> pending = new LinkedHashMap<>();
+      for (ContentType<?> type : TYPES) {
+        byDir.put(type.dir(), type);
+        pending.put(type, new ArrayList<>());
+      }
+
+      long scanStart = System.nanoTime();
+      Path root = Paths.get("");
+      Files.walkFileTree(root, new SimpleFileVisitor<>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          boolean topLevel = !dir.equals(root) && dir.getParent() == null;
+          return topLevel && !byDir.containsKey(dir.toString()) ? FileVisitResult.SKIP_SUBTREE
+              : FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path mdFile, BasicFileAttributes attrs) {
+          String name = mdFile.getFileName().toString();
+          ContentType<?> type = mdFile.getNameCount() > 1 ? byDir.get(mdFile.getName(0).toString()) : null;
+          if (type != null && name.endsWith(".md") && !name.startsWith("_")) {
+            int ordinal = found.merge(type, 1, Integer::sum) - 1;
+            if (shard.owns(mdFile)) {
+              pending.get(type).add(submit(type, mdFile, ordinal, siteDir, manifest, cache, search, metrics));
+            }
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+      metrics.stage(Metrics.Stage.SCAN, System.nanoTime() - scanStart);
+
+      var corpus = new Corpus(cache);
+      for (var entry : pending.entrySet()) {
+        corpus.add(entry.getKey(), collect(entry.getValue()));
+      }
+      return corpus;
+    }
+
+    private static <T> Future<Item<T>> submit(ContentType<T> type, Path mdFile, int ordinal, Path siteDir,
+        Manifest manifest, ParseCache cache, SearchIndex search, Metrics metrics) {
+      return EXECUTOR.submit(() -> {
+        var source = metrics.source(mdFile);
+        String md = read(mdFile, source);
+        T item = type.parse(mdFile, cache.parse(md));
+        source.lap(Metrics.Stage.PARSE);
+
+        // Gera a página apenas se a fonte ou os templates mudaram; as que mostram relacionados
+        // esperam pelo corpus completo
+        Path outFile = type.output(siteDir, item);
+        search.add(mdFile, md, type.searchPage(outFile, item));
+        source.lap(Metrics.Stage.INDEX);
+        if (!type.related() && manifest.track(mdFile, md, type.template(), outFile, type.extra(item))) {
+          stream(outFile, source, out -> type.render(item, List.of(), out));
+        }
+        source.finish();
+        // Página e índice já têm o corpo; a partir daqui basta o resumo
+        String digest = type.related() ? Manifest.digest(List.of(md)) : "";
+        return new Item<>(LOW_MEMORY ? type.summary(item) : item, mdFile, ordinal, digest);
+      });
+    }
+
+    /**
+     * Renderiza as páginas dos tipos que mostram relacionados, já com o corpus completo. Cada
+     * página só é gerada se a fonte, os templates ou os relacionados mudaram: uma fonte alterada
+     * volta a gerar a sua página e as dos vizinhos cuja lista mudou, não as do arquivo todo. Os
+     * resumos (LOW_MEMORY, merge) vão buscar o corpo à cache de parsing só quando a página é gerada.
+     */
+    static void renderPages(Path siteDir, Corpus corpus, Related related, Manifest manifest, Metrics metrics)
+        throws IOException {
+      List<Future<Boolean>> pages = new ArrayList<>();
+      for (ContentType<?> type : TYPES) {
+        if (type.related()) {
+          submitPages(type, siteDir, corpus, related, manifest, metrics, pages);
+        }
+      }
+      int written = 0;
+      for (var page : pages) {
+        written += join(page) ? 1 : 0;
+      }
+      if (written > 0) {
+        println("Páginas com relacionados geradas: " + written + " de " + pages.size() + ".");
+      }
+    }
+
+    private static <T> void submitPages(ContentType<T> type, Path siteDir, Corpus corpus, Related related,
+        Manifest manifest, Metrics metrics, List<Future<Boolean>> pages) {
+      for (Item<T> origin : corpus.origins(type)) {
+        pages.add(EXECUTOR.submit(() -> {
+          T item = origin.item();
+          List<T> neighbours = related.of(item);
+          Path outFile = type.output(siteDir, item);
+          String extra = type.extra(item) + Related.fingerprint(type, neighbours);
+          if (!manifest.trackSource(origin.source(), origin.digest(), type.template(), outFile, extra)) {
+            return false;
+          }
+          var source = metrics.source(outFile);
+          T page = type.withContent(item, corpus.body(item, type.content(item)));
+          stream(outFile, source, out -> type.render(page, neighbours, out));
+          source.finish();
+          return true;
+        }));
+      }
+    }
+
+    private static List<Item<?>> collect(List<Future<?>> futures) throws IOException {
+      List<Item<?>> items = new ArrayList<>(futures.size());
+      for (Future<?> future : futures) {
+        items.add((Item<?>) join(future));
+      }
+      return items;
+    }
+
+    static <T> T join(Future<T> future) throws IOException {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Build interrompida");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException io) {
+          throw io;
+        }
+        if (e.getCause() instanceof RuntimeException re) {
+          throw re;
+        }
+        throw new RuntimeException(e.getCause());
+      }
+    }
+
+    static String read(Path file, Metrics.Source source) throws IOException {
+      byte[] bytes;
+      IO_PERMITS.acquireUninterruptibly();
+      try {
+        bytes = Files.readAllBytes(file);
+      } finally {
+        IO_PERMITS.release();
+      }
+      source.lap(Metrics.Stage.READ, bytes.length);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    interface Page {
+      void writeTo(Appendable out) throws Exception;
+    }
+
+    /**
+     * Renderiza uma página diretamente para o ficheiro, através do minificador e de um Writer
+     * UTF-8 com buffer sobre o FileChannel; a página inteira nunca existe como String. Como
+     * renderização, minificação e codificação correm no mesmo ciclo, o tempo conta todo como
+     * RENDER.
+     */
+    static void stream(Path file, Metrics.Source source, Page page) throws Exception {
+      IO_PERMITS.acquireUninterruptibly();
+      try {
+        Files.createDirectories(file.getParent());
+        Writer writer = new BufferedWriter(Channels.newWriter(FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), StandardCharsets.UTF_8));
+        boolean html = file.getFileName().toString().endsWith(".html");
+        try (Writer out = html ? new Assets.HtmlMinifier(writer) : writer) {
+          if (html) {
+            Assets.CriticalCss.render(page, out);
+          } else {
+            page.writeTo(out);
+          }
+          source.lap(Metrics.Stage.RENDER);
+        }
+      } finally {
+        IO_PERMITS.release();
+      }
+      source.lap(Metrics.Stage.WRITE, Files.size(file));
+    }
+
+    static void write(Path file, String content, Metrics.Source source) throws IOException {
+      byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+      IO_PERMITS.acquireUninterruptibly();
+      try {
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes);
+      } finally {
+        IO_PERMITS.release();
+      }
+      source.lap(Metrics.Stage.WRITE, bytes.length);
+    }
+
+  }
+
+  static class Render {
+    private static final String SITE_URL = withSlash(
+        System.getProperty("kambas.site.url", "https://kambas-do-java.github.io/website/"));
+    private static final int FEED_SIZE = Integer.getInteger("kambas.feed.size", 20);
+    private static final int SITEMAP_SIZE = Integer.getInteger("kambas.sitemap.size", 1000);
+
+    // lastmod em formato W3C (2024-05 ou 2024-05-17); null quando a página não tem data
+    private record SitemapUrl(String path, String lastmod) {
+    }
+
+    private record FeedEntry(String title, String path, LocalDate date, String summary, String content) {
+    }
+
+    static void render(Path siteDir, Processor.Corpus corpus, Manifest manifest, Metrics metrics)
+        throws Exception {
+      var posts = corpus.get(Processor.POSTS);
+      var events = corpus.get(Processor.EVENTS);
+      var members = corpus.get(Processor.MEMBERS);
+
+      // Gera index
+      Path indexFile = siteDir.resolve("index.html");
+      if (manifest.trackAggregate(indexFile, "index.html", indexFingerprint(posts, events, members))) {
+        var source = metrics.source(indexFile);
+        Processor.stream(indexFile, source, out -> Utils.TemplateEngine.renderIndex(posts, events, members, out));
+        source.finish();
+        println("Index gerado.");
+      }
+
+      // Gera o arquivo paginado e as páginas de cada tag, todos a partir do mesmo índice ordenado
+      var tags = PostIndex.tags(posts);
+      var listings = PostIndex.listings(posts, tags);
+      List<Future<Boolean>> listingPages = new ArrayList<>();
+      for (var listing : listings) {
+        for (int page = 1; page <= listing.pages(); page++) {
+          int number = page;
+          listingPages.add(Processor.EXECUTOR.submit(() -> {
+            Path file = siteDir.resolve(listing.path(number));
+            if (!manifest.trackAggregate(file, "all-posts.html", listingFingerprint(listing, number, tags))) {
+              return false;
+            }
+            var source = metrics.source(file);
+            Processor.stream(file, source, out -> Utils.TemplateEngine.renderPostsPage(listing, number, tags, out));
+            source.finish();
+            return true;
+          }));
+        }
+      }
+      int listingsWritten = 0;
+      for (var future : listingPages) {
+        listingsWritten += Processor.join(future) ? 1 : 0;
+      }
+      if (listingsWritten > 0) {
+        println("Páginas de posts geradas: " + listingsWritten + " de " + listingPages.size() + ".");
+      }
+
+      // Gera página com todos os Dataset.Eventos
+      Path allEventsFile = siteDir.resolve("all-events.html");
+      if (manifest.trackAggregate(allEventsFile, "all-events.html", allEventsFingerprint(events))) {
+        var source = metrics.source(allEventsFile);
+        Processor.stream(allEventsFile, source, out -> Utils.TemplateEngine.renderAllEvents(events, out));
+        source.finish();
+        println("Página de todos os eventos gerada.");
+      }
+
+      // Gera página com todos os membros
+      Path allMembersFile = siteDir.resolve("all-members.html");
+      if (manifest.trackAggregate(allMembersFile, "all-members.html", allMembersFingerprint(members))) {
+        var source = metrics.source(allMembersFile);
+        Processor.stream(allMembersFile, source, out -> Utils.TemplateEngine.renderAllMembers(members, out));
+        source.finish();
+        println("Página de todos os membros gerada.");
+      }
+
+      renderSyndication(siteDir, corpus, listings, manifest, metrics);
+    }
+
+    /**
+     * Sitemap e feeds, escritos em streaming para o disco: nada disto passa por uma String com o
+     * ficheiro inteiro. Os URLs são absolutos, a partir de -Dkambas.site.url. O sitemap.xml é
+     * sempre um índice e as URLs ficam em sitemaps/N.xml com no máximo SITEMAP_SIZE entradas; cada
+     * feed tem apenas as FEED_SIZE entradas mais recentes.
+     */
+    static void renderSyndication(Path siteDir, Processor.Corpus corpus, List<PostIndex.Listing> listings,
+        Manifest manifest, Metrics metrics) throws IOException {
+      var posts = corpus.get(Processor.POSTS);
+      var events = corpus.get(Processor.EVENTS);
+      var members = corpus.get(Processor.MEMBERS);
+      // lastmod vem das datas do conteúdo, não da data dos ficheiros, que num checkout de CI é
+      // sempre a de hoje; membros não têm data e eventos futuros ainda não aconteceram
+      LocalDate today = LocalDate.now();
+      List<SitemapUrl> urls = new ArrayList<>();
+      String newestPost = posts.isEmpty() ? null : postDate(posts.getFirst());
+      urls.add(new SitemapUrl("", newestPost));
+      for (var listing : listings) {
+        for (int page = 1; page <= listing.pages(); page++) {
+          var slice = listing.page(page);
+          urls.add(new SitemapUrl(listing.path(page), slice.isEmpty() ? null : postDate(slice.getFirst())));
+        }
+      }
+      posts.forEach(p -> urls.add(new SitemapUrl(postPath(p), postDate(p))));
+      String newestEvent = events.stream().map(DataSet.Event::date).filter(d -> !d.isAfter(today))
+          .max(Comparator.naturalOrder()).map(LocalDate::toString).orElse(null);
+      urls.add(new SitemapUrl("all-events.html", newestEvent));
+      events.forEach(e -> urls.add(new SitemapUrl("events/" + e.slug() + ".html",
+          e.date().isAfter(today) ? null : e.date().toString())));
+      urls.add(new SitemapUrl("all-members.html", null));
+      members.forEach(m -> urls.add(new SitemapUrl("members/" + m.githubUsername() + ".html", null)));
+
+      List<SitemapUrl> chunkIndex = new ArrayList<>();
+      for (int from = 0, n = 1; from < urls.size(); from += SITEMAP_SIZE, n++) {
+        var chunk = urls.subList(from, Math.min(urls.size(), from + SITEMAP_SIZE));
+        String path = "sitemaps/" + n + ".xml";
+        chunkIndex.add(new SitemapUrl(path, chunk.stream().map(SitemapUrl::lastmod).filter(Objects::nonNull)
+            .max(Comparator.naturalOrder()).orElse(null)));
+        stream(siteDir.resolve(path), manifest, metrics, fingerprint(chunk), out -> {
+          out.write("<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+          for (SitemapUrl url : chunk) {
+            writeSitemapEntry(out, "url", url);
+          }
+          out.write("</urlset>\n");
+        });
+      }
+      stream(siteDir.resolve("sitemap.xml"), manifest, metrics, fingerprint(chunkIndex), out -> {
+        out.write("<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+        for (SitemapUrl chunk : chunkIndex) {
+          writeSitemapEntry(out, "sitemap", chunk);
+        }
+        out.write("</sitemapindex>\n");
+      });
+
+      Path robots = siteDir.resolve("robots.txt");
+      String robotsTxt = "User-agent: *\nAllow: /\nSitemap: " + SITE_URL + "sitemap.xml\n";
+      if (manifest.trackFile(robots, Manifest.digest(List.of(robotsTxt)))) {
+        var source = metrics.source(robots);
+        Processor.write(robots, robotsTxt, source);
+        source.finish();
+      }
+
+      List<FeedEntry> postEntries = new ArrayList<>();
+      for (var p : posts.subList(0, Math.min(FEED_SIZE, posts.size()))) {
+        postEntries.add(new FeedEntry(p.title(), postPath(p), LocalDate.of(p.year(), p.month(), 1), p.description(),
+            corpus.body(p, p.content())));
+      }
+      // Os eventos mais recentes primeiro, incluindo os que ainda vão acontecer
+      List<FeedEntry> eventEntries = new ArrayList<>();
+      for (var e : events.stream().sorted(Comparator.comparing(DataSet.Event::date).reversed()).limit(FEED_SIZE)
+          .toList()) {
+        eventEntries.add(new FeedEntry(e.title(), "events/" + e.slug() + ".html", e.date(), e.description(),
+            corpus.body(e, e.content())));
+      }
+      writeFeeds(siteDir, "posts", "Posts - Kambas do Java", postEntries, manifest, metrics);
+      writeFeeds(siteDir, "events", "Eventos - Kambas do Java", eventEntries, manifest, metrics);
+    }
+
+    private static void writeFeeds(Path siteDir, String name, String title, List<FeedEntry> entries,
+        Manifest manifest, Metrics metrics) throws IOException {
+      String fingerprint = fingerprint(entries);
+      // Sem relógio: a data do feed é a da entrada mais recente, para que builds sem conteúdo
+      // novo produzam exatamente o mesmo ficheiro
+      LocalDate updated = entries.stream().map(FeedEntry::date).max(Comparator.naturalOrder())
+          .orElse(LocalDate.EPOCH);
+
+      String atomPath = "feeds/" + name + ".atom";
+      stream(siteDir.resolve(atomPath), manifest, metrics, fingerprint, out -> {
+        out.write("<feed xmlns=\"http://www.w3.org/2005/Atom\">\n");
+        element(out, "  ", "title", title);
+        element(out, "  ", "id", SITE_URL + atomPath);
+        out.write("  <link rel=\"self\" href=\"" + SITE_URL + atomPath + "\"/>\n");
+        out.write("  <link href=\"" + SITE_URL + "\"/>\n");
+        element(out, "  ", "updated", atomDate(updated));
+        out.write("  <author><name>Kambas do Java</name></author>\n");
+        for (FeedEntry entry : entries) {
+          out.write("  <entry>\n");
+          element(out, "    ", "title", entry.title());
+          out.write("    <link href=\"" + SITE_URL + entry.path() + "\"/>\n");
+          element(out, "    ", "id", SITE_URL + entry.path());
+          element(out, "    ", "updated", atomDate(entry.date()));
+          element(out, "    ", "summary", entry.summary());
+          out.write("    <content type=\"html\">");
+          escape(out, entry.content());
+          out.write("</content>\n  </entry>\n");
+        }
+        out.write("</feed>\n");
+      });
+
+      String rssPath = "feeds/" + name + ".rss";
+      stream(siteDir.resolve(rssPath), manifest, metrics, fingerprint, out -> {
+        out.write("<rss version=\"2.0\" xmlns:atom=\"http://www.w3.org/2005/Atom\">\n<channel>\n");
+        element(out, "  ", "title", title);
+        element(out, "  ", "link", SITE_URL);
+        element(out, "  ", "description", title);
+        element(out, "  ", "language", "pt");
+        out.write("  <atom:link href=\"" + SITE_URL + rssPath + "\" rel=\"self\" type=\"application/rss+xml\"/>\n");
+        element(out, "  ", "lastBuildDate", rssDate(updated));
+        for (FeedEntry entry : entries) {
+          out.write("  <item>\n");
+          element(out, "    ", "title", entry.title());
+          element(out, "    ", "link", SITE_URL + entry.path());
+          out.write("    <guid isPermaLink=\"true\">" + SITE_URL + entry.path() + "</guid>\n");
+          element(out, "    ", "pubDate", rssDate(entry.date()));
+          out.write("    <description>");
+          escape(out, entry.content());
+          out.write("</description>\n  </item>\n");
+        }
+        out.write("</channel>\n</rss>\n");
+      });
+    }
+
+    @FunctionalInterface
+    private interface XmlBody {
+      void writeTo(Writer out) throws IOException;
+    }
+
+    // Escreve o ficheiro diretamente no disco, só se o fingerprint do conteúdo mudou
+    private static void stream(Path file, Manifest manifest, Metrics metrics, String fingerprint, XmlBody body)
+        throws IOException {
+      if (!manifest.trackFile(file, fingerprint)) {
+        return;
+      }
+      var source = metrics.source(file);
+      Files.createDirectories(file.getParent());
+      try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        body.writeTo(out);
+      }
+      source.lap(Metrics.Stage.WRITE, Files.size(file));
+      source.finish();
+    }
+
+    private static void writeSitemapEntry(Writer out, String tag, SitemapUrl url) throws IOException {
+      out.write("  <" + tag + ">\n");
+      element(out, "    ", "loc", SITE_URL + url.path());
+      if (url.lastmod() != null) {
+        element(out, "    ", "lastmod", url.lastmod());
+      }
+      out.write("  </" + tag + ">\n");
+    }
+
+    private static void element(Writer out, String indent, String tag, String text) throws IOException {
+      out.write(indent);
+      out.write('<');
+      out.write(tag);
+      out.write('>');
+      escape(out, text);
+      out.write("</");
+      out.write(tag);
+      out.write(">\n");
+    }
+
+    // Escapa para XML a caminho do Writer, sem criar uma cópia escapada do texto
+    private static void escape(Writer out, String text) throws IOException {
+      int start = 0;
+      for (int i = 0; i < text.length(); i++) {
+        String entity = switch (text.charAt(i)) {
+          case '&' -> "&amp;";
+          case '<' -> "&lt;";
+          case '>' -> "&gt;";
+          case '"' -> "&quot;";
+          default -> null;
+        };
+        if (entity != null) {
+          out.write(text, start, i - start);
+          out.write(entity);
+          start = i + 1;
+        }
+      }
+      out.write(text, start, text.length() - start);
+    }
+
+    private static String fingerprint(List<?> entries) {
+      var parts = new ArrayList<Object>();
+      parts.add(SITE_URL);
+      for (Object entry : entries) {
+        // O HTML completo entra como hash, para não concatenar o conteúdo de todos os posts
+        parts.add(entry instanceof FeedEntry e
+            ? List.of(e.title(), e.path(), e.date(), e.summary(), Manifest.digest(List.of(e.content())))
+            : entry);
+      }
+      return Manifest.digest(parts);
+    }
+
+    private static String postPath(DataSet.Post post) {
+      return "posts/" + post.year() + "/" + String.format("%02d", post.month()) + "/" + post.slug() + ".html";
+    }
+
+    // Os posts só têm ano e mês, que é uma data W3C válida para o lastmod
+    private static String postDate(DataSet.Post post) {
+      return post.year() + "-" + String.format("%02d", post.month());
+    }
+
+    private static String atomDate(LocalDate date) {
+      return date + "T00:00:00Z";
+    }
+
+    private static String rssDate(LocalDate date) {
+      return DateTimeFormatter.RFC_1123_DATE_TIME.format(date.atStartOfDay(ZoneOffset.UTC));
+    }
+
+    private static String withSlash(String url) {
+      return url.endsWith("/") ? url : url + "/";
+    }
+
+    // As impressões digitais abaixo cobrem apenas os campos que cada página agregada exibe,
+    // de modo que editar o corpo de um post não reconstrói a listagem.
+
+    private static String indexFingerprint(List<DataSet.Post> posts, List<DataSet.Event> events,
+        List<DataSet.Member> members) {
+      var parts = new ArrayList<Object>();
+      posts.stream().limit(3)
+          .forEach(p -> parts.addAll(List.of(p.year(), p.month(), p.slug(), p.title(), p.description())));
+      events.stream().filter(e -> e.isUpcoming()).limit(2)
+          .forEach(e -> parts.addAll(List.of(e.date(), e.slug(), e.title(), e.location(), e.description())));
+      members.forEach(m -> parts.addAll(List.of(m.githubUsername(), m.name(), m.avatarUrl())));
+      parts.addAll(List.of(posts.size(), events.size(), members.size()));
+      return Manifest.digest(parts);
+    }
+
+    // Além da fatia da página, a navegação e os contadores dependem do total de páginas e das tags
+    private static String listingFingerprint(PostIndex.Listing listing, int number, List<PostIndex.Tag> tags) {
+      var parts = new ArrayList<Object>();
+      parts.addAll(List.of(listing.path(number), listing.pages(), listing.posts().size(),
+          PostIndex.years(listing.posts())));
+      listing.page(number).forEach(p -> parts.addAll(List.of(p.year(), p.month(), p.slug(), p.title(),
+          p.description(), p.tags())));
+      tags.forEach(t -> parts.addAll(List.of(t.slug(), t.name(), t.posts().size())));
+      return Manifest.digest(parts);
+    }
+
+    private static String allEventsFingerprint(List<DataSet.Event> events) {
+      var parts = new ArrayList<Object>();
+      events.forEach(e -> parts.addAll(List.of(e.date(), e.slug(), e.title(), e.location(), e.description(),
+          e.eventType(), e.isUpcoming())));
+      return Manifest.digest(parts);
+    }
+
+    private static String allMembersFingerprint(List<DataSet.Member> members) {
+      var parts = new ArrayList<Object>();
+      members.forEach(m -> parts.addAll(List.of(m.githubUsername(), m.avatarUrl(), m.name())));
+      return Manifest.digest(parts);
+    }
+  }
+
+  /**
+   * Pipeline de assets: minifica CSS e JS e grava cada ficheiro com o hash do conteúdo no nome
+   * (css/style.3f9a1c2b.css), publicando o mapa em site/assets/manifest.json. Como o nome muda
+   * sempre que o conteúdo muda, os ficheiros podem ser servidos com Cache-Control: immutable.
+   */
+  static class Assets {
+    private static final Path ASSETS_DIR = Paths.get("assets");
+    static final String MANIFEST_FILE = "manifest.json";
+    // Alterar os minificadores muda o conteúdo gerado, por isso entra no hash
+    private static final String PIPELINE_VERSION = "1";
+    private static final Pattern FINGERPRINTED = Pattern.compile(".*\\.[0-9a-f]{8}\\.[A-Za-z0-9]+$");
+
+    // Larguras das variantes responsivas; só se geram as menores do que a imagem original
+    private static final int[] IMAGE_WIDTHS = { 80, 160, 320, 640, 1280 };
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final Path AVATARS = Paths.get("images", "members");
+
+    private static volatile Map<String, String> current = Map.of();
+    private static volatile Map<String, Image> images = Map.of();
+    private static volatile Map<String, Image> imagesByUrl = Map.of();
+
+    static {
+      // O redimensionamento usa Java2D, que não precisa de ecrã
+      System.setProperty("java.awt.headless", "true");
+    }
+
+    /**
+     * Imagem local: o URL e as dimensões da original e as variantes mais pequenas, todas com URLs
+     * relativos à raiz do site.
+     */
+    record Image(String url, int width, int height, List<Variant> variants) {
+
+      record Variant(String url, int width) {
+      }
+
+      // Candidatos do srcset, da variante mais pequena até à original
+      String srcset(String basePath) {
+        StringBuilder sb = new StringBuilder();
+        for (Variant variant : variants) {
+          sb.append(basePath).append(variant.url()).append(' ').append(variant.width()).append("w, ");
+        }
+        return sb.append(basePath).append(url).append(' ').append(width).append('w').toString();
+      }
+    }
+
+    private record Processed(String path, Map<String, String> names, Image image, int written) {
+    }
+
+    /**
+     * Gera os assets em {@code siteDir/assets}. Um ficheiro cujo nome com hash já existe não
+     * é minificado nem gravado de novo; versões antigas são removidas.
+     */
+    static Map<String, String> process(Path siteDir, Metrics metrics) throws IOException {
+      return process(Staging.inPlace(siteDir), metrics);
+    }
+
+    // Tudo o que os templates compilados guardam dos assets
+    static Object state() {
+      return List.of(current, images);
+    }
+
+    /**
+     * Numa build com staging, um asset que já está publicado com o mesmo nome (e portanto o mesmo
+     * conteúdo) é ligado à versão publicada em vez de ser minificado outra vez. Os assets são
+     * independentes entre si e são processados em paralelo.
+     */
+    static Map<String, String> process(Staging staging, Metrics metrics) throws IOException {
+      Path outDir = staging.dir().resolve("assets");
+      Map<String, String> manifest = new TreeMap<>();
+      Map<String, Image> processedImages = new HashMap<>();
+      int written = 0;
+
+      if (Files.exists(ASSETS_DIR)) {
+        List<Path> sources;
+        try (Stream<Path> walk = Files.walk(ASSETS_DIR)) {
+          sources = walk.filter(Files::isRegularFile).toList();
+        }
+        List<Future<Processed>> futures = new ArrayList<>(sources.size());
+        for (Path source : sources) {
+          futures.add(Processor.EXECUTOR.submit(() -> process(staging, outDir, source, metrics)));
+        }
+        for (Future<Processed> future : futures) {
+          Processed processed = Processor.join(future);
+          manifest.putAll(processed.names());
+          if (processed.image() != null) {
+            processedImages.put(processed.path(), processed.image());
+          }
+          written += processed.written();
+        }
+      }
+
+      removeStale(outDir, manifest);
+      writeManifest(outDir, manifest);
+      CriticalCss.load(outDir, manifest.get(CriticalCss.STYLESHEET));
+      current = Map.copyOf(manifest);
+      images = Map.copyOf(processedImages);
+      Map<String, Image> byUrl = new HashMap<>();
+      processedImages.values().forEach(image -> byUrl.put(image.url(), image));
+      imagesByUrl = Map.copyOf(byUrl);
+      if (written > 0) {
+        println("Assets gravados: " + written + " (inalterados: " + (manifest.size() - written) + ")");
+      }
+      return manifest;
+    }
+
+    private static Processed process(Staging staging, Path outDir, Path source, Metrics metrics) throws IOException {
+      var file = metrics.source(source);
+      String path = ASSETS_DIR.relativize(source).toString().replace('\\', '/');
+      byte[] bytes = Files.readAllBytes(source);
+      file.lap(Metrics.Stage.READ, bytes.length);
+      String hash = hash(bytes);
+      String name = fingerprintedName(path, hash);
+      Map<String, String> names = new HashMap<>();
+      names.put(path, name);
+      int written = 0;
+
+      Path target = outDir.resolve(name);
+      if (!Files.exists(target) && !staging.reuse(target)) {
+        // O tempo do hash acima conta como minificação
+        byte[] minified = minify(path, bytes);
+        file.lap(Metrics.Stage.MINIFY);
+        Files.createDirectories(target.getParent());
+        Files.write(target, minified);
+        file.lap(Metrics.Stage.WRITE, minified.length);
+        written++;
+      }
+
+      Image image = null;
+      String format = imageFormat(path);
+      int[] size = format == null ? null : dimensions(bytes);
+      if (size != null) {
+        // As variantes levam o hash da original: se já existem, a imagem nem é descodificada
+        List<Image.Variant> variants = new ArrayList<>();
+        BufferedImage decoded = null;
+        for (int width : IMAGE_WIDTHS) {
+          if (width >= size[0]) {
+            break;
+          }
+          String variantPath = suffixed(path, "-" + width + "w");
+          String variantName = fingerprintedName(variantPath, hash);
+          names.put(variantPath, variantName);
+          variants.add(new Image.Variant("assets/" + variantName, width));
+          Path variantTarget = outDir.resolve(variantName);
+          if (Files.exists(variantTarget) || staging.reuse(variantTarget)) {
+            continue;
+          }
+          if (decoded == null) {
+            decoded = ImageIO.read(new ByteArrayInputStream(bytes));
+            file.lap(Metrics.Stage.PARSE);
+          }
+          byte[] resized = encode(resize(decoded, width, format.equals("png")), format);
+          file.lap(Metrics.Stage.MINIFY);
+          Files.createDirectories(variantTarget.getParent());
+          Files.write(variantTarget, resized);
+          file.lap(Metrics.Stage.WRITE, resized.length);
+          written++;
+        }
+        image = new Image("assets/" + name, size[0], size[1], List.copyOf(variants));
+      }
+      file.finish();
+      return new Processed(path, names, image, written);
+    }
+
+    /** Imagem local em {@code assets/<path>}, ou {@code null} se não existir ou não for PNG/JPEG. */
+    static Image image(String path) {
+      return images.get(path);
+    }
+
+    /** Avatar guardado no repositório em {@code assets/images/members/<utilizador>.png} (ou .jpg). */
+    static Image avatar(String githubUsername) {
+      for (String extension : List.of(".png", ".jpg", ".jpeg")) {
+        Image image = images.get(AVATARS.resolve(githubUsername + extension).toString().replace('\\', '/'));
+        if (image != null) {
+          return image;
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Atributos de um {@code <img>}: para uma imagem local, src, srcset, sizes, width e height
+     * com os URLs relativos a {@code basePath}; para um URL externo, apenas o src.
+     */
+    static String imageAttributes(String url, String basePath, String sizes) {
+      Image image = imagesByUrl.get(url);
+      if (image == null) {
+        return "src='" + url + "'";
+      }
+      return "src='" + basePath + url + "' srcset='" + image.srcset(basePath) + "' sizes='" + sizes
+          + "' width='" + image.width() + "' height='" + image.height() + "'";
+    }
+
+    /**
+     * URL relativo à raiz do site para um asset ({@code css/style.css} →
+     * {@code assets/css/style.3f9a1c2b.css}), ou {@code null} se o asset não existir.
+     */
+    static String url(String path) {
+      String name = current.get(path);
+      return name == null ? null : "assets/" + name;
+    }
+
+    static boolean isFingerprinted(String path) {
+      return path.contains("/assets/") && FINGERPRINTED.matcher(path).matches();
+    }
+
+    private static String hash(byte[] bytes) {
+      try {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(PIPELINE_VERSION.getBytes(StandardCharsets.UTF_8));
+        md.update(bytes);
+        return HexFormat.of().formatHex(md.digest()).substring(0, 8);
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private static String fingerprintedName(String path, String hash) {
+      int slash = path.lastIndexOf('/');
+      int dot = path.lastIndexOf('.');
+      if (dot <= slash + 1) {
+        return path + "." + hash;
+      }
+      return path.substring(0, dot) + "." + hash + path.substring(dot);
+    }
+
+    // images/logo.png + "-160w" → images/logo-160w.png
+    private static String suffixed(String path, String suffix) {
+      int slash = path.lastIndexOf('/');
+      int dot = path.lastIndexOf('.');
+      if (dot <= slash + 1) {
+        return path + suffix;
+      }
+      return path.substring(0, dot) + suffix + path.substring(dot);
+    }
+
+    private static String imageFormat(String path) {
+      String lower = path.toLowerCase(Locale.ROOT);
+      if (lower.endsWith(".png")) {
+        return "png";
+      }
+      if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+        return "jpg";
+      }
+      return null;
+    }
+
+    // Lê só o cabeçalho; null se o ImageIO não reconhecer o ficheiro
+    private static int[] dimensions(byte[] bytes) throws IOException {
+      try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+          return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+          reader.setInput(in, true, true);
+          return new int[] { reader.getWidth(0), reader.getHeight(0) };
+        } finally {
+          reader.dispose();
+        }
+      }
+    }
+
+    // Reduz para metade enquanto for possível e só o último passo vai direto à largura pedida;
+    // um único passo bicúbico grande perderia detalhe
+    private static BufferedImage resize(BufferedImage source, int width, boolean alpha) {
+      int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+      BufferedImage current = source;
+      do {
+        int nextWidth = Math.max(width, current.getWidth() / 2);
+        int nextHeight = Math.max(1, (int) Math.round((double) source.getHeight() * nextWidth / source.getWidth()));
+        BufferedImage next = new BufferedImage(nextWidth, nextHeight, type);
+        Graphics2D g = next.createGraphics();
+        try {
+          g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+          g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+          g.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+        } finally {
+          g.dispose();
+        }
+        current = next;
+      } while (current.getWidth() > width);
+      return current;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+      ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+        writer.setOutput(out);
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (format.equals("jpg")) {
+          param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+          param.setCompressionQuality(JPEG_QUALITY);
+        }
+        writer.write(null, new IIOImage(image, null, null), param);
+      } finally {
+        writer.dispose();
+      }
+      return bytes.toByteArray();
+    }
+
+    private static byte[] minify(String path, byte[] bytes) {
+      if (path.endsWith(".css")) {
+        return minifyCss(new String(bytes, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+      }
+      if (path.endsWith(".js")) {
+        return minifyJs(new String(bytes, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+      }
+      return bytes;
+    }
+
+    private static void removeStale(Path outDir, Map<String, String> manifest) throws IOException {
+      if (!Files.exists(outDir)) {
+        return;
+      }
+      Set<String> live = new HashSet<>(manifest.values());
+      live.add(MANIFEST_FILE);
+      try (Stream<Path> walk = Files.walk(outDir)) {
+        for (Path file : walk.filter(Files::isRegularFile).toList()) {
+          if (!live.contains(outDir.relativize(file).toString().replace('\\', '/'))) {
+            Files.delete(file);
+          }
+        }
+      }
+    }
+
+    private static void writeManifest(Path outDir, Map<String, String> manifest) throws IOException {
+      StringBuilder json = new StringBuilder("{");
+      String separator = "\n";
+      for (var entry : manifest.entrySet()) {
+        json.append(separator).append("  \"").append(jsonEscape(entry.getKey())).append("\": \"")
+            .append(jsonEscape(entry.getValue())).append('"');
+        separator = ",\n";
+      }
+      json.append("\n}\n");
+
+      Path file = outDir.resolve(MANIFEST_FILE);
+      String content = json.toString();
+      if (!Files.exists(file) || !Files.readString(file).equals(content)) {
+        Files.createDirectories(outDir);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+      }
+    }
+
+    static String jsonEscape(String s) {
+      return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    // Tags cujo conteúdo passa sem alterações
+    private static final Set<String> RAW_HTML = Set.of("pre", "code", "textarea", "script", "style");
+    // Elementos de bloco: o espaço em branco junto deles não é visível e pode sair
+    private static final Set<String> BLOCK_HTML = Set.of(
+        "!doctype", "html", "head", "body", "title", "meta", "link", "script", "style", "noscript", "div", "p",
+        "ul", "ol", "li", "dl", "dt", "dd", "section", "article", "header", "footer", "nav", "main", "aside",
+        "h1", "h2", "h3", "h4", "h5", "h6", "table", "thead", "tbody", "tfoot", "tr", "td", "th", "caption",
+        "form", "fieldset", "figure", "figcaption", "blockquote", "hr", "br", "pre", "address", "details",
+        "summary");
+
+    /**
+     * Minifica uma página HTML gerada. Comentários saem (exceto os condicionais) e cada sequência
+     * de espaços em branco fica reduzida a um espaço, que desaparece por completo junto de um
+     * elemento de bloco; entre elementos inline ele é visível e fica. O conteúdo de pre, code,
+     * textarea, script e style e os valores de atributos entre aspas não são tocados.
+     */
+    static String minifyHtml(String html) {
+      StringWriter out = new StringWriter(html.length());
+      try (HtmlMinifier minifier = new HtmlMinifier(out)) {
+        minifier.write(html);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return out.toString();
+    }
+
+    /**
+     * O minificador de {@link #minifyHtml} como Writer: recebe a página aos bocados, enquanto é
+     * renderizada, e só retém a tag em curso, por isso a memória não depende do tamanho da página.
+     */
+    static final class HtmlMinifier extends Writer {
+      private enum State {
+        TEXT, TAG, COMMENT, RAW
+      }
+
+      private static final String CONDITIONAL = "<!--[if";
+
+      private final Writer out;
+      private State state = State.TEXT;
+      private boolean pendingSpace;
+      // Nome da tag acabada de escrever, ou null se o último a sair foi texto
+      private String previousTag = "!doctype";
+      // TAG: a tag desde o '<'; COMMENT: o início, até se saber se é condicional; RAW: um possível fecho
+      private final StringBuilder buffer = new StringBuilder();
+      private char quote;
+      private boolean conditional;
+      private int dashes;
+      private String closing;
+      private boolean rawContent;
+
+      HtmlMinifier(Writer out) {
+        this.out = out;
+      }
+
+      @Override
+      public void write(char[] chars, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+          accept(chars[i]);
+        }
+      }
+
+      @Override
+      public void write(String text, int off, int len) throws IOException {
+        int end = off + len;
+        int i = off;
+        while (i < end) {
+          // Num script, style ou pre, tudo até ao próximo '<' sai tal como está, de uma vez
+          if (state == State.RAW && buffer.isEmpty()) {
+            int lt = text.indexOf('<', i);
+            int stop = lt < 0 || lt > end ? end : lt;
+            if (stop > i) {
+              out.write(text, i, stop - i);
+              rawContent = true;
+              i = stop;
+              continue;
+            }
+          }
+          accept(text.charAt(i++));
+        }
+      }
+
+      @Override
+      public void write(int c) throws IOException {
+        accept((char) c);
+      }
+
+      @Override
+      public Writer append(CharSequence text) throws IOException {
+        if (text instanceof String string) {
+          write(string, 0, string.length());
+          return this;
+        }
+        // O Writer faria toString() de um StringBuilder; aqui lê-se diretamente
+        for (int i = 0; i < text.length(); i++) {
+          accept(text.charAt(i));
+        }
+        return this;
+      }
+
+      @Override
+      public void flush() throws IOException {
+        out.flush();
+      }
+
+      @Override
+      public void close() throws IOException {
+        // No fim, um '<' sem '>' é texto e um pre ou script por fechar vai até ao fim
+        while (state == State.TAG) {
+          notATag();
+        }
+        if (state == State.RAW) {
+          out.append(buffer);
+        }
+        state = State.TEXT;
+        out.close();
+      }
+
+      private void accept(char c) throws IOException {
+        switch (state) {
+          case TEXT -> text(c);
+          case TAG -> tag(c);
+          case COMMENT -> comment(c);
+          case RAW -> raw(c);
+        }
+      }
+
+      private void text(char c) throws IOException {
+        if (Character.isWhitespace(c)) {
+          pendingSpace = true;
+        } else if (c == '<') {
+          state = State.TAG;
+          buffer.setLength(0);
+          buffer.append(c);
+          quote = 0;
+        } else {
+          literal(c);
+        }
+      }
+
+      private void literal(char c) throws IOException {
+        space(false);
+        out.write(c);
+        previousTag = null;
+      }
+
+      // O espaço pendente só sai entre dois elementos inline (ou texto)
+      private void space(boolean blockTag) throws IOException {
+        if (pendingSpace) {
+          if (!blockTag && (previousTag == null || !BLOCK_HTML.contains(previousTag))) {
+            out.write(' ');
+          }
+          pendingSpace = false;
+        }
+      }
+
+      private void tag(char c) throws IOException {
+        buffer.append(c);
+        if (buffer.length() == 2 && !Character.isLetter(c) && c != '/' && c != '!') {
+          notATag();
+        } else if (buffer.length() == 4 && buffer.indexOf("<!--") == 0) {
+          state = State.COMMENT;
+          conditional = false;
+          dashes = 0;
+        } else if (quote != 0) {
+          if (c == quote) {
+            quote = 0;
+          }
+        } else if (c == '"' || c == '\'') {
+          quote = c;
+        } else if (c == '>') {
+          endTag();
+        } else if (c == '<') {
+          notATag();
+        }
+      }
+
+      // O '<' fica como texto e o resto volta a ser lido, porque pode conter outra tag
+      private void notATag() throws IOException {
+        String rest = buffer.substring(1);
+        state = State.TEXT;
+        literal('<');
+        for (int i = 0; i < rest.length(); i++) {
+          accept(rest.charAt(i));
+        }
+      }
+
+      private void endTag() throws IOException {
+        String tag = buffer.toString();
+        String name = tagName(tag, 0);
+        space(BLOCK_HTML.contains(name));
+        appendTag(tag, 0, tag.length(), out);
+        previousTag = name;
+        state = State.TEXT;
+        if (tag.charAt(1) != '/' && RAW_HTML.contains(name) && tag.charAt(tag.length() - 2) != '/') {
+          state = State.RAW;
+          closing = "</" + name;
+          rawContent = false;
+          buffer.setLength(0);
+        }
+      }
+
+      private void comment(char c) throws IOException {
+        if (buffer.length() < CONDITIONAL.length()) {
+          buffer.append(c);
+          if (buffer.length() == CONDITIONAL.length() && buffer.toString().equals(CONDITIONAL)) {
+            conditional = true;
+            out.append(buffer);
+          }
+        } else if (conditional) {
+          out.write(c);
+        }
+        // O comentário acaba no primeiro "-->" depois do "<!--"
+        if (c == '>' && dashes >= 2) {
+          state = State.TEXT;
+        }
+        dashes = c == '-' ? dashes + 1 : 0;
+      }
+
+      private void raw(char c) throws IOException {
+        // O fecho procurado só tem um '<', no início, por isso basta recomeçar nesse carácter
+        buffer.append(c);
+        int i = buffer.length() - 1;
+        if (Character.toLowerCase(c) == closing.charAt(i)) {
+          if (buffer.length() == closing.length()) {
+            if (rawContent) {
+              previousTag = null;
+            }
+            state = State.TAG;
+            quote = 0;
+          }
+          return;
+        }
+        out.append(buffer, 0, i);
+        buffer.delete(0, i);
+        rawContent = true;
+        if (c != '<') {
+          out.write(c);
+          buffer.setLength(0);
+        }
+      }
+    }
+
+    private static String tagName(String html, int start) {
+      int i = start + 1;
+      if (html.charAt(i) == '/') {
+        i++;
+      }
+      int from = i;
+      while (i < html.length() && (Character.isLetterOrDigit(html.charAt(i)) || html.charAt(i) == '!'
+          || html.charAt(i) == '-')) {
+        i++;
+      }
+      return html.substring(from, i).toLowerCase(Locale.ROOT);
+    }
+
+    // Copia a tag reduzindo os espaços entre atributos; o interior das aspas fica igual
+    private static void appendTag(String html, int start, int end, Writer out) throws IOException {
+      char quote = 0;
+      boolean space = false;
+      for (int i = start; i < end; i++) {
+        char c = html.charAt(i);
+        if (quote == 0 && Character.isWhitespace(c)) {
+          space = true;
+          continue;
+        }
+        if (space) {
+          if (c != '>' && !(c == '/' && i + 1 < end && html.charAt(i + 1) == '>')) {
+            out.append(' ');
+          }
+          space = false;
+        }
+        if (quote != 0) {
+          if (c == quote) {
+            quote = 0;
+          }
+        } else if (c == '"' || c == '\'') {
+          quote = c;
+        }
+        out.append(c);
+      }
+    }
+
+    /**
+     * CSS crítico de cada página. A folha de estilo, já minificada, é partida em regras uma vez
+     * por versão (o nome com hash identifica o conteúdo). Os elementos, classes e ids do texto
+     * literal de cada template são lidos uma vez ({@link Outline}), e as regras que eles já
+     * escolhem ficam guardadas por combinação de templates. De cada página só se lê o que os slots
+     * escrevem. As regras escolhidas vão num {@code <style>} no lugar do marcador
+     * {@code <!--critical-css-->} do base.html, e a folha inteira carrega depois de forma assíncrona.
+     */
+    static final class CriticalCss {
+      static final String STYLESHEET = "css/style.css";
+      static final String MARKER = "<!--critical-css-->";
+      // Pseudo-classes e pseudo-elementos (com um nível de parênteses) e seletores de atributo não
+      // restringem nada que se saiba na build: saem antes de se procurarem elementos, classes e ids
+      private static final Pattern PSEUDO = Pattern.compile("::?[A-Za-z-]+(\\([^()]*(\\([^()]*\\))?[^()]*\\))?");
+      private static final Pattern ATTRIBUTE = Pattern.compile("\\[[^\\]]*\\]");
+      private static final Pattern SIMPLE = Pattern.compile("([.#]?)(-?[_A-Za-z][\\w-]*)");
+      private static final Pattern KEYFRAMES = Pattern.compile("@(-[a-z]+-)?keyframes\\s+(\\S+)");
+      private static final Pattern CLASS_OR_ID = Pattern.compile(
+          "(?i)\\s(class|id)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+))");
+      // Uma tag por acabar cujo último atributo é um class ou id ainda sem fim
+      private static final Pattern IN_CLASS_OR_ID = Pattern.compile(
+          "(?i)\\s(class|id)\\s*=\\s*(\"[^\"]*|'[^']*|[^\\s\"'>]*)$");
+
+      private static volatile Sheet sheet;
+
+      // Uma regra, um bloco @media/@supports, ou outra at-rule (keyframes têm nome, as restantes ficam sempre)
+      private interface Node {
+      }
+
+      // Cada seletor da regra reduzido aos elementos, classes e ids que exige
+      private record Rule(int index, String text, List<Set<String>> selectors) implements Node {
+      }
+
+      private record Group(String prelude, List<Node> children) implements Node {
+      }
+
+      private record AtRule(String keyframes, String text) implements Node {
+      }
+
+      // Regras que os literais dos templates já escolhem; das restantes, o que falta a cada seletor
+      private record Partial(List<Outline> outlines, BitSet kept, List<Rule> open) {
+      }
+
+      /**
+       * Elementos, classes e ids do texto literal de um template e, por slot, se ele fica dentro de
+       * uma tag. Um slot no nome de uma tag ou num class/id não deixa ler os literais à parte: o
+       * template fica desconhecido e a primeira passagem escreve-o inteiro.
+       */
+      static final class Outline {
+        private static final Outline UNKNOWN = new Outline(null, Set.of(), new boolean[0]);
+
+        private final String template;
+        private final Set<String> literals;
+        private final boolean[] inTag;
+
+        private Outline(String template, Set<String> literals, boolean[] inTag) {
+          this.template = template;
+          this.literals = literals;
+          this.inTag = inTag;
+        }
+
+        boolean isKnown() {
+          return this != UNKNOWN;
+        }
+
+        boolean inTag(int slot) {
+          return inTag[slot];
+        }
+      }
+
+      private static final class Sheet {
+        final String name;
+        final List<Node> nodes;
+        final List<Rule> rules = new ArrayList<>();
+        final Map<BitSet, String> written = new ConcurrentHashMap<>();
+        // Por nomes dos templates; um template recompilado traz outro Outline e substitui a entrada
+        final Map<List<String>, Partial> partials = new ConcurrentHashMap<>();
+
+        Sheet(String name, String css) {
+          this.name = name;
+          this.nodes = parse(css, new int[1], rules);
+        }
+
+        String css(TagScanner page) {
+          List<Outline> outlines = List.copyOf(page.outlines);
+          List<String> names = outlines.stream().map(o -> o.template).toList();
+          Partial partial = partials.compute(names,
+              (key, cached) -> cached != null && cached.outlines().equals(outlines) ? cached : partial(outlines));
+          BitSet kept = (BitSet) partial.kept().clone();
+          for (Rule rule : partial.open()) {
+            for (Set<String> selector : rule.selectors()) {
+              if (page.used.containsAll(selector)) {
+                kept.set(rule.index());
+                break;
+              }
+            }
+          }
+          return written.computeIfAbsent(kept, this::write);
+        }
+
+        private Partial partial(List<Outline> outlines) {
+          Set<String> literals = new HashSet<>();
+          outlines.forEach(outline -> literals.addAll(outline.literals));
+          BitSet kept = new BitSet(rules.size());
+          List<Rule> open = new ArrayList<>();
+          for (Rule rule : rules) {
+            List<Set<String>> missing = new ArrayList<>();
+            for (Set<String> selector : rule.selectors()) {
+              Set<String> rest = new HashSet<>(selector);
+              rest.removeAll(literals);
+              missing.add(Set.copyOf(rest));
+            }
+            if (missing.stream().anyMatch(Set::isEmpty)) {
+              kept.set(rule.index());
+            } else if (!missing.isEmpty()) {
+              open.add(new Rule(rule.index(), rule.text(), List.copyOf(missing)));
+            }
+          }
+          return new Partial(outlines, kept, List.copyOf(open));
+        }
+
+        private String write(BitSet kept) {
+          StringBuilder rulesText = new StringBuilder();
+          kept.stream().forEach(i -> rulesText.append(rules.get(i).text()));
+          StringBuilder out = new StringBuilder();
+          write(nodes, kept, rulesText.toString(), out);
+          return out.toString();
+        }
+
+        private void write(List<Node> nodes, BitSet kept, String rulesText, StringBuilder out) {
+          for (Node node : nodes) {
+            switch (node) {
+              case Rule rule when kept.get(rule.index()) -> out.append(rule.text());
+              case Group group -> {
+                StringBuilder inner = new StringBuilder();
+                write(group.children(), kept, rulesText, inner);
+                if (!inner.isEmpty()) {
+                  out.append(group.prelude()).append('{').append(inner).append('}');
+                }
+              }
+              // Animações só entram se alguma regra escolhida as usa
+              case AtRule at when at.keyframes() == null || rulesText.contains(at.keyframes()) -> out.append(at.text());
+              default -> {
+              }
+            }
+          }
+        }
+      }
+
+      /** Lê a folha publicada com o nome {@code name}; só volta a parti-la se o nome mudou. */
+      static void load(Path outDir, String name) throws IOException {
+        Sheet current = sheet;
+        if (name == null) {
+          sheet = null;
+        } else if (current == null || !current.name.equals(name)) {
+          sheet = new Sheet(name, Files.readString(outDir.resolve(name), StandardCharsets.UTF_8));
+        }
+      }
+
+      /**
+       * Escreve a página em {@code out} com o CSS crítico no lugar do marcador. A primeira passagem
+       * só recolhe o que a página usa e, nos templates conhecidos, só corre os slots.
+       */
+      static void render(Processor.Page page, Writer out) throws Exception {
+        Sheet current = sheet;
+        if (current == null) {
+          page.writeTo(out);
+          return;
+        }
+        var scanner = new TagScanner();
+        page.writeTo(scanner);
+        var injector = new Injector(out, current.css(scanner));
+        page.writeTo(injector);
+        injector.flush();
+      }
+
+      static Outline outline(String template, List<Template.Segment> segments) {
+        var scanner = new TagScanner();
+        List<Boolean> inTag = new ArrayList<>();
+        for (Template.Segment segment : segments) {
+          switch (segment) {
+            case Template.Literal literal -> scanner.write(literal.text(), 0, literal.text().length());
+            case Template.Slot slot -> {
+              if (scanner.inTag && (scanner.tag.chars().noneMatch(Character::isWhitespace)
+                  || IN_CLASS_OR_ID.matcher(scanner.tag).find())) {
+                return Outline.UNKNOWN;
+              }
+              inTag.add(scanner.inTag);
+            }
+          }
+        }
+        boolean[] slots = new boolean[inTag.size()];
+        for (int i = 0; i < slots.length; i++) {
+          slots[i] = inTag.get(i);
+        }
+        return new Outline(template, Set.copyOf(scanner.used), slots);
+      }
+
+      private static List<Node> parse(String css, int[] at, List<Rule> rules) {
+        List<Node> nodes = new ArrayList<>();
+        while (at[0] < css.length()) {
+          char c = css.charAt(at[0]);
+          if (c == '}') {
+            at[0]++;
+            break;
+          }
+          if (Character.isWhitespace(c) || c == ';') {
+            at[0]++;
+            continue;
+          }
+          int start = at[0];
+          int stop = find(css, start, c == '@');
+          if (stop < 0) {
+            break;
+          }
+          String prelude = css.substring(start, stop).trim();
+          if (css.charAt(stop) == ';') {
+            nodes.add(new AtRule(null, css.substring(start, stop + 1)));
+            at[0] = stop + 1;
+          } else if (prelude.startsWith("@media") || prelude.startsWith("@supports")) {
+            at[0] = stop + 1;
+            nodes.add(new Group(prelude, parse(css, at, rules)));
+          } else {
+            int end = close(css, stop);
+            String text = css.substring(start, end);
+            if (prelude.startsWith("@")) {
+              Matcher keyframes = KEYFRAMES.matcher(prelude);
+              nodes.add(new AtRule(keyframes.matches() ? keyframes.group(2) : null, text));
+            } else {
+              Rule rule = new Rule(rules.size(), text, selectors(prelude));
+              rules.add(rule);
+              nodes.add(rule);
+            }
+            at[0] = end;
+          }
+        }
+        return nodes;
+      }
+
+      // Primeiro { fora de strings e parênteses; numa at-rule também o ; que a pode terminar. Numa
+      // regra normal o ; não termina nada: fica no seletor, que o browser descarta por inválido
+      private static int find(String css, int i, boolean atRule) {
+        int depth = 0;
+        for (; i < css.length(); i++) {
+          char c = css.charAt(i);
+          if (c == '"' || c == '\'') {
+            i = skipQuoted(css, i);
+          } else if (c == '(') {
+            depth++;
+          } else if (c == ')') {
+            depth--;
+          } else if (depth == 0 && (c == '{' || c == ';' && atRule)) {
+            return i;
+          }
+        }
+        return -1;
+      }
+
+      // Posição a seguir à } que fecha a { em open
+      private static int close(String css, int open) {
+        int depth = 0;
+        for (int i = open; i < css.length(); i++) {
+          char c = css.charAt(i);
+          if (c == '"' || c == '\'') {
+            i = skipQuoted(css, i);
+          } else if (c == '{') {
+            depth++;
+          } else if (c == '}' && --depth == 0) {
+            return i + 1;
+          }
+        }
+        return css.length();
+      }
+
+      private static int skipQuoted(String css, int i) {
+        char quote = css.charAt(i);
+        for (i++; i < css.length() && css.charAt(i) != quote; i++) {
+          if (css.charAt(i) == '\\') {
+            i++;
+          }
+        }
+        return i;
+      }
+
+      // "a.b > .c:hover, #d::before" -> [{e:a, c:b, c:c}, {i:d}]; um seletor sem nada casa sempre
+      private static List<Set<String>> selectors(String prelude) {
+        List<Set<String>> selectors = new ArrayList<>();
+        if (prelude.indexOf(';') >= 0) {
+          return List.of();
+        }
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i <= prelude.length(); i++) {
+          char c = i < prelude.length() ? prelude.charAt(i) : ',';
+          if (c == '(' || c == '[') {
+            depth++;
+          } else if (c == ')' || c == ']') {
+            depth--;
+          } else if (c == ',' && depth == 0) {
+            String simple = PSEUDO.matcher(ATTRIBUTE.matcher(prelude.substring(start, i)).replaceAll(" "))
+                .replaceAll(" ");
+            Set<String> required = new HashSet<>();
+            Matcher m = SIMPLE.matcher(simple);
+            while (m.find()) {
+              required.add(switch (m.group(1)) {
+                case "." -> "c:" + m.group(2);
+                case "#" -> "i:" + m.group(2);
+                default -> "e:" + m.group(2).toLowerCase(Locale.ROOT);
+              });
+            }
+            selectors.add(Set.copyOf(required));
+            start = i + 1;
+          }
+        }
+        return List.copyOf(selectors);
+      }
+
+      /** Recolhe os elementos, classes e ids das tags de uma página, sem guardar o resto. */
+      static final class TagScanner extends Writer {
+        // Fora dos literais dos templates conhecidos, que estão em outlines
+        final Set<String> used = new HashSet<>();
+        final Set<Outline> outlines = new LinkedHashSet<>();
+        private final StringBuilder tag = new StringBuilder();
+        private boolean inTag;
+
+        void enter(Outline outline) {
+          outlines.add(outline);
+        }
+
+        // Um slot de fora de uma tag começa no texto; um de dentro só pode trazer atributos
+        void slot(boolean inTag, Object value) throws IOException {
+          if (inTag) {
+            StringBuilder text = new StringBuilder(" ");
+            Template.write(value, text);
+            attributes(text, 0);
+          } else {
+            this.inTag = false;
+            Template.write(value, this);
+          }
+        }
+
+        @Override
+        public void write(String s, int off, int len) {
+          int end = off + len;
+          while (off < end) {
+            if (!inTag) {
+              int lt = s.indexOf('<', off);
+              if (lt < 0 || lt >= end) {
+                return;
+              }
+              inTag = true;
+              tag.setLength(0);
+              off = lt + 1;
+              continue;
+            }
+            int gt = s.indexOf('>', off);
+            if (gt < 0 || gt >= end) {
+              tag.append(s, off, end);
+              return;
+            }
+            tag.append(s, off, gt);
+            inTag = false;
+            scan(tag);
+            off = gt + 1;
+          }
+        }
+
+        @Override
+        public void write(char[] buffer, int off, int len) {
+          write(new String(buffer, off, len), 0, len);
+        }
+
+        @Override
+        public void write(int c) {
+          write(String.valueOf((char) c), 0, 1);
+        }
+
+        private void scan(CharSequence tag) {
+          if (tag.isEmpty() || !Character.isLetter(tag.charAt(0))) {
+            return;
+          }
+          int i = 0;
+          while (i < tag.length() && !Character.isWhitespace(tag.charAt(i)) && tag.charAt(i) != '/') {
+            i++;
+          }
+          used.add("e:" + tag.subSequence(0, i).toString().toLowerCase(Locale.ROOT));
+          attributes(tag, i);
+        }
+
+        private void attributes(CharSequence tag, int from) {
+          Matcher m = CLASS_OR_ID.matcher(tag);
+          m.region(from, tag.length());
+          while (m.find()) {
+            String value = m.group(2) != null ? m.group(2) : m.group(3) != null ? m.group(3) : m.group(4);
+            if (m.group(1).equalsIgnoreCase("id")) {
+              used.add("i:" + value.trim());
+            } else {
+              for (String name : value.trim().split("\\s+")) {
+                used.add("c:" + name);
+              }
+            }
+          }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+      }
+
+      /** Passa a página para {@code out}, trocando o marcador pelo {@code <style>} com o CSS crítico. */
+      private static final class Injector extends Writer {
+        private final Writer out;
+        private final String css;
+        private int matched;
+
+        Injector(Writer out, String css) {
+          this.out = out;
+          this.css = css;
+        }
+
+        @Override
+        public void write(String s, int off, int len) throws IOException {
+          int end = off + len;
+          while (off < end) {
+            if (matched == 0) {
+              int lt = s.indexOf('<', off);
+              if (lt < 0 || lt >= end) {
+                out.write(s, off, end - off);
+                return;
+              }
+              out.write(s, off, lt - off);
+              off = lt;
+            }
+            put(s.charAt(off++));
+          }
+        }
+
+        @Override
+        public void write(char[] buffer, int off, int len) throws IOException {
+          write(new String(buffer, off, len), 0, len);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+          put((char) c);
+        }
+
+        private void put(char c) throws IOException {
+          if (c == MARKER.charAt(matched)) {
+            if (++matched == MARKER.length()) {
+              matched = 0;
+              if (!css.isEmpty()) {
+                out.write("<style>");
+                out.write(css);
+                out.write("</style>");
+              }
+            }
+            return;
+          }
+          if (matched > 0) {
+            // O marcador só tem um '<', no início: um prefixo falhado nunca contém outro começo
+            out.write(MARKER, 0, matched);
+            matched = 0;
+            if (c == '<') {
+              matched = 1;
+              return;
+            }
+          }
+          out.write(c);
+        }
+
+        @Override
+        public void flush() throws IOException {
+          if (matched > 0) {
+            out.write(MARKER, 0, matched);
+            matched = 0;
+          }
+          out.flush();
+        }
+
+        // Quem fecha o Writer de baixo é quem o abriu
+        @Override
+        public void close() throws IOException {
+          flush();
+        }
+      }
+    }
+
+    /**
+     * Remove comentários e espaços redundantes. Strings ficam intactas e o espaço antes de
+     * ":" e "(" é mantido, porque muda o significado de seletores e de media queries.
+     */
+    static String minifyCss(String css) {
+      StringBuilder out = new StringBuilder(css.length());
+      boolean pendingSpace = false;
+      int i = 0;
+      while (i < css.length()) {
+        char c = css.charAt(i);
+        if (c == '/' && i + 1 < css.length() && css.charAt(i + 1) == '*') {
+          int end = css.indexOf("*/", i + 2);
+          i = end < 0 ? css.length() : end + 2;
+          pendingSpace = true;
+          continue;
+        }
+        if (Character.isWhitespace(c)) {
+          pendingSpace = true;
+          i++;
+          continue;
+        }
+        if (pendingSpace) {
+          char previous = out.isEmpty() ? '{' : out.charAt(out.length() - 1);
+          if ("{};,:>".indexOf(previous) < 0 && "{};,>".indexOf(c) < 0) {
+            out.append(' ');
+          }
+          pendingSpace = false;
+        }
+        if (c == '"' || c == '\'') {
+          i = copyQuoted(css, i, out);
+          continue;
+        }
+        if (c == '}' && !out.isEmpty() && out.charAt(out.length() - 1) == ';') {
+          out.setLength(out.length() - 1);
+        }
+        out.append(c);
+        i++;
+      }
+      return out.toString();
+    }
+
+    /**
+     * Minificação conservadora: remove comentários, indentação e linhas em branco, mas mantém as
+     * quebras de linha para não interferir com a inserção automática de ponto e vírgula.
+     */
+    static String minifyJs(String js) {
+      StringBuilder out = new StringBuilder(js.length());
+      boolean lineStart = true;
+      int i = 0;
+      while (i < js.length()) {
+        char c = js.charAt(i);
+        char next = i + 1 < js.length() ? js.charAt(i + 1) : '\0';
+        if (c == '"' || c == '\'' || c == '`') {
+          i = copyQuoted(js, i, out);
+          lineStart = false;
+        } else if (c == '/' && next == '/') {
+          while (i < js.length() && js.charAt(i) != '\n') {
+            i++;
+          }
+        } else if (c == '/' && next == '*') {
+          int end = js.indexOf("*/", i + 2);
+          i = end < 0 ? js.length() : end + 2;
+          if (!lineStart && i < js.length() && !Character.isWhitespace(js.charAt(i))) {
+            out.append(' ');
+          }
+        } else if (c == '/' && regexAllowed(out)) {
+          i = copyRegex(js, i, out);
+          lineStart = false;
+        } else if (c == '\n') {
+          trimTrailing(out);
+          if (!out.isEmpty() && out.charAt(out.length() - 1) != '\n') {
+            out.append('\n');
+          }
+          lineStart = true;
+          i++;
+        } else if (c == ' ' || c == '\t' || c == '\r') {
+          if (!lineStart && !out.isEmpty() && out.charAt(out.length() - 1) != ' ') {
+            out.append(' ');
+          }
+          i++;
+        } else {
+          out.append(c);
+          lineStart = false;
+          i++;
+        }
+      }
+      trimTrailing(out);
+      return out.append('\n').toString();
+    }
+
+    private static void trimTrailing(StringBuilder out) {
+      while (!out.isEmpty() && out.charAt(out.length() - 1) == ' ') {
+        out.setLength(out.length() - 1);
+      }
+    }
+
+    // Uma "/" inicia uma regex quando não pode ser divisão: depois de operador, "(" ou "return"
+    private static boolean regexAllowed(StringBuilder out) {
+      int i = out.length() - 1;
+      while (i >= 0 && Character.isWhitespace(out.charAt(i))) {
+        i--;
+      }
+      if (i < 0) {
+        return true;
+      }
+      char previous = out.charAt(i);
+      if ("(,=:[!&|?{};+-*%<>~^".indexOf(previous) >= 0) {
+        return true;
+      }
+      int wordEnd = i + 1;
+      while (i >= 0 && Character.isJavaIdentifierPart(out.charAt(i))) {
+        i--;
+      }
+      String word = out.substring(i + 1, wordEnd);
+      return word.equals("return") || word.equals("typeof") || word.equals("case");
+    }
+
+    private static int copyQuoted(String s, int i, StringBuilder out) {
+      char quote = s.charAt(i);
+      out.append(quote);
+      i++;
+      while (i < s.length()) {
+        char c = s.charAt(i);
+        out.append(c);
+        i++;
+        if (c == '\\' && i < s.length()) {
+          out.append(s.charAt(i));
+          i++;
+        } else if (c == quote) {
+          break;
+        }
+      }
+      return i;
+    }
+
+    private static int copyRegex(String js, int i, StringBuilder out) {
+      boolean inClass = false;
+      out.append(js.charAt(i));
+      i++;
+      while (i < js.length()) {
+        char c = js.charAt(i);
+        out.append(c);
+        i++;
+        if (c == '\\' && i < js.length()) {
+          out.append(js.charAt(i));
+          i++;
+        } else if (c == '[') {
+          inClass = true;
+        } else if (c == ']') {
+          inClass = false;
+        } else if ((c == '/' && !inClass) || c == '\n') {
+          break;
+        }
+      }
+      return i;
+    }
+  }
+
+  /**
+   * Publicação do site. Uma build completa é gerada numa pasta irmã (site.staging) e o site
+   * publicado só é substituído no fim, por isso uma build que falha deixa site/ intacto. Antes da
+   * troca, cada ficheiro com o mesmo conteúdo do publicado passa a ser um hard link para ele: fica
+   * com a data de modificação original e o rsync ou o deploy do GitHub Pages enviam apenas o que
+   * mudou. Ficheiros que deixaram de ser gerados desaparecem com a pasta antiga.
+   *
+   * As builds incrementais escrevem diretamente em site/ ({@link #inPlace}), porque só gravam o
+   * que mudou e o manifesto remove o que ficou obsoleto.
+   */
+  static final class Staging {
+    private static final Set<String> COMPRESSIBLE = Set.of("html", "css", "js", "json", "xml", "svg", "atom", "rss");
+
+    private final Path siteDir;
+    private final Path dir;
+    private final AtomicInteger changed = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private int removed;
+
+    private Staging(Path siteDir, Path dir) {
+      this.siteDir = siteDir;
+      this.dir = dir;
+    }
+
+    static Path stagingDir(Path siteDir) {
+      return siteDir.resolveSibling(siteDir.getFileName() + ".staging");
+    }
+
+    static Staging inPlace(Path siteDir) {
+      return new Staging(siteDir, siteDir);
+    }
+
+    // Começa uma build completa; restos de uma build anterior que falhou são apagados
+    static Staging begin(Path siteDir) throws IOException {
+      Path dir = stagingDir(siteDir);
+      deleteTree(dir);
+      Files.createDirectories(dir);
+      return new Staging(siteDir, dir);
+    }
+
+    /** Pasta onde a build escreve. */
+    Path dir() {
+      return dir;
+    }
+
+    boolean isStaged() {
+      return !dir.equals(siteDir);
+    }
+
+    int changedCount() {
+      return changed.get();
+    }
+
+    int unchangedCount() {
+      return unchanged.get();
+    }
+
+    int removedCount() {
+      return removed;
+    }
+
+    /**
+     * Reaproveita a versão publicada de {@code staged} se existir, sem a gerar de novo. Só deve ser
+     * usado para ficheiros cujo nome já identifica o conteúdo, como os assets com fingerprint.
+     */
+    boolean reuse(Path staged) throws IOException {
+      if (!isStaged()) {
+        return false;
+      }
+      Path published = siteDir.resolve(dir.relativize(staged));
+      if (!Files.isRegularFile(published)) {
+        return false;
+      }
+      Files.createDirectories(staged.getParent());
+      link(published, staged);
+      return true;
+    }
+
+    /**
+     * Grava ao lado de cada HTML, CSS, JS, JSON e XML uma cópia .gz com compressão máxima, para
+     * servidores que enviam ficheiros pré-comprimidos. Só comprime o que mudou: na staging liga
+     * o .gz publicado quando o original não mudou; em site/ compara as datas dos dois ficheiros.
+     */
+    void precompress(Metrics metrics) throws IOException {
+      List<Path> files;
+      try (Stream<Path> walk = Files.walk(dir)) {
+        files = walk.filter(Files::isRegularFile).toList();
+      }
+      List<Future<Void>> futures = new ArrayList<>();
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".gz")) {
+          // .gz órfão de uma página que deixou de existir
+          if (!Files.exists(file.resolveSibling(name.substring(0, name.length() - 3)))) {
+            Files.delete(file);
+          }
+        } else if (COMPRESSIBLE.contains(name.substring(name.lastIndexOf('.') + 1))) {
+          futures.add(Processor.EXECUTOR.submit(() -> {
+            precompress(file, metrics);
+            return null;
+          }));
+        }
+      }
+      for (Future<Void> future : futures) {
+        Processor.join(future);
+      }
+    }
+
+    private void precompress(Path file, Metrics metrics) throws IOException {
+      Path gz = file.resolveSibling(file.getFileName() + ".gz");
+      if (isStaged()) {
+        Path published = siteDir.resolve(dir.relativize(file));
+        Path publishedGz = published.resolveSibling(gz.getFileName());
+        if (Files.isRegularFile(publishedGz) && same(file, published)) {
+          link(publishedGz, gz);
+          return;
+        }
+      } else if (Files.exists(gz)
+          && Files.getLastModifiedTime(gz).compareTo(Files.getLastModifiedTime(file)) >= 0) {
+        return;
+      }
+      var source = metrics.source(gz);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (var out = new GZIPOutputStream(bytes) {
+        {
+          def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+      }) {
+        Files.copy(file, out);
+      }
+      source.lap(Metrics.Stage.COMPRESS);
+      Files.write(gz, bytes.toByteArray());
+      source.lap(Metrics.Stage.WRITE, bytes.size());
+      source.finish();
+    }
+
+    private static boolean same(Path a, Path b) throws IOException {
+      return Files.isRegularFile(b)
+          && (Files.isSameFile(a, b) || Files.size(a) == Files.size(b) && Files.mismatch(a, b) == -1);
+    }
+
+    /** Compara a staging com o site publicado e troca as duas pastas. */
+    void publish() throws IOException {
+      if (!isStaged()) {
+        return;
+      }
+      List<Path> files;
+      try (Stream<Path> walk = Files.walk(dir)) {
+        files = walk.filter(Files::isRegularFile).toList();
+      }
+      List<Future<Void>> futures = new ArrayList<>(files.size());
+      for (Path staged : files) {
+        futures.add(Processor.EXECUTOR.submit(() -> {
+          compare(staged);
+          return null;
+        }));
+      }
+      for (Future<Void> future : futures) {
+        Processor.join(future);
+      }
+
+      if (Files.exists(siteDir)) {
+        try (Stream<Path> walk = Files.walk(siteDir)) {
+          removed = (int) walk.filter(Files::isRegularFile)
+              .filter(p -> !Files.exists(dir.resolve(siteDir.relativize(p))))
+              .count();
+        }
+      }
+      swap();
+    }
+
+    private void compare(Path staged) throws IOException {
+      Path published = siteDir.resolve(dir.relativize(staged));
+      if (!same(staged, published)) {
+        changed.incrementAndGet();
+        return;
+      }
+      if (!Files.isSameFile(staged, published)) {
+        Files.delete(staged);
+        link(published, staged);
+      }
+      unchanged.incrementAndGet();
+    }
+
+    // Duas renomeações na mesma pasta-mãe, cada uma atómica mas não o par: entre elas site/ não
+    // existe. Se a segunda falhar o site anterior é reposto
+    private void swap() throws IOException {
+      Path old = siteDir.resolveSibling(siteDir.getFileName() + ".old");
+      deleteTree(old);
+      boolean published = Files.exists(siteDir);
+      if (published) {
+        Files.move(siteDir, old, StandardCopyOption.ATOMIC_MOVE);
+      }
+      try {
+        Files.move(dir, siteDir, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        if (published) {
+          Files.move(old, siteDir, StandardCopyOption.ATOMIC_MOVE);
+        }
+        throw e;
+      }
+      deleteTree(old);
+    }
+
+    // Hard link; noutro sistema de ficheiros ou sem suporte, cópia pelo canal mantendo a data
+    private static void link(Path existing, Path link) throws IOException {
+      try {
+        Files.createLink(link, existing);
+        return;
+      } catch (UnsupportedOperationException | IOException e) {
+        // segue para a cópia
+      }
+      try (FileChannel in = FileChannel.open(existing, StandardOpenOption.READ);
+          FileChannel out = FileChannel.open(link, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+        long size = in.size();
+        for (long position = 0; position < size; ) {
+          position += in.transferTo(position, size - position, out);
+        }
+      }
+      Files.setLastModifiedTime(link, Files.getLastModifiedTime(existing));
+    }
+
+    /** Apaga o site publicado e o que sobrou de builds anteriores. */
+    static void clean(Path siteDir) throws IOException {
+      deleteTree(siteDir);
+      deleteTree(stagingDir(siteDir));
+      deleteTree(siteDir.resolveSibling(siteDir.getFileName() + ".old"));
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+      if (!Files.exists(root)) {
+        return;
+      }
+      List<Path> paths;
+      try (Stream<Path> walk = Files.walk(root)) {
+        paths = walk.sorted(Comparator.reverseOrder()).toList();
+      }
+      for (Path path : paths) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Manifesto da build incremental: guarda o hash das fontes, dos templates e o caminho de
+   * cada página gerada, para que a build seguinte só renderize o que realmente mudou.
+   */
+  static class Manifest {
+    static final Path DEFAULT_PATH = Paths.get(".cache", "build-manifest.tsv");
+    private static final String HEADER = "# kambas-manifest v2";
+
+    record Entry(String hash, Path output) {
+    }
+
+    private final Path file;
+    private final boolean incremental;
+    private final String globalKey;
+    // As saídas ficam gravadas relativas à pasta onde a build escreve (site/ ou a staging)
+    private final Path root;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    private final Map<String, String> templateHashes = new ConcurrentHashMap<>();
+    private final AtomicInteger rendered = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final Set<Path> changedOutputs = ConcurrentHashMap.newKeySet();
+    private final Set<Path> removedOutputs = ConcurrentHashMap.newKeySet();
+    // Data do ficheiro gravado por este processo; ver next
+    private FileTime saved;
+
+    private Manifest(Path file, boolean incremental, String globalKey, Path root, Map<String, Entry> previous) {
+      this.file = file;
+      this.incremental = incremental;
+      this.globalKey = globalKey;
+      this.root = root;
+      this.previous = previous;
+    }
+
+    /**
+     * Carrega o manifesto anterior. Se não existir, estiver corrompido ou tiver sido gerado por
+     * outra versão do gerador (ou noutro ano, por causa do rodapé), a build passa a ser completa
+     * e é gerada na pasta de staging.
+     */
+    static Manifest load(Path file, Path siteDir, boolean incremental) throws IOException {
+      String globalKey = globalKey();
+      Path staging = Staging.stagingDir(siteDir);
+      Map<String, Entry> previous = new HashMap<>();
+      if (!incremental || !Files.exists(file)) {
+        return new Manifest(file, false, globalKey, staging, previous);
+      }
+
+      List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      if (lines.size() < 2 || !lines.get(0).equals(HEADER) || !lines.get(1).equals("global\t" + globalKey)) {
+        return new Manifest(file, false, globalKey, staging, previous);
+      }
+
+      for (String line : lines.subList(2, lines.size())) {
+        String[] parts = line.split("\t");
+        if (parts.length != 3) {
+          return new Manifest(file, false, globalKey, staging, new HashMap<>());
+        }
+        previous.put(parts[0], new Entry(parts[1], siteDir.resolve(parts[2])));
+      }
+      return new Manifest(file, true, globalKey, siteDir, previous);
+    }
+
+    /**
+     * Manifesto da build seguinte no mesmo processo, com as regras de {@link #load} mas sem ler o
+     * ficheiro: as entradas desta build passam a ser as anteriores, relativas a {@code siteDir}.
+     */
+    Manifest next(Path siteDir, boolean incremental) throws IOException {
+      // Outro processo gravou uma build entretanto: o que está em memória deixou de valer
+      if (!incremental || saved == null || !Files.exists(file) || !saved.equals(Files.getLastModifiedTime(file))) {
+        return load(file, siteDir, incremental);
+      }
+      String globalKey = globalKey();
+      if (!globalKey.equals(this.globalKey)) {
+        return new Manifest(file, false, globalKey, Staging.stagingDir(siteDir), new HashMap<>());
+      }
+      Map<String, Entry> entries = HashMap.newHashMap(current.size());
+      current.forEach((key, entry) -> entries.put(key,
+          new Entry(entry.hash(), siteDir.resolve(root.relativize(entry.output())))));
+      return new Manifest(file, true, globalKey, siteDir, entries);
+    }
+
+    boolean isIncremental() {
+      return incremental;
+    }
+
+    int renderedCount() {
+      return rendered.get();
+    }
+
+    int skippedCount() {
+      return skipped.get();
+    }
+
+    // Páginas renderizadas nesta build
+    Set<Path> changedOutputs() {
+      return changedOutputs;
+    }
+
+    // Páginas apagadas por removeStaleOutputs
+    Set<Path> removedOutputs() {
+      return removedOutputs;
+    }
+
+    /**
+     * Regista uma página gerada a partir de um ficheiro Markdown e indica se precisa de ser
+     * renderizada: a fonte, o template próprio ou o base.html mudaram, ou a saída não existe.
+     */
+    boolean track(Path source, String md, String template, Path output) throws IOException {
+      return track(source, md, template, output, "");
+    }
+
+    // extra: dados que não estão na fonte mas aparecem na página, como o URL de um avatar local
+    boolean track(Path source, String md, String template, Path output, String extra) throws IOException {
+      return trackSource(source, digest(List.of(md)), template, output, extra);
+    }
+
+    // Como track, com o digest da fonte já calculado: páginas renderizadas depois da travessia
+    boolean trackSource(Path source, String digest, String template, Path output, String extra)
+        throws IOException {
+      String hash = digest(List.of(digest, templateHash("base.html"), templateHash(template), extra));
+      return record(key(source), hash, output);
+    }
+
+    /**
+     * Regista uma página agregada; {@code fingerprint} deve cobrir apenas os dados exibidos.
+     */
+    boolean trackAggregate(Path output, String template, String fingerprint) throws IOException {
+      String hash = digest(List.of(fingerprint, templateHash("base.html"), templateHash(template)));
+      return record("aggregate:" + key(root.relativize(output)), hash, output);
+    }
+
+    /**
+     * Regista um ficheiro gerado sem template (sitemap, feeds); {@code fingerprint} cobre todo o
+     * conteúdo.
+     */
+    boolean trackFile(Path output, String fingerprint) {
+      return record("file:" + key(root.relativize(output)), fingerprint, output);
+    }
+
+    /** Regista uma saída que outro processo (uma fatia, ver {@link Shard}) já escreveu. */
+    void adopt(String key, String hash, Path output) {
+      record(key, hash, output);
+    }
+
+    // Entradas desta build; ver Shard
+    Map<String, Entry> entries() {
+      return current;
+    }
+
+    // Caminho de uma saída relativo à pasta onde a build escreve, como fica no ficheiro
+    String relative(Path output) {
+      return key(root.relativize(output));
+    }
+
+    private boolean record(String key, String hash, Path output) {
+      current.put(key, new Entry(hash, output));
+      Entry before = previous.get(key);
+      boolean changed = before == null || !before.hash().equals(hash) || !before.output().equals(output)
+          || !Files.exists(output);
+      (changed ? rendered : skipped).incrementAndGet();
+      if (changed) {
+        changedOutputs.add(output);
+      }
+      return changed;
+    }
+
+    /**
+     * Remove as páginas de fontes que foram apagadas ou cujo caminho de saída mudou.
+     */
+    void removeStaleOutputs() throws IOException {
+      Set<Path> live = new HashSet<>();
+      current.values().forEach(e -> live.add(e.output()));
+      for (Entry entry : previous.values()) {
+        if (!live.contains(entry.output()) && Files.deleteIfExists(entry.output())) {
+          removedOutputs.add(entry.output());
+          Files.deleteIfExists(entry.output().resolveSibling(entry.output().getFileName() + ".gz"));
+          pruneEmptyParents(entry.output());
+        }
+      }
+    }
+
+    // Apaga as pastas que ficaram vazias (posts/2025/02/...), sem nunca passar de root
+    private void pruneEmptyParents(Path output) throws IOException {
+      for (Path dir = output.getParent(); dir != null && dir.startsWith(root) && !dir.equals(root);
+          dir = dir.getParent()) {
+        try {
+          Files.delete(dir);
+        } catch (DirectoryNotEmptyException e) {
+          return;
+        }
+      }
+    }
+
+    void save() throws IOException {
+      StringBuilder sb = new StringBuilder();
+      sb.append(HEADER).append("\n");
+      sb.append("global\t").append(globalKey).append("\n");
+      new TreeMap<>(current).forEach((key, entry) -> sb.append(key).append("\t").append(entry.hash())
+          .append("\t").append(key(root.relativize(entry.output()))).append("\n"));
+
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.writeString(tmp, sb.toString(), StandardCharsets.UTF_8);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      saved = Files.getLastModifiedTime(file);
+    }
+
+    // Hash do template compilado, que já inclui os URLs dos assets com fingerprint
+    private String templateHash(String template) throws IOException {
+      return templateHashes.computeIfAbsent(template, TemplateEngine::fingerprint);
+    }
+
+    static String key(Path path) {
+      return path.normalize().toString().replace('\\', '/');
+    }
+
+    // O próprio gerador e o ano corrente afetam todas as páginas
+    private static String globalKey() throws IOException {
+      return digest(List.of(ParseCache.version(), LocalDate.now().getYear()));
+    }
+
+    static String digest(List<?> parts) {
+      try {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        for (Object part : parts) {
+          md.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+          md.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(md.digest());
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /**
+   * Cache em disco dos documentos já convertidos (.cache/parse-cache.bin), por SHA-256 da fonte:
+   * metadados, HTML do corpo e descrição. O slug e a flag de evento próximo calculam-se sempre.
+   */
+  static final class ParseCache {
+    static final Path DEFAULT_PATH = Paths.get(".cache", "parse-cache.bin");
+    private static final int MAGIC = 0x4B504331; // "KPC1"
+    private static final int HASH_BYTES = 32;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private record Version(FileTime modified, long size, String digest) {
+    }
+
+    // Versão do main.java já calculada neste processo; ver version()
+    private static volatile Version lastVersion;
+
+    /** Resultado do parsing de um documento; não depende do nome do ficheiro nem da data. */
+    record Parsed(FrontMatter front, String html, String excerpt) {
+
+      static Parsed of(String md) {
+        FrontMatter front = FrontMatter.parse(md);
+        String html = MarkdownProcessor.markdownToHtml(md, front.bodyStart());
+        // Sem descrição nos metadados usa o primeiro parágrafo do corpo
+        String excerpt = front.description() != null
+            ? front.description()
+            : MarkdownProcessor.extractDescription(md.substring(front.bodyStart()));
+        return new Parsed(front, html, excerpt);
+      }
+    }
+
+    private record Slot(int offset, int length) {
+    }
+
+    private final Path file;
+    private final String version;
+    private final ByteBuffer mapped;
+    private final Map<String, Slot> index;
+    // Hashes que estão no ficheiro
+    private final Set<String> stored;
+    // Documentos da build anterior do mesmo processo, já descodificados; ver next
+    private final Map<String, Parsed> resident;
+    private final Map<String, byte[]> residentRecords;
+    private final Map<String, byte[]> current = new ConcurrentHashMap<>();
+    private final Map<String, Parsed> decoded = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    // Só com LOW_MEMORY: onde está cada registo usado, no mapa ou no ficheiro de despejo
+    private final Map<String, Slot> reused = new ConcurrentHashMap<>();
+    private final Map<String, Slot> spilled = new ConcurrentHashMap<>();
+    private FileChannel spill;
+    private int spillSize;
+    private volatile boolean persisted;
+
+    private ParseCache(Path file, String version, ByteBuffer mapped, Map<String, Slot> index) {
+      this(file, version, mapped, index, index.keySet(), Map.of(), Map.of());
     }
 
-    private static String applyBaseTemplate(String template, String content, String title,
-        String description, boolean isIndex) {
-      return applyBaseTemplate(template, content, title, description, isIndex, "");
+    private ParseCache(Path file, String version, ByteBuffer mapped, Map<String, Slot> index, Set<String> stored,
+        Map<String, Parsed> resident, Map<String, byte[]> residentRecords) {
+      this.file = file;
+      this.version = version;
+      this.mapped = mapped;
+      this.index = index;
+      this.stored = stored;
+      this.resident = resident;
+      this.residentRecords = residentRecords;
     }
 
-    private static String applyBaseTemplate(String template, String content, String title,
-        String description, boolean isIndex, String basePath) {
-      String currentYear = String.valueOf(LocalDate.now().getYear());
+    /**
+     * Mapeia a cache anterior. Se não existir, estiver corrompida ou for de outra versão do
+     * parser, começa vazia.
+     */
+    static ParseCache load(Path file) throws IOException {
+      String version = version();
+      if (Files.exists(file)) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+          Map<String, Slot> index = readIndex(buffer, version);
+          if (index != null) {
+            return new ParseCache(file, version, buffer, index);
+          }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+          // Cache truncada: trata-se como vazia
+        }
+      }
+      return new ParseCache(file, version, ByteBuffer.allocate(0), Map.of());
+    }
+
+    private static Map<String, Slot> readIndex(ByteBuffer buffer, String version) {
+      ByteBuffer in = buffer.duplicate();
+      if (in.getInt() != MAGIC || !version.equals(HexFormat.of().formatHex(bytes(in, HASH_BYTES)))) {
+        return null;
+      }
+      int count = in.getInt();
+      if (count < 0 || count > in.remaining() / (HASH_BYTES + 8)) {
+        return null;
+      }
+      Map<String, Slot> index = HashMap.newHashMap(count);
+      for (int i = 0; i < count; i++) {
+        String hash = HexFormat.of().formatHex(bytes(in, HASH_BYTES));
+        Slot slot = new Slot(in.getInt(), in.getInt());
+        if (slot.offset() < 0 || slot.length() < 0 || slot.offset() > buffer.capacity() - slot.length()) {
+          return null;
+        }
+        index.put(hash, slot);
+      }
+      return index;
+    }
+
+    /**
+     * Cache da build seguinte no mesmo processo. Os documentos usados nesta build passam já
+     * descodificados, sem voltar ao ficheiro; com LOW_MEMORY volta-se a mapear o ficheiro gravado.
+     */
+    ParseCache next() throws IOException {
+      if (Processor.LOW_MEMORY) {
+        return load(file);
+      }
+      return new ParseCache(file, version, ByteBuffer.allocate(0), Map.of(),
+          persisted ? Set.copyOf(current.keySet()) : Set.of(), Map.copyOf(decoded), Map.copyOf(current));
+    }
+
+    int hits() {
+      return hits.get();
+    }
+
+    int misses() {
+      return misses.get();
+    }
+
+    int size() {
+      return current.size() + reused.size() + spilled.size();
+    }
+
+    /** Devolve o documento convertido, da cache quando a mesma fonte já foi vista. */
+    Parsed parse(String md) {
+      String hash = Manifest.digest(List.of(md));
+      Parsed kept = resident.get(hash);
+      if (kept != null) {
+        current.put(hash, residentRecords.get(hash));
+        decoded.put(hash, kept);
+        hits.incrementAndGet();
+        return kept;
+      }
+      Slot slot = index.get(hash);
+      if (slot != null) {
+        byte[] record = new byte[slot.length()];
+        mapped.get(slot.offset(), record);
+        Parsed parsed = decode(record);
+        if (parsed != null) {
+          if (Processor.LOW_MEMORY) {
+            reused.put(hash, slot);
+          } else {
+            current.put(hash, record);
+            decoded.put(hash, parsed);
+          }
+          hits.incrementAndGet();
+          return parsed;
+        }
+      }
+      Parsed parsed = Parsed.of(md);
+      if (Processor.LOW_MEMORY) {
+        spill(hash, encode(parsed));
+      } else {
+        current.put(hash, encode(parsed));
+        decoded.put(hash, parsed);
+      }
+      misses.incrementAndGet();
+      return parsed;
+    }
+
+    /**
+     * Volta a dar um documento já convertido nesta build, sem contar como acerto nem falha. Serve
+     * para os poucos corpos que as listagens de resumos ainda precisam (feeds).
+     */
+    Parsed reread(String md) throws IOException {
+      String hash = Manifest.digest(List.of(md));
+      Parsed kept = decoded.get(hash);
+      if (kept != null) {
+        return kept;
+      }
+      byte[] record = record(hash);
+      Parsed parsed = record == null ? null : decode(record);
+      return parsed != null ? parsed : Parsed.of(md);
+    }
+
+    private synchronized void spill(String hash, byte[] record) {
+      try {
+        if (spill == null) {
+          Files.createDirectories(file.toAbsolutePath().getParent());
+          spill = FileChannel.open(file.resolveSibling(file.getFileName() + ".spill"), StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE,
+              StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+          spill.write(buffer, spillSize + buffer.position());
+        }
+        spilled.put(hash, new Slot(spillSize, record.length));
+        spillSize += record.length;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    // O registo de um documento usado nesta build, esteja ele no heap, no mapa ou no despejo
+    private byte[] record(String hash) throws IOException {
+      byte[] record = current.get(hash);
+      if (record != null) {
+        return record;
+      }
+      Slot slot = reused.get(hash);
+      if (slot != null) {
+        record = new byte[slot.length()];
+        mapped.get(slot.offset(), record);
+        return record;
+      }
+      slot = spilled.get(hash);
+      if (slot == null) {
+        // Documento que esta build não converteu (o merge das fatias): ainda pode estar no ficheiro
+        slot = index.get(hash);
+        if (slot == null) {
+          return null;
+        }
+        record = new byte[slot.length()];
+        mapped.get(slot.offset(), record);
+        return record;
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(slot.length());
+      while (buffer.hasRemaining()) {
+        if (spill.read(buffer, slot.offset() + buffer.position()) < 0) {
+          throw new EOFException("Despejo da cache de parsing truncado");
+        }
+      }
+      return buffer.array();
+    }
+
+    private int length(String hash) {
+      byte[] record = current.get(hash);
+      return record != null ? record.length : Objects.requireNonNullElseGet(reused.get(hash),
+          () -> spilled.get(hash)).length();
+    }
+
+    void save() throws IOException {
+      Set<String> keys = new TreeSet<>(current.keySet());
+      keys.addAll(reused.keySet());
+      keys.addAll(spilled.keySet());
+      try {
+        if (misses.get() == 0 && keys.equals(stored)) {
+          persisted = true;
+          return;
+        }
+        write(keys);
+      } finally {
+        if (spill != null) {
+          spill.close();
+        }
+      }
+    }
+
+    // Escreve em streaming: um registo de cada vez, copiado de onde estiver
+    private void write(Set<String> keys) throws IOException {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        int offset = 4 + HASH_BYTES + 4 + keys.size() * (HASH_BYTES + 8);
+        out.writeInt(MAGIC);
+        out.write(HexFormat.of().parseHex(version));
+        out.writeInt(keys.size());
+        for (String hash : keys) {
+          int length = length(hash);
+          out.write(HexFormat.of().parseHex(hash));
+          out.writeInt(offset);
+          out.writeInt(length);
+          offset += length;
+        }
+        for (String hash : keys) {
+          out.write(record(hash));
+        }
+      }
+      try {
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        persisted = true;
+      } catch (FileSystemException e) {
+        // No Windows um ficheiro mapeado não pode ser substituído; fica a cache anterior
+        Files.deleteIfExists(tmp);
+      }
+    }
+
+    private static byte[] encode(Parsed parsed) {
+      try {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(parsed.html().length() + 512);
+        DataOutputStream out = new DataOutputStream(bytes);
+        FrontMatter front = parsed.front();
+        writeString(out, front.title());
+        writeString(out, front.description());
+        out.writeLong(front.date() == null ? NO_DATE : front.date().toEpochDay());
+        writeString(out, front.location());
+        writeString(out, front.type());
+        writeString(out, front.name());
+        writeString(out, front.avatarUrl());
+        out.writeInt(front.tags().size());
+        for (String tag : front.tags()) {
+          writeString(out, tag);
+        }
+        writeMap(out, front.socials());
+        out.writeInt(front.bodyStart());
+        writeString(out, parsed.html());
+        writeString(out, parsed.excerpt());
+        return bytes.toByteArray();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    // null se o registo está corrompido: quem chama volta a converter a fonte
+    private static Parsed decode(byte[] record) {
+      try {
+        return decode(ByteBuffer.wrap(record));
+      } catch (BufferUnderflowException | IllegalArgumentException e) {
+        return null;
+      }
+    }
+
+    private static Parsed decode(ByteBuffer in) {
+      String title = readString(in);
+      String description = readString(in);
+      long epochDay = in.getLong();
+      String location = readString(in);
+      String type = readString(in);
+      String name = readString(in);
+      String avatarUrl = readString(in);
+      List<String> tags = new ArrayList<>();
+      for (int i = in.getInt(); i > 0; i--) {
+        tags.add(readString(in));
+      }
+      Map<String, String> socials = readMap(in);
+      int bodyStart = in.getInt();
+      LocalDate date = epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+      FrontMatter front = new FrontMatter(title, description, date, location, type, name, avatarUrl,
+          List.copyOf(tags), socials, bodyStart);
+      return new Parsed(front, readString(in), readString(in));
+    }
+
+    // Comprimento em bytes seguido do UTF-8; -1 para null
+    static void writeString(DataOutputStream out, String value) throws IOException {
+      if (value == null) {
+        out.writeInt(-1);
+        return;
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+      int length = in.getInt();
+      return length < 0 ? null : new String(bytes(in, length), StandardCharsets.UTF_8);
+    }
+
+    static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+      out.writeInt(map.size());
+      for (var entry : map.entrySet()) {
+        writeString(out, entry.getKey());
+        writeString(out, entry.getValue());
+      }
+    }
+
+    // Reinserir pela mesma ordem mantém a ordem de iteração do HashMap original
+    static Map<String, String> readMap(ByteBuffer in) {
+      Map<String, String> map = new HashMap<>();
+      for (int i = in.getInt(); i > 0; i--) {
+        map.put(readString(in), readString(in));
+      }
+      return map;
+    }
+
+    private static byte[] bytes(ByteBuffer in, int length) {
+      if (length > in.remaining()) {
+        throw new BufferUnderflowException();
+      }
+      byte[] bytes = new byte[length];
+      in.get(bytes);
+      return bytes;
+    }
+
+    // O parser vive no main.java: qualquer alteração ao gerador invalida a cache. O digest só é
+    // recalculado quando o tamanho ou a data do ficheiro mudam
+    static String version() throws IOException {
+      Path generator = Paths.get("main.java");
+      if (!Files.exists(generator)) {
+        return digest(new byte[0]);
+      }
+      var attributes = Files.readAttributes(generator, BasicFileAttributes.class);
+      Version current = lastVersion;
+      if (current == null || !current.modified().equals(attributes.lastModifiedTime())
+          || current.size() != attributes.size()) {
+        current = new Version(attributes.lastModifiedTime(), attributes.size(), digest(Files.readAllBytes(generator)));
+        lastVersion = current;
+      }
+      return current.digest();
+    }
 
-      return template.replace("${page_title}", title)
-          .replace("${page_description}", description)
-          .replace("${page_content}", content)
-          .replace("${current_year}", currentYear)
-          .replace("${base_path}", basePath);
+    // Sobre os bytes, sem descodificar o ficheiro para String e voltar a codificá-lo
+    private static String digest(byte[] bytes) {
+      try {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
     }
   }
 
-  static class Processor {
+  /**
+   * Instrumentação da build: tempo de cada fase, tempo e bytes de cada ficheiro por etapa e pico
+   * de heap. O resumo é gravado em JSON (por omissão em .cache/build-report.json) e cada medição é
+   * também emitida como evento do JDK Flight Recorder (kambas.BuildPhase, kambas.SourceFile e
+   * kambas.Build), por isso uma gravação com -XX:StartFlightRecording mostra os documentos lentos
+   * sem ser preciso outro profiler.
+   */
+  static final class Metrics {
+    static final Path DEFAULT_REPORT = Paths.get(".cache", "build-report.json");
+    private static final int SLOWEST_FILES = 10;
 
-    static List<DataSet.Post> processPosts(Path siteDir) throws IOException {
-      Path postsDir = Paths.get("posts");
-
-      List<DataSet.Post> posts = new ArrayList<>();
-
-      // Processa posts
-      if (Files.exists(postsDir)) {
-        Files.walk(postsDir)
-            .filter(p -> p.toString().endsWith(".md")) // Process only .md files
-            .filter(p -> !p.toFile().getName().startsWith("_")) // Ignore files starting with _
-            .forEach(mdFile -> {
-              try {
-                String md = Files.readString(mdFile);
-                var metadata = Utils.Processor.readMetadata(md);  
-                String description = metadata.getOrDefault("description", "");
-                String html = Utils.MarkdownProcessor.markdownToHtml(md);
-                String fileName = mdFile.getFileName().toString().replace(".md", "");
-                int year = Integer.parseInt(mdFile.getParent().getParent().getFileName().toString());
-                int month = Integer.parseInt(mdFile.getParent().getFileName().toString());
-                String slug = fileName.toLowerCase()
-                    .replace(" ", "-")
-                    .replaceAll("[^a-z0-9-]", "");
-                var title = metadata.getOrDefault("title", fileName);
-
-
-                DataSet.Post post = new DataSet.Post(title, slug, html, year, month, description);
-                posts.add(post);
-
-                // Gera HTML do post
-                String postHtml = Utils.TemplateEngine.renderPost(post);
-                Path outDir = siteDir.resolve("posts/" + year + "/" + String.format("%02d", month));
-                Files.createDirectories(outDir);
-                Files.writeString(outDir.resolve(post.slug() + ".html"), postHtml);
-              } catch (Exception e) {
-                throw new RuntimeException(e);
-              }
-            });
+    // Fases sequenciais da Build.run
+    enum Phase {
+      MANIFEST, CLEAN, ASSETS, TEMPLATES, CONTENT, RELATED, AGGREGATES, SEARCH, PUBLISH, FINALIZE
+    }
+
+    // Etapas de cada ficheiro; os tempos somam-se entre threads, por isso podem exceder o da fase
+    enum Stage {
+      SCAN, READ, PARSE, INDEX, RENDER, MINIFY, COMPRESS, WRITE
+    }
+
+    @Name("kambas.BuildPhase")
+    @Label("Fase da build")
+    @Category({ "Kambas", "Build" })
+    static final class PhaseEvent extends jdk.jfr.Event {
+      @Label("Fase")
+      String phase;
+    }
+
+    @Name("kambas.SourceFile")
+    @Label("Ficheiro processado")
+    @Category({ "Kambas", "Build" })
+    static final class FileEvent extends jdk.jfr.Event {
+      @Label("Ficheiro")
+      String file;
+      @Label("Leitura")
+      @Timespan
+      long read;
+      @Label("Parsing")
+      @Timespan
+      long parse;
+      @Label("Renderização")
+      @Timespan
+      long render;
+      @Label("Minificação")
+      @Timespan
+      long minify;
+      @Label("Compressão")
+      @Timespan
+      long compress;
+      @Label("Escrita")
+      @Timespan
+      long write;
+      @Label("Bytes lidos")
+      @DataAmount
+      long bytesRead;
+      @Label("Bytes escritos")
+      @DataAmount
+      long bytesWritten;
+    }
+
+    @Name("kambas.Build")
+    @Label("Build")
+    @Category({ "Kambas", "Build" })
+    static final class BuildEvent extends jdk.jfr.Event {
+      @Label("Incremental")
+      boolean incremental;
+      @Label("Páginas geradas")
+      int rendered;
+      @Label("Páginas reaproveitadas")
+      int skipped;
+      @Label("Bytes lidos")
+      @DataAmount
+      long bytesRead;
+      @Label("Bytes escritos")
+      @DataAmount
+      long bytesWritten;
+      @Label("Pico de heap")
+      @DataAmount
+      long peakHeap;
+    }
+
+    private final boolean incremental;
+    private final Instant startedAt = Instant.now();
+    private final long start = System.nanoTime();
+    private final BuildEvent buildEvent = recording() ? new BuildEvent() : null;
+    private final Map<Phase, Long> phases = new EnumMap<>(Phase.class);
+    private final LongAdder[] stageNanos = adders();
+    private final LongAdder[] stageCounts = adders();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final Queue<Source> sources = new ConcurrentLinkedQueue<>();
+
+    private Phase phase;
+    private long phaseStart;
+    private PhaseEvent phaseEvent;
+    private long total;
+    private long peakHeap;
+    private int rendered;
+    private int skipped;
+
+    Metrics(boolean incremental) {
+      this.incremental = incremental;
+      // O pico é medido desde o início desta build, não desde o arranque da JVM
+      heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+      if (buildEvent != null) {
+        buildEvent.begin();
+      }
+    }
+
+    // O primeiro evento carrega o JFR, mais de 100 ms numa JVM fria; sem gravação não vale a pena
+    private static boolean recording() {
+      return FlightRecorder.isInitialized();
+    }
+
+    static Path reportPath(List<String> options) {
+      return options.stream()
+          .filter(o -> o.startsWith("--report="))
+          .map(o -> Paths.get(o.substring("--report=".length())))
+          .findFirst()
+          .orElseGet(() -> {
+            // Fatias a correr em paralelo não podem gravar o mesmo relatório
+            var shard = Shard.of(options);
+            return shard != null ? shard.report() : DEFAULT_REPORT;
+          });
+    }
+
+    /** Termina a fase em curso e começa {@code next}. */
+    void phase(Phase next) {
+      endPhase();
+      phase = next;
+      phaseStart = System.nanoTime();
+      phaseEvent = recording() ? new PhaseEvent() : null;
+      if (phaseEvent != null) {
+        phaseEvent.phase = name(next);
+        phaseEvent.begin();
       }
+    }
 
-      // Ordena posts do mais recente para o mais antigo
-      posts.sort((p1, p2) -> {
-        if (p1.year() != p2.year())
-          return Integer.compare(p2.year(), p1.year());
-        return Integer.compare(p2.month(), p1.month());
-      });
+    private void endPhase() {
+      if (phase != null) {
+        phases.merge(phase, System.nanoTime() - phaseStart, Long::sum);
+        if (phaseEvent != null) {
+          phaseEvent.commit();
+        }
+        phase = null;
+      }
+    }
 
-      return posts;
+    // Etapas que não pertencem a um ficheiro, como o Files.walk de cada pasta
+    void stage(Stage stage, long nanos) {
+      stageNanos[stage.ordinal()].add(nanos);
+      stageCounts[stage.ordinal()].increment();
+    }
 
+    /** Começa a medir um ficheiro; o relógio corre desde já até {@link Source#finish()}. */
+    Source source(Path file) {
+      return new Source(file.normalize().toString().replace('\\', '/'));
     }
 
-    static List<DataSet.Event> processEvents(Path siteDir) throws IOException {
-      Path eventsDir = Paths.get("events");
+    void finish(Manifest manifest) {
+      endPhase();
+      total = System.nanoTime() - start;
+      peakHeap = heapPools().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+      rendered = manifest.renderedCount();
+      skipped = manifest.skippedCount();
 
-      List<DataSet.Event> events = new ArrayList<>();
+      if (buildEvent != null) {
+        buildEvent.incremental = incremental;
+        buildEvent.rendered = rendered;
+        buildEvent.skipped = skipped;
+        buildEvent.bytesRead = bytesRead.sum();
+        buildEvent.bytesWritten = bytesWritten.sum();
+        buildEvent.peakHeap = peakHeap;
+        buildEvent.commit();
+      }
+    }
 
-      // Processa Dataset.Eventos
-      if (Files.exists(eventsDir)) {
-        Files.walk(eventsDir)
-            .filter(p -> p.toString().endsWith(".md")) // Process only .md files
-            .filter(p -> !p.toFile().getName().startsWith("_")) // Ignore files starting with _
-            .forEach(mdFile -> {
-              try {
-                String md = Files.readString(mdFile);
-                String fileName = mdFile.getFileName().toString();
-                DataSet.Event event = Utils.MarkdownProcessor.parseEventFromMarkdown(md, fileName);
-                events.add(event);
+    long totalMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(total);
+    }
 
-                // Gera HTML do Dataset.Evento
-                String eventHtml = Utils.TemplateEngine.renderEvent(event);
-                Path outDir = siteDir.resolve("events");
-                Files.createDirectories(outDir);
-                Files.writeString(outDir.resolve(event.slug + ".html"), eventHtml);
-              } catch (Exception e) {
-                throw new RuntimeException(e);
-              }
-            });
+    long peakHeap() {
+      return peakHeap;
+    }
+
+    List<Source> slowest(int limit) {
+      return sources.stream()
+          .sorted(Comparator.comparingLong(Source::nanos).reversed().thenComparing(Source::file))
+          .limit(limit)
+          .toList();
+    }
+
+    void writeReport(Path file) throws IOException {
+      StringBuilder json = new StringBuilder(4096);
+      json.append("{\n");
+      json.append("  \"startedAt\": \"").append(startedAt).append("\",\n");
+      json.append("  \"incremental\": ").append(incremental).append(",\n");
+      json.append("  \"totalMs\": ").append(millis(total)).append(",\n");
+      json.append("  \"pages\": {\"rendered\": ").append(rendered).append(", \"skipped\": ").append(skipped)
+          .append("},\n");
+      json.append("  \"files\": ").append(sources.size()).append(",\n");
+      json.append("  \"bytesRead\": ").append(bytesRead.sum()).append(",\n");
+      json.append("  \"bytesWritten\": ").append(bytesWritten.sum()).append(",\n");
+      json.append("  \"peakHeapBytes\": ").append(peakHeap).append(",\n");
+
+      json.append("  \"phases\": {");
+      String separator = "\n";
+      for (var entry : phases.entrySet()) {
+        json.append(separator).append("    \"").append(name(entry.getKey())).append("\": {\"ms\": ")
+            .append(millis(entry.getValue())).append('}');
+        separator = ",\n";
+      }
+      json.append("\n  },\n");
+
+      json.append("  \"stages\": {");
+      separator = "\n";
+      for (Stage stage : Stage.values()) {
+        json.append(separator).append("    \"").append(name(stage)).append("\": {\"ms\": ")
+            .append(millis(stageNanos[stage.ordinal()].sum())).append(", \"count\": ")
+            .append(stageCounts[stage.ordinal()].sum()).append('}');
+        separator = ",\n";
+      }
+      json.append("\n  },\n");
+
+      json.append("  \"slowestFiles\": [");
+      separator = "\n";
+      for (Source source : slowest(SLOWEST_FILES)) {
+        json.append(separator).append("    {\"file\": \"").append(Assets.jsonEscape(source.file))
+            .append("\", \"ms\": ").append(millis(source.nanos()));
+        for (Stage stage : Stage.values()) {
+          if (source.stages[stage.ordinal()] > 0) {
+            json.append(", \"").append(name(stage)).append("Ms\": ").append(millis(source.stages[stage.ordinal()]));
+          }
+        }
+        json.append(", \"bytesRead\": ").append(source.bytesRead).append(", \"bytesWritten\": ")
+            .append(source.bytesWritten).append('}');
+        separator = ",\n";
       }
+      json.append("\n  ]\n}\n");
+
+      Path parent = file.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      Files.writeString(file, json.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Medições de um ficheiro. Cada {@link #lap} atribui à etapa indicada o tempo decorrido desde
+     * a volta anterior; só é usado pela thread que processa o ficheiro.
+     */
+    final class Source {
+      private final String file;
+      private final long[] stages = new long[Stage.values().length];
+      private final FileEvent event = recording() ? new FileEvent() : null;
+      private final long start;
+      private long mark;
+      private long end;
+      private long bytesRead;
+      private long bytesWritten;
 
-      // Ordena Dataset.Eventos: próximos primeiro, depois passados
-      events.sort((e1, e2) -> {
-        if (e1.isUpcoming != e2.isUpcoming) {
-          return Boolean.compare(e2.isUpcoming, e1.isUpcoming); // Upcoming first
+      private Source(String file) {
+        this.file = file;
+        if (event != null) {
+          event.begin();
         }
-        return e2.date.compareTo(e1.date); // Most recent first
-      });
+        start = mark = System.nanoTime();
+      }
+
+      void lap(Stage stage) {
+        lap(stage, 0);
+      }
+
+      void lap(Stage stage, long bytes) {
+        long now = System.nanoTime();
+        long elapsed = now - mark;
+        mark = now;
+        stages[stage.ordinal()] += elapsed;
+        stage(stage, elapsed);
+        if (stage == Stage.READ) {
+          bytesRead += bytes;
+          Metrics.this.bytesRead.add(bytes);
+        } else if (stage == Stage.WRITE) {
+          bytesWritten += bytes;
+          Metrics.this.bytesWritten.add(bytes);
+        }
+      }
+
+      void finish() {
+        end = System.nanoTime();
+        sources.add(this);
+        if (event != null && event.shouldCommit()) {
+          event.file = file;
+          event.read = stages[Stage.READ.ordinal()];
+          event.parse = stages[Stage.PARSE.ordinal()];
+          event.render = stages[Stage.RENDER.ordinal()];
+          event.minify = stages[Stage.MINIFY.ordinal()];
+          event.compress = stages[Stage.COMPRESS.ordinal()];
+          event.write = stages[Stage.WRITE.ordinal()];
+          event.bytesRead = bytesRead;
+          event.bytesWritten = bytesWritten;
+          event.commit();
+        }
+      }
+
+      String file() {
+        return file;
+      }
+
+      long nanos() {
+        return end - start;
+      }
+    }
+
+    private static LongAdder[] adders() {
+      LongAdder[] adders = new LongAdder[Stage.values().length];
+      Arrays.setAll(adders, i -> new LongAdder());
+      return adders;
+    }
+
+    private static Stream<MemoryPoolMXBean> heapPools() {
+      return ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP);
+    }
+
+    private static String name(Enum<?> value) {
+      return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String millis(long nanos) {
+      return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+  }
+
+  /**
+   * Servidor de desenvolvimento: mantém a JVM viva, observa as pastas de conteúdo com um
+   * WatchService, refaz a build incremental a cada alteração e serve o site/ a partir da
+   * memória. Os separadores abertos recebem um evento (Server-Sent Events) e recarregam.
+   */
+  static class DevServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final long DEBOUNCE_MS = 25;
+    private static final String RELOAD_PATH = "/__reload";
+    private static final String RELOAD_SCRIPT =
+        "<script>new EventSource('" + RELOAD_PATH + "').onmessage = () => location.reload();</script>";
+    private static final List<Path> WATCHED_DIRS = Stream.concat(
+            Processor.TYPES.stream().map(Processor.ContentType::dir), Stream.of("templates", "assets"))
+        .map(Paths::get)
+        .toList();
+
+    private final Path siteDir;
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    // Última build bem-sucedida; a seguinte parte do seu manifesto e documentos em memória
+    private Build.Result last;
+    private final Set<BlockingQueue<String>> clients = ConcurrentHashMap.newKeySet();
+
+    private DevServer(Path siteDir) {
+      this.siteDir = siteDir;
+    }
+
+    static int port(List<String> options) {
+      return options.stream()
+          .filter(o -> o.startsWith("--port="))
+          .map(o -> Integer.parseInt(o.substring("--port=".length())))
+          .findFirst()
+          .orElse(DEFAULT_PORT);
+    }
+
+    static void serve(Path siteDir, int port) throws Exception {
+      var server = new DevServer(siteDir);
+      server.last = Build.run(siteDir, true);
+      server.loadAll(siteDir);
+
+      HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+      http.setExecutor(Processor.EXECUTOR);
+      http.createContext("/", server::handle);
+      http.createContext(RELOAD_PATH, server::events);
+      http.start();
+      println("Servidor de desenvolvimento em http://localhost:" + port + "/ (Ctrl+C para parar)");
+
+      server.watch();
+    }
 
-      return events;
-    }
-
-    static List<DataSet.Member> processMembers(Path siteDir) throws IOException {
-      Path membersDir = Paths.get("members");
-
-      List<DataSet.Member> members = new ArrayList<>();
-
-      // Processa membros
-      if (Files.exists(membersDir)) {
-        Files.walk(membersDir)
-            .filter(p -> p.toString().endsWith(".md")) // Process only .md files
-            .filter(p -> !p.toFile().getName().startsWith("_")) // Ignore files starting with _
-            .forEach(mdFile -> {
-              try {
-                String md = Files.readString(mdFile);
-                String githubUsername = mdFile.getFileName().toString().replace(".md", "");
-                DataSet.Member member = Utils.MarkdownProcessor.parseMemberFromMarkdown(md, githubUsername);
-                members.add(member);
-
-                // Gera HTML do membro
-                String memberHtml = Utils.TemplateEngine.renderMember(member);
-                Path outDir = siteDir.resolve("members");
-                Files.createDirectories(outDir);
-                Files.writeString(outDir.resolve(member.githubUsername() + ".html"), memberHtml);
-              } catch (Exception e) {
-                throw new RuntimeException(e);
+    private void watch() throws IOException, InterruptedException {
+      try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+        Map<WatchKey, Path> keys = new HashMap<>();
+        for (Path dir : WATCHED_DIRS) {
+          if (Files.isDirectory(dir)) {
+            register(watcher, dir, keys);
+          }
+        }
+
+        while (true) {
+          WatchKey key = watcher.take();
+          Set<Path> changed = new HashSet<>();
+          // Junta os eventos que chegam em rajada: os editores costumam gravar em vários passos
+          do {
+            Path dir = keys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+              if (dir == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.add(dir == null ? Paths.get(".") : dir);
+                continue;
+              }
+              Path child = dir.resolve((Path) event.context());
+              changed.add(child);
+              if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                register(watcher, child, keys);
               }
-            });
+            }
+            if (!key.reset()) {
+              keys.remove(key);
+            }
+          } while ((key = watcher.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null);
+
+          rebuild(changed);
+        }
       }
+    }
 
-      return members;
+    private static void register(WatchService watcher, Path root, Map<WatchKey, Path> keys) throws IOException {
+      try (Stream<Path> walk = Files.walk(root)) {
+        for (Path dir : walk.filter(Files::isDirectory).toList()) {
+          keys.put(dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+              StandardWatchEventKinds.ENTRY_MODIFY), dir);
+        }
+      }
     }
 
-    static void clearSiteDir(Path siteDir) throws Exception {
-      if (Files.exists(siteDir)) {
-        Files.walk(siteDir)
-            .sorted(Comparator.reverseOrder())
-            .map(Path::toFile)
-            .forEach(File::delete);
-      }
-      Files.createDirectories(siteDir);
-    }
-
-    static Map<String, String> readMetadata(String file) {
-      Map<String, String> variables = new HashMap<>();
-      try (BufferedReader reader = new BufferedReader(new StringReader(file))) {
-        // Use parallel stream to process lines in parallel
-        variables = reader.lines()
-            .parallel()
-            .filter(line -> line.startsWith("@"))
-            .map(line -> line.substring(1).split(" ", 2))
-            .collect(Collectors.toMap(
-                parts -> parts[0].replace("@", "").trim(),
-                parts -> parts.length > 1 ? parts[1].trim() : "",
-                (v1, v2) -> v1 // merge function in case of duplicate keys
-            ));
-      } catch (IOException e) {
-        e.printStackTrace();
+    private void rebuild(Set<Path> changed) {
+      long start = System.nanoTime();
+      try {
+        var result = Build.run(siteDir, true, last);
+        last = result;
+        var manifest = result.manifest();
+        if (result.staging().isStaged()) {
+          // Build completa: site/ foi substituído inteiro
+          files.clear();
+          loadAll(siteDir);
+        } else {
+          for (Path output : manifest.changedOutputs()) {
+            load(output);
+          }
+          for (Path output : result.search().writtenFiles()) {
+            load(output);
+          }
+          for (Path output : manifest.removedOutputs()) {
+            files.remove(key(output));
+          }
+          for (Path output : result.search().removedFiles()) {
+            files.remove(key(output));
+          }
+        }
+        if (changed.stream().anyMatch(p -> p.startsWith("assets"))) {
+          files.keySet().removeIf(path -> path.startsWith("assets/"));
+          loadAll(siteDir.resolve("assets"));
+        }
+        println("Rebuild em " + (System.nanoTime() - start) / 1_000_000 + " ms ("
+            + manifest.renderedCount() + " páginas geradas)");
+        clients.forEach(client -> client.offer("reload"));
+      } catch (Exception e) {
+        // Um erro de build não derruba o servidor; a próxima gravação tenta de novo
+        println("Erro na build: " + e);
       }
-      return variables;
     }
 
-  }
+    private void loadAll(Path dir) throws IOException {
+      if (!Files.exists(dir)) {
+        return;
+      }
+      try (Stream<Path> walk = Files.walk(dir)) {
+        // Os .gz são para o servidor de produção; aqui as respostas vão sem compressão
+        for (Path file : walk.filter(Files::isRegularFile).filter(p -> !p.toString().endsWith(".gz")).toList()) {
+          load(file);
+        }
+      }
+    }
 
-  static class Render {
-     static void render(Path siteDir, List<DataSet.Post> posts, List<DataSet.Event> events,
-        List<DataSet.Member> members) throws Exception {
-      Path assetsDir = Paths.get("assets");
+    private void load(Path file) throws IOException {
+      byte[] body = Files.readAllBytes(file);
+      if (file.toString().endsWith(".html")) {
+        // O script de live reload só existe na versão servida, nunca no disco
+        String html = new String(body, StandardCharsets.UTF_8);
+        int end = html.lastIndexOf("</body>");
+        html = end >= 0 ? html.substring(0, end) + RELOAD_SCRIPT + html.substring(end) : html + RELOAD_SCRIPT;
+        body = html.getBytes(StandardCharsets.UTF_8);
+      }
+      files.put(key(file), body);
+    }
 
-      // Gera index
-      String indexHtml = Utils.TemplateEngine.renderIndex(posts, events, members);
-      Files.writeString(siteDir.resolve("index.html"), indexHtml, StandardCharsets.UTF_8);
-      println("Index gerado.");
+    private String key(Path file) {
+      return siteDir.relativize(file).toString().replace('\\', '/');
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+      try (exchange) {
+        String path = exchange.getRequestURI().getPath();
+        if (path.endsWith("/")) {
+          path += "index.html";
+        }
+        byte[] body = files.get(path.substring(1));
+        if (body == null) {
+          exchange.sendResponseHeaders(404, -1);
+          return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType(path));
+        exchange.getResponseHeaders().set("Cache-Control",
+            Assets.isFingerprinted(path) ? "public, max-age=31536000, immutable" : "no-store");
+        if (exchange.getRequestMethod().equals("HEAD")) {
+          exchange.sendResponseHeaders(200, -1);
+          return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+      }
+    }
 
-      // Gera página com todos os posts
-      String allPostsHtml = Utils.TemplateEngine.renderAllPosts(posts);
-      Files.writeString(siteDir.resolve("all-posts.html"), allPostsHtml, StandardCharsets.UTF_8);
-      println("Página de todos os posts gerada.");
+    private void events(HttpExchange exchange) throws IOException {
+      BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+      clients.add(queue);
+      try (exchange; OutputStream out = exchange.getResponseBody()) {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(200, 0);
+        while (true) {
+          // O comentário periódico deteta separadores fechados
+          String event = queue.poll(15, TimeUnit.SECONDS);
+          out.write((event == null ? ": ping\n\n" : "data: " + event + "\n\n").getBytes(StandardCharsets.UTF_8));
+          out.flush();
+        }
+      } catch (IOException | InterruptedException e) {
+        // Separador fechado
+      } finally {
+        clients.remove(queue);
+      }
+    }
 
-      // Gera página com todos os Dataset.Eventos
-      String allEventsHtml = Utils.TemplateEngine.renderAllEvents(events);
-      Files.writeString(siteDir.resolve("all-events.html"), allEventsHtml, StandardCharsets.UTF_8);
-      println("Página de todos os eventos gerada.");
+    private static String contentType(String path) {
+      String extension = path.substring(path.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+      return switch (extension) {
+        case "html" -> "text/html; charset=utf-8";
+        case "css" -> "text/css; charset=utf-8";
+        case "js" -> "text/javascript; charset=utf-8";
+        case "json" -> "application/json";
+        case "xml" -> "application/xml";
+        case "atom" -> "application/atom+xml";
+        case "rss" -> "application/rss+xml";
+        case "svg" -> "image/svg+xml";
+        case "png" -> "image/png";
+        case "jpg", "jpeg" -> "image/jpeg";
+        case "gif" -> "image/gif";
+        case "webp" -> "image/webp";
+        case "ico" -> "image/x-icon";
+        case "txt" -> "text/plain; charset=utf-8";
+        default -> "application/octet-stream";
+      };
+    }
+  }
 
-      // Gera página com todos os membros
-      String allMembersHtml = Utils.TemplateEngine.renderAllMembers(members);
-      Files.writeString(siteDir.resolve("all-members.html"), allMembersHtml, StandardCharsets.UTF_8);
-      println("Página de todos os membros gerada.");
+  /**
+   * Gerador residente: entre builds ficam em memória os templates compilados, os documentos já
+   * convertidos e o manifesto da última build, e o código já passou pelo JIT. Recebe um comando
+   * por ligação no socket Unix .cache/kambas.sock e trata um de cada vez:
+   * {@code build [--incremental] [--report=<ficheiro>]}, {@code clean}, {@code status} ou
+   * {@code stop}. Responde com linhas de texto; a última é "ok" ou "erro".
+   */
+  static final class Daemon {
+    static final Path SOCKET = Paths.get(".cache", "kambas.sock");
+    private static final String OK = "ok";
+    private static final String ERROR = "erro";
+
+    private final Path siteDir;
+    // Versão do main.java que está carregada; se o ficheiro mudar, o código em memória fica velho
+    private final String generator;
+    private final long started = System.nanoTime();
+    private Build.Result last;
+    private int builds;
+    private boolean stopping;
+
+    private Daemon(Path siteDir, String generator) {
+      this.siteDir = siteDir;
+      this.generator = generator;
+    }
+
+    static void serve(Path siteDir) throws IOException {
+      var address = UnixDomainSocketAddress.of(SOCKET);
+      if (Files.exists(SOCKET)) {
+        if (reachable(address)) {
+          throw new IllegalStateException("Já existe um daemon a correr em " + SOCKET);
+        }
+        // Socket de um daemon que terminou sem o apagar
+        Files.delete(SOCKET);
+      }
+      Files.createDirectories(SOCKET.getParent());
 
-      // Copia assets
-      if (Files.exists(assetsDir)) {
-        Files.walk(assetsDir).forEach(p -> {
+      var daemon = new Daemon(siteDir, ParseCache.version());
+      try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+        server.bind(address);
+        Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().unstarted(() -> {
           try {
-            Path rel = assetsDir.relativize(p);
-            Path target = siteDir.resolve("assets").resolve(rel);
-            if (Files.isDirectory(p)) {
-              Files.createDirectories(target);
-            } else {
-              Files.createDirectories(target.getParent());
-              Files.copy(p, target, StandardCopyOption.REPLACE_EXISTING);
-            }
-          } catch (Exception e) {
-            throw new RuntimeException(e);
+            Files.deleteIfExists(SOCKET);
+          } catch (IOException e) {
+            // O próximo daemon apaga-o
           }
-        });
-        println("Assets copiados.");
+        }));
+        println("Daemon à espera de comandos em " + SOCKET + " (Ctrl+C para parar)");
+        while (!daemon.stopping) {
+          try (SocketChannel channel = server.accept()) {
+            daemon.handle(channel);
+          } catch (IOException e) {
+            // Cliente desligou-se a meio da resposta
+          }
+        }
+      } finally {
+        Files.deleteIfExists(SOCKET);
+      }
+    }
+
+    private static boolean reachable(UnixDomainSocketAddress address) {
+      try (var _ = SocketChannel.open(address)) {
+        return true;
+      } catch (IOException e) {
+        return false;
+      }
+    }
+
+    private void handle(SocketChannel channel) throws IOException {
+      BufferedReader in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+      String line = in.readLine();
+      if (line == null || line.isBlank()) {
+        return;
+      }
+      List<String> command = List.of(line.strip().split("\\s+"));
+      List<String> reply = new ArrayList<>();
+      try {
+        execute(command, reply);
+        reply.add(OK);
+      } catch (Exception e) {
+        // Um erro de build não derruba o daemon; a mensagem segue para o cliente
+        String message = Objects.requireNonNullElse(e.getMessage(), e.toString());
+        message.lines().forEach(reply::add);
+        reply.add(ERROR);
+      }
+      Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8);
+      for (String text : reply) {
+        out.write(text);
+        out.write('\n');
+      }
+      out.flush();
+    }
+
+    private void execute(List<String> command, List<String> reply) throws Exception {
+      switch (command.getFirst()) {
+        case "build" -> {
+          if (!ParseCache.version().equals(generator)) {
+            stopping = true;
+            throw new IllegalStateException("main.java mudou desde que o daemon arrancou; o daemon vai parar");
+          }
+          List<String> options = command.subList(1, command.size());
+          var result = Build.run(siteDir, options.contains("--incremental"), last);
+          last = result;
+          builds++;
+          reply.addAll(Build.summary(siteDir, result, options));
+        }
+        case "clean" -> {
+          // A cache de parsing fica: só depende do conteúdo das fontes. Sem manifesto, a próxima
+          // build é completa.
+          Staging.clean(siteDir);
+          Files.deleteIfExists(Manifest.DEFAULT_PATH);
+          Files.deleteIfExists(SearchIndex.DEFAULT_PATH);
+          reply.add("Apagados " + siteDir + ", a staging e o manifesto da última build");
+        }
+        case "status" -> {
+          reply.add("Daemon ativo há " + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started) + " s (pid "
+              + ProcessHandle.current().pid() + ")");
+          reply.add("Builds feitas: " + builds);
+          if (last != null) {
+            reply.add("Última build: " + last.metrics().totalMillis() + " ms, "
+                + last.manifest().renderedCount() + " páginas geradas");
+            reply.add("Documentos em memória: " + last.cache().size());
+          }
+          Runtime runtime = Runtime.getRuntime();
+          reply.add("Heap em uso: " + (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024) + " MB");
+        }
+        case "stop" -> {
+          stopping = true;
+          reply.add("Daemon a parar");
+        }
+        default -> throw new IllegalArgumentException(
+            "Comando desconhecido: " + command.getFirst() + " (build, clean, status ou stop)");
+      }
+    }
+
+    /** Envia um comando ao daemon e mostra a resposta; devolve o código de saída do processo. */
+    static int client(List<String> command) throws IOException {
+      if (command.isEmpty()) {
+        println("Uso: client build [--incremental] | client clean | client status | client stop");
+        return 2;
+      }
+      try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(SOCKET))) {
+        Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        out.write(String.join(" ", command) + "\n");
+        out.flush();
+
+        BufferedReader in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+        String status = null;
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+          if (status != null) {
+            println(status);
+          }
+          status = line;
+        }
+        return OK.equals(status) ? 0 : 1;
+      } catch (SocketException e) {
+        println("Nenhum daemon em " + SOCKET + "; inicie-o com: ./run.sh daemon");
+        return 1;
       }
     }
   }
@@ -1,10 +1,40 @@
 @echo off
 setlocal
 
+rem Tal como no run.sh: o gerador corre a partir de classes compiladas e de um arquivo AppCDS,
+rem refeitos quando main.java muda. KAMBAS_LAUNCHER=source usa o launcher de codigo-fonte.
+set LAUNCHER_DIR=.cache\launcher
+set JAR=%LAUNCHER_DIR%\kambas.jar
+set ARCHIVE=%LAUNCHER_DIR%\kambas.jsa
+
 echo Gerando site estático...
 
+if "%KAMBAS_LAUNCHER%"=="source" (
+  echo Executando gerador...
+  java --enable-preview --source 24 main.java %*
+  goto done
+)
+
+rem A versao compilada e identificada pelo hash de main.java e nao pela data, que muda a cada checkout
+set HASH=
+for /f "skip=1 delims=" %%H in ('certutil -hashfile main.java SHA256') do if not defined HASH set HASH=%%H
+set BUILT=
+if exist "%LAUNCHER_DIR%\main.sha256" set /p BUILT=<"%LAUNCHER_DIR%\main.sha256"
+if not exist "%JAR%" set BUILT=
+if not "%HASH%"=="%BUILT%" (
+  echo Compilando gerador...
+  if exist "%LAUNCHER_DIR%" rmdir /s /q "%LAUNCHER_DIR%"
+  mkdir "%LAUNCHER_DIR%\classes"
+  javac --enable-preview --release 24 -Xlint:-preview -d "%LAUNCHER_DIR%\classes" main.java
+  if errorlevel 1 goto done
+  jar --create --file "%JAR%" --main-class main -C "%LAUNCHER_DIR%\classes" .
+  if errorlevel 1 goto done
+  >"%LAUNCHER_DIR%\main.sha256" echo %HASH%
+)
+
 echo Executando gerador...
-java --enable-preview --source 24 main.java
+java -XX:+AutoCreateSharedArchive -XX:SharedArchiveFile="%ARCHIVE%" -Xlog:cds*=error --enable-preview -jar "%JAR%" %*
 
+:done
 echo Site gerado em site/
 pause
@@ -2,9 +2,31 @@
 
 set -e
 
+# O gerador corre a partir de classes já compiladas e de um arquivo AppCDS com as classes que
+# carrega. Os dois são refeitos quando main.java muda; a primeira execução a seguir serve de treino
+# e grava o arquivo ao sair. KAMBAS_LAUNCHER=source usa o launcher de código-fonte.
+LAUNCHER_DIR=.cache/launcher
+JAR=$LAUNCHER_DIR/kambas.jar
+ARCHIVE=$LAUNCHER_DIR/kambas.jsa
+
 echo "Gerando site estático..."
 
-echo "Executando gerador..."
-java --enable-preview --source 24 main.java
+if [ "$KAMBAS_LAUNCHER" = "source" ]; then
+  echo "Executando gerador..."
+  java --enable-preview --source 24 main.java "$@"
+else
+  # A versão compilada é identificada pelo checksum de main.java e não pela data, que muda a cada checkout
+  SUM=$(cksum < main.java)
+  if [ ! -f "$JAR" ] || [ "$(cat "$LAUNCHER_DIR/main.cksum" 2>/dev/null)" != "$SUM" ]; then
+    echo "Compilando gerador..."
+    rm -rf "$LAUNCHER_DIR"
+    mkdir -p "$LAUNCHER_DIR/classes"
+    javac --enable-preview --release 24 -Xlint:-preview -d "$LAUNCHER_DIR/classes" main.java
+    jar --create --file "$JAR" --main-class main -C "$LAUNCHER_DIR/classes" .
+    echo "$SUM" > "$LAUNCHER_DIR/main.cksum"
+  fi
+  echo "Executando gerador..."
+  java -XX:+AutoCreateSharedArchive -Xlog:cds*=error -XX:SharedArchiveFile="$ARCHIVE" --enable-preview -jar "$JAR" "$@"
+fi
 
 echo "Site gerado em site/"